@@ -0,0 +1,48 @@
+package com.ecommerce.cache;
+
+import com.github.benmanes.caffeine.cache.AsyncCache;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Function;
+
+/**
+ * Loads cache misses on the calling thread, outside of the cache's locks.
+ * <p>
+ * {@code Cache.get(key, loader)} runs the loader inside a {@code ConcurrentHashMap} compute,
+ * which holds a monitor for the whole load; a virtual thread waiting on Couchbase in there pins
+ * its carrier thread. Here only an empty future is installed under the lock. The caller that
+ * installed it runs the load, and concurrent callers for the same key wait on the future, so
+ * loads are still coalesced. Loaders are expected not to return {@code null}.
+ */
+public final class CacheLoading {
+
+    private CacheLoading() {
+    }
+
+    public static <K, V> V get(AsyncCache<K, V> cache, K key, Function<? super K, ? extends V> loader) {
+        CompletableFuture<V> load = new CompletableFuture<>();
+        CompletableFuture<V> value = cache.get(key, (k, executor) -> load);
+        if (value == load) {
+            try {
+                V loaded = loader.apply(key);
+                load.complete(loaded);
+                return loaded;
+            } catch (RuntimeException | Error e) {
+                // A null value drops the entry without Caffeine logging the failure; waiters retry
+                load.complete(null);
+                throw e;
+            }
+        }
+
+        V loaded = value.join();
+        return loaded != null ? loaded : loader.apply(key);
+    }
+
+    /**
+     * @return the cached value, or {@code null} if it is absent or still loading
+     */
+    public static <K, V> V getIfLoaded(AsyncCache<K, V> cache, K key) {
+        CompletableFuture<V> value = cache.getIfPresent(key);
+        return value != null && value.isDone() && !value.isCompletedExceptionally() ? value.join() : null;
+    }
+}
@@ -0,0 +1,164 @@
+package com.ecommerce.cluster;
+
+import com.couchbase.client.core.error.CouchbaseException;
+import com.couchbase.client.core.error.DocumentNotFoundException;
+import com.couchbase.client.java.Collection;
+import com.couchbase.client.java.json.JsonObject;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.couchbase.core.CouchbaseTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.Consumer;
+
+import static com.couchbase.client.java.kv.IncrementOptions.incrementOptions;
+import static com.couchbase.client.java.kv.InsertOptions.insertOptions;
+
+/**
+ * Lightweight broadcast between backend replicas, used to keep in-memory caches coherent.
+ * <p>
+ * Each event is stored as a short-lived KV document under a cluster-wide sequence number;
+ * replicas poll the sequence counter and fetch only the events they have not seen yet. A replica
+ * that starts up replays at most the last {@code cluster.events.max-batch} events, so state that
+ * must survive a restart, such as token revocations, has to be kept durably by its owner.
+ */
+@Component
+public class ClusterEventBus {
+
+    private static final Logger logger = LoggerFactory.getLogger(ClusterEventBus.class);
+
+    private static final String SEQUENCE_KEY = "cluster-event::seq";
+    private static final String EVENT_KEY_PREFIX = "cluster-event::";
+    private static final int MAX_GAP_POLLS = 5;
+
+    @Autowired
+    private CouchbaseTemplate couchbaseTemplate;
+
+    @Value("${cluster.events.ttl:15m}")
+    private Duration eventTtl;
+
+    @Value("${cluster.events.max-batch:500}")
+    private int maxBatch;
+
+    private final String nodeId = UUID.randomUUID().toString();
+
+    private final Map<String, List<Consumer<String>>> subscribers = new ConcurrentHashMap<>();
+
+    private volatile long lastSeen = -1;
+
+    private long startupSequence;
+
+    private long gapSequence = -1;
+
+    private int gapPolls;
+
+    public void subscribe(String topic, Consumer<String> handler) {
+        subscribers.computeIfAbsent(topic, key -> new CopyOnWriteArrayList<>()).add(handler);
+    }
+
+    /**
+     * Broadcasts an event to every other replica. The publishing replica is expected to have
+     * already applied the change locally.
+     */
+    public void publish(String topic, String payload) {
+        try {
+            Collection collection = collection();
+            long sequence = collection.binary()
+                    .increment(SEQUENCE_KEY, incrementOptions().initial(1))
+                    .content();
+
+            JsonObject event = JsonObject.create()
+                    .put("topic", topic)
+                    .put("payload", payload)
+                    .put("origin", nodeId);
+            collection.insert(EVENT_KEY_PREFIX + sequence, event, insertOptions().expiry(eventTtl));
+        } catch (CouchbaseException e) {
+            logger.warn("Could not broadcast {} event for {}: {}", topic, payload, e.getMessage());
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${cluster.events.poll-interval-ms:1000}")
+    public void poll() {
+        try {
+            long current = currentSequence();
+            if (lastSeen < 0) {
+                startupSequence = current;
+                lastSeen = Math.max(0, current - maxBatch);
+            }
+
+            long upTo = Math.min(current, lastSeen + maxBatch);
+            for (long sequence = lastSeen + 1; sequence <= upTo; sequence++) {
+                JsonObject event;
+                try {
+                    event = collection().get(EVENT_KEY_PREFIX + sequence).contentAsObject();
+                } catch (DocumentNotFoundException e) {
+                    if (sequence > startupSequence && waitForGap(sequence)) {
+                        return;
+                    }
+                    lastSeen = sequence;
+                    continue;
+                }
+
+                dispatch(event);
+                lastSeen = sequence;
+            }
+        } catch (CouchbaseException e) {
+            logger.warn("Could not poll cluster events: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * A sequence number can be allocated slightly before its event document is written, so a
+     * missing event is retried for a few polls before it is treated as lost.
+     */
+    private boolean waitForGap(long sequence) {
+        if (gapSequence != sequence) {
+            gapSequence = sequence;
+            gapPolls = 0;
+        }
+
+        if (++gapPolls <= MAX_GAP_POLLS) {
+            return true;
+        }
+
+        logger.debug("Skipping missing cluster event {}", sequence);
+        return false;
+    }
+
+    private void dispatch(JsonObject event) {
+        if (nodeId.equals(event.getString("origin"))) {
+            return;
+        }
+
+        String topic = event.getString("topic");
+        String payload = event.getString("payload");
+        for (Consumer<String> handler : subscribers.getOrDefault(topic, List.of())) {
+            try {
+                handler.accept(payload);
+            } catch (RuntimeException e) {
+                logger.warn("Cluster event handler for {} failed: {}", topic, e.getMessage());
+            }
+        }
+    }
+
+    private long currentSequence() {
+        try {
+            return collection().get(SEQUENCE_KEY).contentAs(Long.class);
+        } catch (DocumentNotFoundException e) {
+            return 0;
+        }
+    }
+
+    private Collection collection() {
+        return couchbaseTemplate.getCouchbaseClientFactory().getDefaultCollection();
+    }
+}
@@ -0,0 +1,22 @@
+package com.ecommerce.config;
+
+import org.springframework.boot.web.servlet.FilterRegistrationBean;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.web.filter.ShallowEtagHeaderFilter;
+
+@Configuration
+public class HttpCacheConfig {
+
+    /**
+     * ETags for product listings, whose version is only known once they are loaded. Responses that
+     * already carry an ETag, such as single products and catalog lists, are left untouched.
+     */
+    @Bean
+    public FilterRegistrationBean<ShallowEtagHeaderFilter> productListingEtagFilter() {
+        FilterRegistrationBean<ShallowEtagHeaderFilter> registration =
+                new FilterRegistrationBean<>(new ShallowEtagHeaderFilter());
+        registration.addUrlPatterns("/api/products/*");
+        return registration;
+    }
+}
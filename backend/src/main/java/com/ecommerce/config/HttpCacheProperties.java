@@ -0,0 +1,77 @@
+package com.ecommerce.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.http.CacheControl;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Named {@code Cache-Control} policies for public, read-mostly endpoints. An unknown policy name
+ * yields {@code no-cache}, so responses are still revalidated with their ETag.
+ */
+@Component
+@ConfigurationProperties(prefix = "http-cache")
+public class HttpCacheProperties {
+
+    private Map<String, Policy> policies = new HashMap<>();
+
+    public CacheControl cacheControl(String name) {
+        Policy policy = policies.get(name);
+        if (policy == null || policy.getMaxAge().isZero()) {
+            return CacheControl.noCache().cachePublic();
+        }
+
+        CacheControl cacheControl = CacheControl.maxAge(policy.getMaxAge()).cachePublic();
+        if (policy.getStaleWhileRevalidate() != null) {
+            cacheControl = cacheControl.staleWhileRevalidate(policy.getStaleWhileRevalidate());
+        }
+        if (policy.getStaleIfError() != null) {
+            cacheControl = cacheControl.staleIfError(policy.getStaleIfError());
+        }
+        return cacheControl;
+    }
+
+    public Map<String, Policy> getPolicies() {
+        return policies;
+    }
+
+    public void setPolicies(Map<String, Policy> policies) {
+        this.policies = policies;
+    }
+
+    public static class Policy {
+
+        private Duration maxAge = Duration.ZERO;
+
+        private Duration staleWhileRevalidate;
+
+        private Duration staleIfError;
+
+        public Duration getMaxAge() {
+            return maxAge;
+        }
+
+        public void setMaxAge(Duration maxAge) {
+            this.maxAge = maxAge;
+        }
+
+        public Duration getStaleWhileRevalidate() {
+            return staleWhileRevalidate;
+        }
+
+        public void setStaleWhileRevalidate(Duration staleWhileRevalidate) {
+            this.staleWhileRevalidate = staleWhileRevalidate;
+        }
+
+        public Duration getStaleIfError() {
+            return staleIfError;
+        }
+
+        public void setStaleIfError(Duration staleIfError) {
+            this.staleIfError = staleIfError;
+        }
+    }
+}
@@ -0,0 +1,265 @@
+package com.ecommerce.config;
+
+import com.couchbase.client.core.error.CouchbaseException;
+import com.couchbase.client.java.Cluster;
+import com.couchbase.client.java.json.JsonArray;
+import com.couchbase.client.java.json.JsonObject;
+import com.couchbase.client.java.query.QueryOptions;
+import com.ecommerce.repository.TemplateQueries;
+import com.ecommerce.repository.TemplateQueries.TemplateQuery;
+import com.ecommerce.service.InventoryService;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.context.ApplicationContext;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.data.couchbase.core.CouchbaseTemplate;
+import org.springframework.data.couchbase.repository.Query;
+import org.springframework.data.repository.core.RepositoryInformation;
+import org.springframework.data.repository.support.Repositories;
+import org.springframework.stereotype.Component;
+
+import java.lang.reflect.Method;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import static com.couchbase.client.java.query.QueryOptions.queryOptions;
+
+/**
+ * Creates the GSI indexes the application's queries rely on and checks their plans at startup.
+ * <p>
+ * Missing indexes are created deferred and built together, then every {@code @Query} found on a
+ * repository, plus the statements the custom repositories and services build with
+ * {@code QueryCriteria} as rendered by {@link TemplateQueries}, is run through {@code EXPLAIN}.
+ * A plan that falls back to a primary scan is logged, or fails startup when
+ * {@code query-indexes.on-primary-scan} is {@code fail}, so a query added without an index is
+ * caught on the first deployment rather than under load.
+ * <p>
+ * The index definitions are kept by hand, not derived from the queries: a query that changes its
+ * predicates needs its index changed here too. The test for this class checks that the keys of
+ * some index cover the predicates of every statement {@link TemplateQueries} renders.
+ */
+@Component
+@Order(Ordered.HIGHEST_PRECEDENCE)
+public class QueryIndexProvisioner implements ApplicationRunner {
+    private static final Logger logger = LoggerFactory.getLogger(QueryIndexProvisioner.class);
+
+    /**
+     * Product indexes lead with the type key and the active flag, which every template-built query
+     * filters on. The template sends the flag as a parameter, which a partial index on
+     * {@code active = true} could not be matched against. Counts and distinct category/brand lists
+     * are covered.
+     */
+    static final List<IndexDefinition> INDEXES = List.of(
+            new IndexDefinition("idx_product_active_created", "_class, active, createdAt DESC", null),
+            new IndexDefinition("idx_product_active_category", "_class, active, category, createdAt DESC", null),
+            new IndexDefinition("idx_product_active_brand", "_class, active, brand, createdAt DESC", null),
+            new IndexDefinition("idx_product_active_price", "_class, active, TONUMBER(price)", null),
+            new IndexDefinition("idx_product_active_name", "_class, active, name", null),
+            new IndexDefinition("idx_product_active_lower_name", "_class, active, LOWER(name)", null),
+            new IndexDefinition("idx_product_active_rating", "_class, active, rating", null),
+            new IndexDefinition("idx_product_featured", "_class, featured", "active = true"),
+            new IndexDefinition("idx_product_updated", "_class, updatedAt", null),
+            new IndexDefinition("idx_order_user", "userId, orderDate DESC", null),
+            new IndexDefinition("idx_order_status", "status", null),
+            new IndexDefinition("idx_order_number", "orderNumber", null),
+            new IndexDefinition("idx_user_username", "username", null),
+            new IndexDefinition("idx_user_email", "email", null),
+            new IndexDefinition("idx_refresh_token_family", "familyId", null),
+            new IndexDefinition("idx_stock_reservation_expiry", "expiresAt", "type = \"stock-reservation\""));
+
+    @Autowired
+    private CouchbaseTemplate couchbaseTemplate;
+
+    @Autowired
+    private ApplicationContext applicationContext;
+
+    @Value("${query-indexes.create-missing:true}")
+    private boolean createMissing;
+
+    // warn, fail or off
+    @Value("${query-indexes.on-primary-scan:warn}")
+    private String onPrimaryScan;
+
+    @Value("${query-indexes.build-timeout:2m}")
+    private Duration buildTimeout;
+
+    @Override
+    public void run(ApplicationArguments args) {
+        try {
+            if (createMissing) {
+                createIndexes();
+            }
+            if (!"off".equalsIgnoreCase(onPrimaryScan)) {
+                verifyPlans();
+            }
+        } catch (CouchbaseException e) {
+            if ("fail".equalsIgnoreCase(onPrimaryScan)) {
+                throw e;
+            }
+            logger.warn("Could not provision or verify query indexes: {}", e.getMessage());
+        }
+    }
+
+    private void createIndexes() {
+        String bucket = bucket();
+        for (IndexDefinition index : INDEXES) {
+            query("CREATE INDEX IF NOT EXISTS `" + index.name + "` ON " + bucket + "(" + index.keys + ")"
+                    + (index.where != null ? " WHERE " + index.where : "") + " WITH {\"defer_build\": true}");
+        }
+
+        List<String> deferred = indexNames("deferred");
+        if (!deferred.isEmpty()) {
+            logger.info("Building query indexes {}", deferred);
+            query("BUILD INDEX ON " + bucket + "(" + String.join(", ", deferred.stream()
+                    .map(name -> "`" + name + "`").toList()) + ")");
+        }
+
+        long deadline = System.nanoTime() + buildTimeout.toNanos();
+        List<String> pending = pendingIndexes();
+        while (!pending.isEmpty() && System.nanoTime() < deadline) {
+            try {
+                Thread.sleep(1000);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+            pending = pendingIndexes();
+        }
+        if (!pending.isEmpty()) {
+            logger.warn("Query indexes {} are still building after {}; their queries scan until they are online",
+                    pending, buildTimeout);
+        }
+    }
+
+    private void verifyPlans() {
+        Map<String, String> statements = new LinkedHashMap<>();
+        Map<String, QueryOptions> options = new LinkedHashMap<>();
+        Repositories repositories = new Repositories(applicationContext);
+        for (Class<?> domainType : repositories) {
+            RepositoryInformation information = repositories.getRequiredRepositoryInformation(domainType);
+            for (Method method : information.getQueryMethods()) {
+                Query annotation = method.getAnnotation(Query.class);
+                if (annotation != null) {
+                    statements.put(information.getRepositoryInterface().getSimpleName() + "." + method.getName(),
+                            expand(annotation.value(), domainType));
+                }
+            }
+        }
+        for (TemplateQuery query : TemplateQueries.render(couchbaseTemplate.getConverter(), bucketName())) {
+            statements.put(query.getName(), query.getStatement());
+            options.put(query.getName(), query.getOptions());
+        }
+        statements.put("expired stock reservations", InventoryService.expiredReservationsStatement(bucketName()));
+        options.put("expired stock reservations",
+                queryOptions().parameters(JsonArray.from(System.currentTimeMillis(), 500)));
+
+        List<String> primaryScans = new ArrayList<>();
+        statements.forEach((name, statement) -> {
+            JsonObject plan = cluster().query("EXPLAIN " + statement, options.getOrDefault(name, queryOptions()))
+                    .rowsAsObject().get(0);
+            if (contains(plan, Set.of("PrimaryScan", "PrimaryScan3"))) {
+                primaryScans.add(name);
+                logger.warn("Query '{}' uses a primary scan: {}", name, statement);
+            } else {
+                logger.debug("Query '{}' is served by an index{}", name,
+                        plan.toString().contains("\"covers\"") ? " and covered" : "");
+            }
+        });
+
+        if (!primaryScans.isEmpty() && "fail".equalsIgnoreCase(onPrimaryScan)) {
+            throw new IllegalStateException("Queries without a usable index: " + primaryScans);
+        }
+        logger.info("Verified query plans for {} statements, {} using a primary scan", statements.size(),
+                primaryScans.size());
+    }
+
+    /**
+     * Resolves the SpEL placeholders Spring Data Couchbase accepts in {@code @Query} strings.
+     */
+    private String expand(String statement, Class<?> domainType) {
+        return statement
+                .replace("#{#n1ql.selectEntity}", "SELECT META(" + bucket() + ").id AS __id, " + bucket() + ".* FROM "
+                        + bucket())
+                .replace("#{#n1ql.bucket}", bucket())
+                .replace("#{#n1ql.filter}", typeFilter(domainType));
+    }
+
+    private List<String> pendingIndexes() {
+        List<String> pending = new ArrayList<>();
+        for (String state : List.of("deferred", "pending", "building")) {
+            pending.addAll(indexNames(state));
+        }
+        pending.retainAll(INDEXES.stream().map(index -> index.name).toList());
+        return pending;
+    }
+
+    private List<String> indexNames(String state) {
+        List<String> names = new ArrayList<>();
+        cluster().query("SELECT RAW name FROM system:indexes WHERE keyspace_id = $1 AND state = $2",
+                        queryOptions().parameters(JsonArray.from(bucketName(), state)))
+                .rowsAs(String.class)
+                .forEach(names::add);
+        return names;
+    }
+
+    private List<JsonObject> query(String statement) {
+        return cluster().query(statement).rowsAsObject();
+    }
+
+    private static boolean contains(JsonObject node, Set<String> operators) {
+        for (String name : node.getNames()) {
+            Object value = node.get(name);
+            if ("#operator".equals(name) && operators.contains(value)) {
+                return true;
+            }
+            if (value instanceof JsonObject child && contains(child, operators)) {
+                return true;
+            }
+            if (value instanceof JsonArray array) {
+                for (Object element : array) {
+                    if (element instanceof JsonObject child && contains(child, operators)) {
+                        return true;
+                    }
+                }
+            }
+        }
+        return false;
+    }
+
+    private static String typeFilter(Class<?> type) {
+        return "`_class` = \"" + type.getName() + "\"";
+    }
+
+    private String bucket() {
+        return "`" + bucketName() + "`";
+    }
+
+    private String bucketName() {
+        return couchbaseTemplate.getBucketName();
+    }
+
+    private Cluster cluster() {
+        return couchbaseTemplate.getCouchbaseClientFactory().getCluster();
+    }
+
+    static final class IndexDefinition {
+        final String name;
+        final String keys;
+        final String where;
+
+        IndexDefinition(String name, String keys, String where) {
+            this.name = name;
+            this.keys = keys;
+            this.where = where;
+        }
+    }
+}
@@ -0,0 +1,44 @@
+package com.ecommerce.config;
+
+import com.ecommerce.repository.UserRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Component;
+
+/**
+ * Gives users created before username/email reservation documents existed their reservations,
+ * once, after the query indexes are in place. Until it has completed, lookups that miss a
+ * reservation fall back to a query.
+ */
+@Component
+@Order(Ordered.HIGHEST_PRECEDENCE + 1)
+public class UserReservationBackfill implements ApplicationRunner {
+    private static final Logger logger = LoggerFactory.getLogger(UserReservationBackfill.class);
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Value("${user.reservation.backfill-on-startup:true}")
+    private boolean enabled;
+
+    @Override
+    public void run(ApplicationArguments args) {
+        if (!enabled) {
+            return;
+        }
+        try {
+            long checked = userRepository.backfillReservations();
+            if (checked >= 0) {
+                logger.info("Backfilled username and email reservations of {} users", checked);
+            }
+        } catch (RuntimeException e) {
+            logger.warn("Could not backfill user reservations, lookups keep the query fallback: {}", e.getMessage());
+        }
+    }
+}
@@ -4,16 +4,26 @@ import com.ecommerce.dto.LoginRequest;
 import com.ecommerce.dto.SignupRequest;
 import com.ecommerce.dto.JwtResponse;
 import com.ecommerce.dto.MessageResponse;
+import com.ecommerce.dto.TokenRefreshRequest;
 import com.ecommerce.model.User;
 import com.ecommerce.repository.UserRepository;
+import com.ecommerce.security.CachedUserDetailsService;
+import com.ecommerce.security.InvalidRefreshTokenException;
 import com.ecommerce.security.JwtUtils;
+import com.ecommerce.security.JwtVerifier;
+import com.ecommerce.security.RefreshTokenService;
+import com.ecommerce.security.TokenRevocationList;
 import com.ecommerce.security.UserPrincipal;
+import com.ecommerce.security.VerifiedToken;
+import io.jsonwebtoken.JwtException;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.authentication.AuthenticationManager;
 import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
 import org.springframework.security.core.Authentication;
 import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.security.core.userdetails.UsernameNotFoundException;
 import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.web.bind.annotation.*;
 
@@ -21,6 +31,7 @@ import jakarta.validation.Valid;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Set;
+import java.util.UUID;
 import java.util.stream.Collectors;
 
 @CrossOrigin(origins = "*", maxAge = 3600)
@@ -40,6 +51,18 @@ public class AuthController {
     @Autowired
     JwtUtils jwtUtils;
 
+    @Autowired
+    JwtVerifier jwtVerifier;
+
+    @Autowired
+    RefreshTokenService refreshTokenService;
+
+    @Autowired
+    TokenRevocationList revocationList;
+
+    @Autowired
+    CachedUserDetailsService userDetailsService;
+
     @PostMapping("/signin")
     public ResponseEntity<?> authenticateUser(@Valid @RequestBody LoginRequest loginRequest) {
 
@@ -50,33 +73,96 @@ public class AuthController {
         String jwt = jwtUtils.generateJwtToken(authentication);
         
         UserPrincipal userDetails = (UserPrincipal) authentication.getPrincipal();
+        return ResponseEntity.ok(jwtResponse(jwt, refreshTokenService.issue(userDetails), userDetails));
+    }
+
+    @PostMapping("/refresh")
+    public ResponseEntity<?> refreshToken(@Valid @RequestBody TokenRefreshRequest refreshRequest) {
+        RefreshTokenService.Rotation rotation = refreshTokenService.rotate(refreshRequest.getRefreshToken());
+
+        UserPrincipal userDetails;
+        try {
+            userDetails = (UserPrincipal) userDetailsService.loadUserByUsername(rotation.getUsername());
+        } catch (UsernameNotFoundException e) {
+            refreshTokenService.revoke(rotation.getRefreshToken());
+            throw new InvalidRefreshTokenException("User no longer exists");
+        }
+
+        if (!userDetails.isEnabled()) {
+            refreshTokenService.revoke(rotation.getRefreshToken());
+            throw new InvalidRefreshTokenException("User account is disabled");
+        }
+
+        String jwt = jwtUtils.generateJwtToken(userDetails);
+        return ResponseEntity.ok(jwtResponse(jwt, rotation.getRefreshToken(), userDetails));
+    }
+
+    @PostMapping("/signout")
+    public ResponseEntity<?> signOut(@RequestHeader(value = HttpHeaders.AUTHORIZATION, required = false) String authorization,
+                                     @RequestBody(required = false) TokenRefreshRequest refreshRequest) {
+        if (refreshRequest != null && refreshRequest.getRefreshToken() != null) {
+            refreshTokenService.revoke(refreshRequest.getRefreshToken());
+        }
+
+        if (authorization != null && authorization.startsWith("Bearer ")) {
+            try {
+                VerifiedToken token = jwtVerifier.verify(authorization.substring(7));
+                if (token.getTokenId() != null) {
+                    revocationList.revoke(token.getTokenId(), token.getExpiresAt());
+                }
+            } catch (JwtException e) {
+                // Nothing to revoke for a token that no longer verifies
+            }
+        }
+
+        return ResponseEntity.ok(new MessageResponse("Signed out successfully!"));
+    }
+
+    private JwtResponse jwtResponse(String jwt, String refreshToken, UserPrincipal userDetails) {
         List<String> roles = userDetails.getAuthorities().stream()
                 .map(item -> item.getAuthority())
                 .collect(Collectors.toList());
 
-        return ResponseEntity.ok(new JwtResponse(jwt,
+        return new JwtResponse(jwt,
+                refreshToken,
                 userDetails.getId(),
                 userDetails.getUsername(),
                 userDetails.getEmail(),
-                roles));
+                roles);
     }
 
     @PostMapping("/signup")
     public ResponseEntity<?> registerUser(@Valid @RequestBody SignupRequest signUpRequest) {
-        if (userRepository.existsByUsername(signUpRequest.getUsername())) {
+        // Reservations are atomic KV inserts, so two concurrent signups cannot both claim a name
+        String userId = UUID.randomUUID().toString();
+        if (!userRepository.reserveUsername(signUpRequest.getUsername(), userId)) {
             return ResponseEntity.badRequest()
                     .body(new MessageResponse("Error: Username is already taken!"));
         }
 
-        if (userRepository.existsByEmail(signUpRequest.getEmail())) {
+        if (!userRepository.reserveEmail(signUpRequest.getEmail(), userId)) {
+            userRepository.releaseUsername(signUpRequest.getUsername(), userId);
             return ResponseEntity.badRequest()
                     .body(new MessageResponse("Error: Email is already in use!"));
         }
 
+        try {
+            registerUser(signUpRequest, userId);
+        } catch (RuntimeException e) {
+            userRepository.releaseUsername(signUpRequest.getUsername(), userId);
+            userRepository.releaseEmail(signUpRequest.getEmail(), userId);
+            throw e;
+        }
+
+        return ResponseEntity.ok(new MessageResponse("User registered successfully!"));
+    }
+
+    private void registerUser(SignupRequest signUpRequest, String userId) {
         // Create new user's account
         User user = new User(signUpRequest.getUsername(),
                 signUpRequest.getEmail(),
                 encoder.encode(signUpRequest.getPassword()));
+        user.setId(userId);
 
         Set<String> strRoles = signUpRequest.getRole();
         Set<String> roles = new HashSet<>();
@@ -102,7 +188,5 @@ public class AuthController {
         user.setFirstName(signUpRequest.getFirstName());
         user.setLastName(signUpRequest.getLastName());
         userRepository.save(user);
-
-        return ResponseEntity.ok(new MessageResponse("User registered successfully!"));
     }
 }
\ No newline at end of file
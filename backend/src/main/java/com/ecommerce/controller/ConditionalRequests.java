@@ -0,0 +1,58 @@
+package com.ecommerce.controller;
+
+import org.springframework.util.StringUtils;
+
+/**
+ * Evaluates {@code If-None-Match} before a resource is loaded, when its ETag is known up front,
+ * and turns {@code If-Match} into the document version a write must still find.
+ */
+final class ConditionalRequests {
+
+    private ConditionalRequests() {
+    }
+
+    static boolean isNotModified(String ifNoneMatch, String etag) {
+        if (!StringUtils.hasText(ifNoneMatch)) {
+            return false;
+        }
+        for (String candidate : ifNoneMatch.split(",")) {
+            String tag = candidate.trim();
+            if (tag.startsWith("W/")) {
+                tag = tag.substring(2);
+            }
+            if (tag.equals("*") || tag.equals(etag)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * The version an {@code If-Match} header requires: 0 when there is no header or it is
+     * {@code *}, -1 when it names no single version this server could have issued. Both the
+     * plain and the gzip ETag of a version match it.
+     */
+    static long requiredVersion(String ifMatch) {
+        if (!StringUtils.hasText(ifMatch)) {
+            return 0;
+        }
+        String tag = ifMatch.trim();
+        if (tag.equals("*")) {
+            return 0;
+        }
+        if (tag.length() < 3 || !tag.startsWith("\"") || !tag.endsWith("\"")) {
+            return -1;
+        }
+
+        String version = tag.substring(1, tag.length() - 1);
+        if (version.endsWith("-gzip")) {
+            version = version.substring(0, version.length() - "-gzip".length());
+        }
+        try {
+            long cas = Long.parseUnsignedLong(version, 16);
+            return cas != 0 && cas != -1 ? cas : -1;
+        } catch (NumberFormatException e) {
+            return -1;
+        }
+    }
+}
@@ -0,0 +1,63 @@
+package com.ecommerce.controller;
+
+import com.ecommerce.dto.MessageResponse;
+import com.ecommerce.repository.InvalidPageRequestException;
+import com.ecommerce.security.InvalidRefreshTokenException;
+import com.ecommerce.security.PasswordHashingUnavailableException;
+import com.ecommerce.service.CatalogIndexUnavailableException;
+import com.ecommerce.service.ImportJobStateException;
+import com.ecommerce.service.InsufficientStockException;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.ExceptionHandler;
+import org.springframework.web.bind.annotation.RestControllerAdvice;
+
+@RestControllerAdvice
+public class GlobalExceptionHandler {
+
+    @ExceptionHandler(PasswordHashingUnavailableException.class)
+    public ResponseEntity<MessageResponse> handlePasswordHashingUnavailable(PasswordHashingUnavailableException e) {
+        return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+                .header(HttpHeaders.RETRY_AFTER, "1")
+                .body(new MessageResponse("Error: " + e.getMessage()));
+    }
+
+    @ExceptionHandler(InvalidRefreshTokenException.class)
+    public ResponseEntity<MessageResponse> handleInvalidRefreshToken(InvalidRefreshTokenException e) {
+        return ResponseEntity.status(HttpStatus.UNAUTHORIZED)
+                .body(new MessageResponse("Error: " + e.getMessage()));
+    }
+
+    @ExceptionHandler(InvalidPageRequestException.class)
+    public ResponseEntity<MessageResponse> handleInvalidPageRequest(InvalidPageRequestException e) {
+        return ResponseEntity.badRequest()
+                .body(new MessageResponse("Error: " + e.getMessage()));
+    }
+
+    @ExceptionHandler(CatalogIndexUnavailableException.class)
+    public ResponseEntity<MessageResponse> handleCatalogIndexUnavailable(CatalogIndexUnavailableException e) {
+        return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+                .header(HttpHeaders.RETRY_AFTER, "5")
+                .body(new MessageResponse("Error: " + e.getMessage()));
+    }
+
+    @ExceptionHandler(ImportJobStateException.class)
+    public ResponseEntity<MessageResponse> handleImportJobState(ImportJobStateException e) {
+        return ResponseEntity.status(HttpStatus.CONFLICT)
+                .body(new MessageResponse("Error: " + e.getMessage()));
+    }
+
+    @ExceptionHandler(InsufficientStockException.class)
+    public ResponseEntity<MessageResponse> handleInsufficientStock(InsufficientStockException e) {
+        return ResponseEntity.status(HttpStatus.CONFLICT)
+                .body(new MessageResponse("Error: " + e.getMessage()));
+    }
+
+    @ExceptionHandler(OptimisticLockingFailureException.class)
+    public ResponseEntity<MessageResponse> handleOptimisticLockingFailure(OptimisticLockingFailureException e) {
+        return ResponseEntity.status(HttpStatus.CONFLICT)
+                .body(new MessageResponse("Error: " + e.getMessage()));
+    }
+}
@@ -0,0 +1,83 @@
+package com.ecommerce.controller;
+
+import com.ecommerce.dto.InventoryLevel;
+import com.ecommerce.dto.InventoryRequest;
+import com.ecommerce.dto.StockQuantityRequest;
+import com.ecommerce.security.UserPrincipal;
+import com.ecommerce.service.InventoryService;
+import com.ecommerce.service.StockReservation;
+import jakarta.validation.Valid;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.security.core.annotation.AuthenticationPrincipal;
+import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.support.ServletUriComponentsBuilder;
+
+/**
+ * Stock levels and reservations. A reservation holds stock until it is confirmed, released or
+ * expires.
+ */
+@CrossOrigin(origins = "*", maxAge = 3600)
+@RestController
+@RequestMapping("/api/inventory")
+public class InventoryController {
+
+    @Autowired
+    private InventoryService inventoryService;
+
+    @GetMapping("/{productId}")
+    public ResponseEntity<InventoryLevel> getInventory(@PathVariable String productId) {
+        return inventoryService.getLevel(productId)
+                .map(ResponseEntity::ok)
+                .orElse(ResponseEntity.notFound().build());
+    }
+
+    @PutMapping("/{productId}")
+    @PreAuthorize("hasRole('ADMIN')")
+    public ResponseEntity<InventoryLevel> setInventory(@PathVariable String productId,
+                                                       @Valid @RequestBody InventoryRequest request) {
+        return inventoryService.reset(productId, request.getQuantity(), request.getStripes())
+                .map(ResponseEntity::ok)
+                .orElse(ResponseEntity.notFound().build());
+    }
+
+    @PostMapping("/{productId}/restock")
+    @PreAuthorize("hasRole('ADMIN')")
+    public ResponseEntity<InventoryLevel> restock(@PathVariable String productId,
+                                                  @Valid @RequestBody StockQuantityRequest request) {
+        return inventoryService.restock(productId, request.getQuantity())
+                .map(ResponseEntity::ok)
+                .orElse(ResponseEntity.notFound().build());
+    }
+
+    @PostMapping("/{productId}/reservations")
+    public ResponseEntity<StockReservation> reserve(@PathVariable String productId,
+                                                    @Valid @RequestBody StockQuantityRequest request,
+                                                    @AuthenticationPrincipal UserPrincipal principal) {
+        return inventoryService.reserve(productId, principal.getId(), request.getQuantity())
+                .map(reservation -> ResponseEntity.created(ServletUriComponentsBuilder.fromCurrentContextPath()
+                                .path("/api/inventory/reservations/{id}").buildAndExpand(reservation.getId()).toUri())
+                        .body(reservation))
+                .orElse(ResponseEntity.notFound().build());
+    }
+
+    @DeleteMapping("/reservations/{id}")
+    public ResponseEntity<Void> release(@PathVariable String id, @AuthenticationPrincipal UserPrincipal principal) {
+        return inventoryService.release(id, principal.getId(), isAdmin(principal))
+                ? ResponseEntity.noContent().build()
+                : ResponseEntity.notFound().build();
+    }
+
+    @PostMapping("/reservations/{id}/confirm")
+    public ResponseEntity<Void> confirm(@PathVariable String id, @AuthenticationPrincipal UserPrincipal principal) {
+        return inventoryService.confirm(id, principal.getId(), isAdmin(principal))
+                ? ResponseEntity.noContent().build()
+                : ResponseEntity.notFound().build();
+    }
+
+    private static boolean isAdmin(UserPrincipal principal) {
+        return principal.getAuthorities().stream()
+                .anyMatch(authority -> "ROLE_ADMIN".equals(authority.getAuthority()));
+    }
+}
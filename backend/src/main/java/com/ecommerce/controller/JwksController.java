@@ -0,0 +1,69 @@
+package com.ecommerce.controller;
+
+import com.ecommerce.security.JwtKeyRing;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.CacheControl;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+@RestController
+@RequestMapping("/.well-known")
+public class JwksController {
+
+    @Autowired
+    private JwtKeyRing keyRing;
+
+    @Value("${jwt.issuer}")
+    private String issuer;
+
+    @Value("${jwt.jwks.max-age:5m}")
+    private Duration maxAge;
+
+    @Value("${jwt.jwks.stale-while-revalidate:1h}")
+    private Duration staleWhileRevalidate;
+
+    @GetMapping("/jwks.json")
+    public ResponseEntity<Map<String, Object>> getJwks() {
+        return ResponseEntity.ok()
+                .cacheControl(cacheControl())
+                .body(keyRing.getJwks());
+    }
+
+    /**
+     * Only served when tokens are signed with published keys; with the shared HMAC secret there
+     * is nothing a relying party could verify against.
+     */
+    @GetMapping("/openid-configuration")
+    public ResponseEntity<Map<String, Object>> getOpenIdConfiguration() {
+        List<String> algorithms = keyRing.getPublishedAlgorithms();
+        if (!keyRing.isAsymmetric() || algorithms.isEmpty()) {
+            return ResponseEntity.notFound().build();
+        }
+
+        Map<String, Object> configuration = new LinkedHashMap<>();
+        configuration.put("issuer", issuer);
+        configuration.put("jwks_uri", issuer + "/.well-known/jwks.json");
+        configuration.put("id_token_signing_alg_values_supported", algorithms);
+        configuration.put("subject_types_supported", List.of("public"));
+        configuration.put("response_types_supported", List.of("token"));
+
+        return ResponseEntity.ok()
+                .cacheControl(cacheControl())
+                .body(configuration);
+    }
+
+    private CacheControl cacheControl() {
+        return CacheControl.maxAge(maxAge)
+                .cachePublic()
+                .staleWhileRevalidate(staleWhileRevalidate)
+                .staleIfError(staleWhileRevalidate);
+    }
+}
@@ -1,20 +1,53 @@
 package com.ecommerce.controller;
 
+import com.ecommerce.config.HttpCacheProperties;
+import com.ecommerce.dto.CursorPage;
+import com.ecommerce.dto.FacetedPage;
+import com.ecommerce.dto.ProductPatch;
+import com.ecommerce.dto.ProductQuery;
+import com.ecommerce.dto.ProductSummary;
 import com.ecommerce.model.Product;
+import com.ecommerce.repository.ProductFields;
+import com.ecommerce.repository.ProductFilter;
 import com.ecommerce.repository.ProductRepository;
+import com.ecommerce.service.CatalogSnapshot;
+import com.ecommerce.service.CatalogSnapshotService;
+import com.ecommerce.service.InventoryService;
+import com.ecommerce.service.ProductCache;
+import com.ecommerce.service.ProductChangePublisher;
+import com.ecommerce.service.ProductExportService;
+import com.ecommerce.service.ProductFacetIndex;
+import com.ecommerce.service.ProductFeedFormat;
+import com.ecommerce.service.ProductSearchIndex;
+import com.ecommerce.service.SerializedResponse;
+import com.ecommerce.service.SerializedResponseCache;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.dao.OptimisticLockingFailureException;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
-import org.springframework.data.domain.Sort;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.CacheControl;
+import org.springframework.http.ContentDisposition;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.util.StringUtils;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.filter.ShallowEtagHeaderFilter;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
+import jakarta.servlet.http.HttpServletRequest;
 import jakarta.validation.Valid;
 import java.math.BigDecimal;
+import java.time.LocalDateTime;
 import java.util.List;
 import java.util.Optional;
+import java.util.Set;
+import java.util.function.Supplier;
+import java.util.zip.GZIPOutputStream;
 
 @CrossOrigin(origins = "*", maxAge = 3600)
 @RestController
@@ -24,125 +57,386 @@ public class ProductController {
     @Autowired
     private ProductRepository productRepository;
 
-    @GetMapping
-    public ResponseEntity<Page<Product>> getAllProducts(
-            @RequestParam(defaultValue = "0") int page,
+    @Autowired
+    private ProductCache productCache;
+
+    @Autowired
+    private CatalogSnapshotService catalogSnapshotService;
+
+    @Autowired
+    private ProductSearchIndex productSearchIndex;
+
+    @Autowired
+    private ProductFacetIndex productFacetIndex;
+
+    @Autowired
+    private HttpCacheProperties httpCacheProperties;
+
+    @Autowired
+    private SerializedResponseCache serializedResponseCache;
+
+    @Autowired
+    private ProductExportService productExportService;
+
+    @Autowired
+    private ProductChangePublisher productChangePublisher;
+
+    @Autowired
+    private InventoryService inventoryService;
+
+    @GetMapping("/scroll")
+    public ResponseEntity<CursorPage<?>> scrollProducts(
+            @RequestParam(required = false) String cursor,
             @RequestParam(defaultValue = "12") int size,
             @RequestParam(defaultValue = "createdAt") String sortBy,
-            @RequestParam(defaultValue = "desc") String sortDir) {
-        
-        Sort sort = sortDir.equalsIgnoreCase("desc") ? 
-            Sort.by(sortBy).descending() : 
-            Sort.by(sortBy).ascending();
-        
-        Pageable pageable = PageRequest.of(page, size, sort);
-        Page<Product> products = productRepository.findAllActive(pageable);
-        return ResponseEntity.ok(products);
+            @RequestParam(defaultValue = "desc") String sortDir,
+            @RequestParam(defaultValue = "full") String fields) {
+
+        ProductFields shape = ProductFields.parse(fields);
+        CursorPage<Product> products =
+                productRepository.scroll(ProductFilter.active(), sortBy, sortDir, cursor, size, shape);
+        return ResponseEntity.ok()
+                .cacheControl(httpCacheProperties.cacheControl("product-list"))
+                .body(shape(products, shape));
+    }
+
+    @GetMapping("/query")
+    public ResponseEntity<FacetedPage<?>> queryProducts(ProductQuery query) {
+        FacetedPage<?> products = productFacetIndex.query(query);
+        return ResponseEntity.ok()
+                .cacheControl(httpCacheProperties.cacheControl("product-list"))
+                .body(products);
     }
 
     @GetMapping("/{id}")
-    public ResponseEntity<Product> getProductById(@PathVariable String id) {
-        Optional<Product> product = productRepository.findById(id);
-        return product.map(ResponseEntity::ok)
-                .orElse(ResponseEntity.notFound().build());
+    public ResponseEntity<byte[]> getProductById(
+            @PathVariable String id,
+            @RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch,
+            @RequestHeader(value = HttpHeaders.ACCEPT_ENCODING, required = false) String acceptEncoding) {
+        boolean gzip = useGzip(acceptEncoding);
+
+        // Revalidation needs only the document CAS, not the document
+        if (ifNoneMatch != null) {
+            Long version = productCache.findVersion(id);
+            if (version != null && ConditionalRequests.isNotModified(ifNoneMatch, etag(version, gzip))) {
+                return notModified(etag(version, gzip), "product");
+            }
+        }
+
+        Optional<Product> product = productCache.findById(id);
+        if (product.isEmpty()) {
+            return ResponseEntity.notFound().build();
+        }
+
+        long version = product.get().getVersion();
+        return serializedResponse(SerializedResponseCache.productResource(id), Long.toHexString(version),
+                product::get, etag(version, gzip), gzip, "product");
     }
 
     @GetMapping("/search")
-    public ResponseEntity<Page<Product>> searchProducts(
+    public ResponseEntity<Page<?>> searchProducts(
             @RequestParam String name,
             @RequestParam(defaultValue = "0") int page,
-            @RequestParam(defaultValue = "12") int size) {
+            @RequestParam(defaultValue = "12") int size,
+            @RequestParam(defaultValue = "full") String fields) {
         
+        ProductFields shape = ProductFields.parse(fields);
         Pageable pageable = PageRequest.of(page, size);
-        Page<Product> products = productRepository.searchByName(name, pageable);
-        return ResponseEntity.ok(products);
+        Page<Product> products = productSearchIndex.search(name, pageable);
+        return ResponseEntity.ok()
+                .cacheControl(httpCacheProperties.cacheControl("product-list"))
+                .body(shape(products, shape));
     }
 
-    @GetMapping("/category/{category}")
-    public ResponseEntity<Page<Product>> getProductsByCategory(
+    @GetMapping("/category/{category}/scroll")
+    public ResponseEntity<CursorPage<?>> scrollProductsByCategory(
             @PathVariable String category,
-            @RequestParam(defaultValue = "0") int page,
-            @RequestParam(defaultValue = "12") int size) {
-        
-        Pageable pageable = PageRequest.of(page, size);
-        Page<Product> products = productRepository.findByCategory(category, pageable);
-        return ResponseEntity.ok(products);
+            @RequestParam(required = false) String cursor,
+            @RequestParam(defaultValue = "12") int size,
+            @RequestParam(defaultValue = "createdAt") String sortBy,
+            @RequestParam(defaultValue = "desc") String sortDir,
+            @RequestParam(defaultValue = "full") String fields) {
+
+        ProductFields shape = ProductFields.parse(fields);
+        CursorPage<Product> products =
+                productRepository.scroll(ProductFilter.category(category), sortBy, sortDir, cursor, size, shape);
+        return ResponseEntity.ok()
+                .cacheControl(httpCacheProperties.cacheControl("product-list"))
+                .body(shape(products, shape));
     }
 
     @GetMapping("/featured")
-    public ResponseEntity<List<Product>> getFeaturedProducts() {
-        List<Product> products = productRepository.findFeaturedProducts();
-        return ResponseEntity.ok(products);
+    public ResponseEntity<byte[]> getFeaturedProducts(
+            @RequestParam(defaultValue = "full") String fields,
+            @RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch,
+            @RequestHeader(value = HttpHeaders.ACCEPT_ENCODING, required = false) String acceptEncoding) {
+        ProductFields shape = ProductFields.parse(fields);
+        CatalogSnapshot snapshot = catalogSnapshotService.getSnapshot();
+        Supplier<List<?>> products = shape == ProductFields.SUMMARY
+                ? snapshot::getFeaturedSummaries
+                : snapshot::getFeatured;
+        return catalogResponse("catalog:featured:" + shape, snapshot, products, ifNoneMatch, acceptEncoding);
     }
 
-    @GetMapping("/price-range")
-    public ResponseEntity<Page<Product>> getProductsByPriceRange(
+    @GetMapping("/price-range/scroll")
+    public ResponseEntity<CursorPage<?>> scrollProductsByPriceRange(
             @RequestParam BigDecimal minPrice,
             @RequestParam BigDecimal maxPrice,
-            @RequestParam(defaultValue = "0") int page,
-            @RequestParam(defaultValue = "12") int size) {
-        
-        Pageable pageable = PageRequest.of(page, size);
-        Page<Product> products = productRepository.findByPriceRange(minPrice, maxPrice, pageable);
-        return ResponseEntity.ok(products);
+            @RequestParam(required = false) String cursor,
+            @RequestParam(defaultValue = "12") int size,
+            @RequestParam(defaultValue = "price") String sortBy,
+            @RequestParam(defaultValue = "asc") String sortDir,
+            @RequestParam(defaultValue = "full") String fields) {
+
+        ProductFields shape = ProductFields.parse(fields);
+        CursorPage<Product> products = productRepository.scroll(ProductFilter.priceRange(minPrice, maxPrice),
+                sortBy, sortDir, cursor, size, shape);
+        return ResponseEntity.ok()
+                .cacheControl(httpCacheProperties.cacheControl("product-list"))
+                .body(shape(products, shape));
     }
 
     @GetMapping("/categories")
-    public ResponseEntity<List<String>> getAllCategories() {
-        List<String> categories = productRepository.findAllCategories();
-        return ResponseEntity.ok(categories);
+    public ResponseEntity<byte[]> getAllCategories(
+            @RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch,
+            @RequestHeader(value = HttpHeaders.ACCEPT_ENCODING, required = false) String acceptEncoding) {
+        CatalogSnapshot snapshot = catalogSnapshotService.getSnapshot();
+        return catalogResponse("catalog:categories", snapshot, snapshot::getCategories, ifNoneMatch,
+                acceptEncoding);
     }
 
     @GetMapping("/brands")
-    public ResponseEntity<List<String>> getAllBrands() {
-        List<String> brands = productRepository.findAllBrands();
-        return ResponseEntity.ok(brands);
+    public ResponseEntity<byte[]> getAllBrands(
+            @RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch,
+            @RequestHeader(value = HttpHeaders.ACCEPT_ENCODING, required = false) String acceptEncoding) {
+        CatalogSnapshot snapshot = catalogSnapshotService.getSnapshot();
+        return catalogResponse("catalog:brands", snapshot, snapshot::getBrands, ifNoneMatch, acceptEncoding);
+    }
+
+    /**
+     * Streams the active catalog, or with {@code since} every product updated after it. The
+     * {@code X-Export-Watermark} header is the {@code since} for the next incremental export.
+     */
+    @GetMapping("/export")
+    @PreAuthorize("hasRole('ADMIN')")
+    public ResponseEntity<StreamingResponseBody> exportProducts(
+            @RequestParam(defaultValue = "ndjson") String format,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime since,
+            @RequestHeader(value = HttpHeaders.ACCEPT_ENCODING, required = false) String acceptEncoding,
+            HttpServletRequest request) {
+        ProductFeedFormat feedFormat = ProductFeedFormat.parse(format);
+        boolean gzip = acceptsGzip(acceptEncoding);
+        LocalDateTime watermark = LocalDateTime.now();
+
+        // The ETag filter would otherwise buffer the whole export to hash it
+        ShallowEtagHeaderFilter.disableContentCaching(request);
+
+        StreamingResponseBody body = out -> {
+            if (gzip) {
+                GZIPOutputStream compressed = new GZIPOutputStream(out, 64 * 1024);
+                productExportService.export(feedFormat, since, compressed);
+                compressed.finish();
+            } else {
+                productExportService.export(feedFormat, since, out);
+            }
+        };
+
+        ResponseEntity.BodyBuilder builder = ResponseEntity.ok()
+                .contentType(MediaType.parseMediaType(feedFormat.getMediaType() + ";charset=UTF-8"))
+                .header(HttpHeaders.CONTENT_DISPOSITION, ContentDisposition.attachment()
+                        .filename("products." + feedFormat.getExtension()).build().toString())
+                .header("X-Export-Watermark", watermark.toString())
+                .header("X-Accel-Buffering", "no")
+                .cacheControl(CacheControl.noStore())
+                .varyBy(HttpHeaders.ACCEPT_ENCODING);
+        if (gzip) {
+            builder.header(HttpHeaders.CONTENT_ENCODING, "gzip");
+        }
+        return builder.body(body);
     }
 
     @PostMapping
     @PreAuthorize("hasRole('ADMIN')")
     public ResponseEntity<Product> createProduct(@Valid @RequestBody Product product) {
         Product savedProduct = productRepository.save(product);
+        if (savedProduct.getStockQuantity() != null) {
+            inventoryService.stockQuantityWritten(savedProduct.getId(), savedProduct.getStockQuantity());
+        }
         return ResponseEntity.ok(savedProduct);
     }
 
+    /**
+     * Replaces the product's fields apart from its stock: a full update resends the stock quantity
+     * it read, which open reservations may have lowered since. Stock is set through the inventory
+     * endpoint or a PATCH of {@code stockQuantity}.
+     */
     @PutMapping("/{id}")
     @PreAuthorize("hasRole('ADMIN')")
-    public ResponseEntity<Product> updateProduct(@PathVariable String id, @Valid @RequestBody Product productDetails) {
+    public ResponseEntity<Product> updateProduct(@PathVariable String id, @Valid @RequestBody Product productDetails,
+                                                 @RequestHeader(value = HttpHeaders.IF_MATCH, required = false) String ifMatch) {
+        long requiredVersion = ConditionalRequests.requiredVersion(ifMatch);
+        if (requiredVersion < 0) {
+            return ResponseEntity.status(HttpStatus.PRECONDITION_FAILED).build();
+        }
+
         Optional<Product> optionalProduct = productRepository.findById(id);
         
         if (optionalProduct.isPresent()) {
             Product product = optionalProduct.get();
+            if (requiredVersion != 0 && product.getVersion() != requiredVersion) {
+                return ResponseEntity.status(HttpStatus.PRECONDITION_FAILED).build();
+            }
             product.setName(productDetails.getName());
             product.setDescription(productDetails.getDescription());
             product.setPrice(productDetails.getPrice());
             product.setCategory(productDetails.getCategory());
             product.setBrand(productDetails.getBrand());
-            product.setStockQuantity(productDetails.getStockQuantity());
             product.setImageUrls(productDetails.getImageUrls());
             product.setTags(productDetails.getTags());
             product.setActive(productDetails.isActive());
             product.setFeatured(productDetails.isFeatured());
+            product.setUpdatedAt(LocalDateTime.now());
             
+            // Saved with the CAS it was read with, so a concurrent change fails instead of being lost
             Product updatedProduct = productRepository.save(product);
-            return ResponseEntity.ok(updatedProduct);
+            return ResponseEntity.ok().eTag(etag(updatedProduct.getVersion(), false)).body(updatedProduct);
         } else {
-            return ResponseEntity.notFound().build();
+            return missingProduct(ifMatch);
+        }
+    }
+
+    /**
+     * Writes only the supplied fields, without reading the product first. With {@code If-Match}
+     * the write applies only to that version of the product.
+     */
+    @PatchMapping("/{id}")
+    @PreAuthorize("hasRole('ADMIN')")
+    public ResponseEntity<Void> patchProduct(@PathVariable String id, @Valid @RequestBody ProductPatch patch,
+                                             @RequestHeader(value = HttpHeaders.IF_MATCH, required = false) String ifMatch) {
+        ResponseEntity<Void> response = applyPatch(id, patch.toProduct(), patch.fieldNames(), ifMatch,
+                HttpStatus.NO_CONTENT);
+        // Stock is reserved from the inventory counters, which the stock quantity only mirrors
+        if (patch.getStockQuantity() != null && response.getStatusCode().is2xxSuccessful()) {
+            inventoryService.reset(id, patch.getStockQuantity(), null);
         }
+        return response;
     }
 
     @DeleteMapping("/{id}")
     @PreAuthorize("hasRole('ADMIN')")
-    public ResponseEntity<?> deleteProduct(@PathVariable String id) {
-        Optional<Product> optionalProduct = productRepository.findById(id);
-        
-        if (optionalProduct.isPresent()) {
-            Product product = optionalProduct.get();
-            product.setActive(false); // Soft delete
-            productRepository.save(product);
-            return ResponseEntity.ok().build();
-        } else {
-            return ResponseEntity.notFound().build();
+    public ResponseEntity<Void> deleteProduct(@PathVariable String id,
+                                              @RequestHeader(value = HttpHeaders.IF_MATCH, required = false) String ifMatch) {
+        Product deleted = new Product();
+        deleted.setActive(false); // Soft delete
+        return applyPatch(id, deleted, Set.of("active"), ifMatch, HttpStatus.OK);
+    }
+
+    private ResponseEntity<Void> applyPatch(String id, Product values, Set<String> fields, String ifMatch,
+                                            HttpStatus status) {
+        long requiredVersion = ConditionalRequests.requiredVersion(ifMatch);
+        if (requiredVersion < 0) {
+            return ResponseEntity.status(HttpStatus.PRECONDITION_FAILED).build();
+        }
+
+        Long version;
+        try {
+            version = productRepository.patch(id, values, fields, requiredVersion);
+        } catch (OptimisticLockingFailureException e) {
+            if (requiredVersion == 0) {
+                throw e;
+            }
+            return ResponseEntity.status(HttpStatus.PRECONDITION_FAILED).build();
+        }
+        if (version == null) {
+            return missingProduct(ifMatch);
+        }
+
+        // Sub-document writes bypass the repository's save events
+        productChangePublisher.productChanged(id);
+        return ResponseEntity.status(status).eTag(etag(version, false)).build();
+    }
+
+    /**
+     * Any {@code If-Match}, {@code *} included, requires a current representation, so a write to
+     * a missing product fails the precondition rather than reporting it missing.
+     */
+    private static <T> ResponseEntity<T> missingProduct(String ifMatch) {
+        if (StringUtils.hasText(ifMatch)) {
+            return ResponseEntity.status(HttpStatus.PRECONDITION_FAILED).build();
         }
+        return ResponseEntity.notFound().build();
+    }
+
+    private ResponseEntity<byte[]> catalogResponse(String resource, CatalogSnapshot snapshot, Supplier<?> body,
+                                                   String ifNoneMatch, String acceptEncoding) {
+        boolean gzip = useGzip(acceptEncoding);
+        String etag = gzip ? gzipEtag(snapshot.getEtag()) : snapshot.getEtag();
+        if (ConditionalRequests.isNotModified(ifNoneMatch, etag)) {
+            return notModified(etag, "catalog");
+        }
+        return serializedResponse(resource, snapshot.getEtag(), body, etag, gzip, "catalog");
+    }
+
+    /**
+     * Writes the cached JSON bytes for this resource version, serializing them only on a miss.
+     */
+    private ResponseEntity<byte[]> serializedResponse(String resource, String version, Supplier<?> body,
+                                                      String etag, boolean gzip, String cachePolicy) {
+        SerializedResponse response = serializedResponseCache.get(resource, version, body);
+        ResponseEntity.BodyBuilder builder = ResponseEntity.ok()
+                .contentType(MediaType.APPLICATION_JSON)
+                .eTag(etag)
+                .cacheControl(httpCacheProperties.cacheControl(cachePolicy));
+        if (!serializedResponseCache.isGzipEnabled()) {
+            return builder.body(response.getJson());
+        }
+
+        builder.varyBy(HttpHeaders.ACCEPT_ENCODING);
+        if (gzip) {
+            return builder.header(HttpHeaders.CONTENT_ENCODING, "gzip").body(response.getGzipped());
+        }
+        return builder.body(response.getJson());
+    }
+
+    private boolean useGzip(String acceptEncoding) {
+        return serializedResponseCache.isGzipEnabled() && acceptsGzip(acceptEncoding);
+    }
+
+    private static boolean acceptsGzip(String acceptEncoding) {
+        if (acceptEncoding == null) {
+            return false;
+        }
+        for (String coding : acceptEncoding.split(",")) {
+            String[] parts = coding.trim().split(";");
+            if (parts[0].trim().equalsIgnoreCase("gzip")) {
+                return parts.length == 1 || !parts[1].trim().matches("q=0(\\.0*)?");
+            }
+        }
+        return false;
+    }
+
+    private <T> ResponseEntity<T> notModified(String etag, String cachePolicy) {
+        return ResponseEntity.status(HttpStatus.NOT_MODIFIED)
+                .eTag(etag)
+                .cacheControl(httpCacheProperties.cacheControl(cachePolicy))
+                .build();
+    }
+
+    // The gzip representation has different bytes, so it needs its own strong ETag
+    private static String etag(long version, boolean gzip) {
+        String etag = "\"" + Long.toHexString(version) + "\"";
+        return gzip ? gzipEtag(etag) : etag;
+    }
+
+    private static String gzipEtag(String etag) {
+        return etag.substring(0, etag.length() - 1) + "-gzip\"";
+    }
+
+    static Page<?> shape(Page<Product> products, ProductFields fields) {
+        return fields == ProductFields.SUMMARY ? products.map(ProductSummary::from) : products;
+    }
+
+    private static CursorPage<?> shape(CursorPage<Product> products, ProductFields fields) {
+        return fields == ProductFields.SUMMARY ? products.map(ProductSummary::from) : products;
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,65 @@
+package com.ecommerce.controller;
+
+import com.ecommerce.service.ImportJob;
+import com.ecommerce.service.ProductFeedFormat;
+import com.ecommerce.service.ProductImportService;
+import jakarta.servlet.http.HttpServletRequest;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.support.ServletUriComponentsBuilder;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.zip.GZIPInputStream;
+
+/**
+ * Bulk product import: create a job, then {@code PUT} the feed to its content resource as
+ * {@code application/x-ndjson} or {@code text/csv} (optionally with {@code Content-Encoding: gzip})
+ * and poll the job for progress.
+ */
+@CrossOrigin(origins = "*", maxAge = 3600)
+@RestController
+@RequestMapping("/api/products/imports")
+public class ProductImportController {
+
+    private static final String NDJSON = "application/x-ndjson";
+    private static final String CSV = "text/csv";
+
+    @Autowired
+    private ProductImportService productImportService;
+
+    @PostMapping
+    @PreAuthorize("hasRole('ADMIN')")
+    public ResponseEntity<ImportJob> createImport() {
+        ImportJob job = productImportService.createJob();
+        return ResponseEntity.created(ServletUriComponentsBuilder.fromCurrentRequest()
+                        .path("/{id}").buildAndExpand(job.getId()).toUri())
+                .body(job);
+    }
+
+    @GetMapping("/{id}")
+    @PreAuthorize("hasRole('ADMIN')")
+    public ResponseEntity<?> getImport(@PathVariable String id) {
+        return productImportService.findJob(id)
+                .<ResponseEntity<?>>map(ResponseEntity::ok)
+                .orElse(ResponseEntity.notFound().build());
+    }
+
+    @PutMapping(value = "/{id}/content", consumes = {NDJSON, CSV})
+    @PreAuthorize("hasRole('ADMIN')")
+    public ResponseEntity<ImportJob> uploadImport(@PathVariable String id, HttpServletRequest request)
+            throws IOException {
+        ProductFeedFormat format = ProductFeedFormat.forContentType(request.getContentType());
+        InputStream content = request.getInputStream();
+        if ("gzip".equalsIgnoreCase(request.getHeader(HttpHeaders.CONTENT_ENCODING))) {
+            content = new GZIPInputStream(content, 64 * 1024);
+        }
+
+        return productImportService.importProducts(id, format, content)
+                .map(ResponseEntity::ok)
+                .orElse(ResponseEntity.notFound().build());
+    }
+}
@@ -0,0 +1,94 @@
+package com.ecommerce.controller;
+
+import com.ecommerce.config.HttpCacheProperties;
+import com.ecommerce.dto.CountedPage;
+import com.ecommerce.model.Product;
+import com.ecommerce.repository.ProductFields;
+import com.ecommerce.repository.ProductFilter;
+import com.ecommerce.service.ProductListingService;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import java.math.BigDecimal;
+
+/**
+ * Paged product listings, answered on the request thread. With
+ * {@code catalog.listing.non-blocking} set, {@link ReactiveProductListingController} serves the
+ * same endpoints instead.
+ */
+@CrossOrigin(origins = "*", maxAge = 3600)
+@RestController
+@RequestMapping("/api/products")
+@ConditionalOnProperty(name = "catalog.listing.non-blocking", havingValue = "false", matchIfMissing = true)
+public class ProductListingController {
+
+    @Autowired
+    private ProductListingService productListingService;
+
+    @Autowired
+    private HttpCacheProperties httpCacheProperties;
+
+    @GetMapping
+    public ResponseEntity<Page<?>> getAllProducts(
+            @RequestParam(defaultValue = "0") int page,
+            @RequestParam(defaultValue = "12") int size,
+            @RequestParam(defaultValue = "createdAt") String sortBy,
+            @RequestParam(defaultValue = "desc") String sortDir,
+            @RequestParam(defaultValue = "false") boolean approximateCount,
+            @RequestParam(defaultValue = "full") String fields) {
+
+        ProductFields shape = ProductFields.parse(fields);
+        CountedPage<Product> products = productListingService.findPage(ProductFilter.active(),
+                sortedPage(page, size, sortBy, sortDir), approximateCount, shape);
+        return listResponse(httpCacheProperties, products, shape);
+    }
+
+    @GetMapping("/category/{category}")
+    public ResponseEntity<Page<?>> getProductsByCategory(
+            @PathVariable String category,
+            @RequestParam(defaultValue = "0") int page,
+            @RequestParam(defaultValue = "12") int size,
+            @RequestParam(defaultValue = "false") boolean approximateCount,
+            @RequestParam(defaultValue = "full") String fields) {
+
+        ProductFields shape = ProductFields.parse(fields);
+        CountedPage<Product> products = productListingService.findPage(ProductFilter.category(category),
+                PageRequest.of(page, size), approximateCount, shape);
+        return listResponse(httpCacheProperties, products, shape);
+    }
+
+    @GetMapping("/price-range")
+    public ResponseEntity<Page<?>> getProductsByPriceRange(
+            @RequestParam BigDecimal minPrice,
+            @RequestParam BigDecimal maxPrice,
+            @RequestParam(defaultValue = "0") int page,
+            @RequestParam(defaultValue = "12") int size,
+            @RequestParam(defaultValue = "false") boolean approximateCount,
+            @RequestParam(defaultValue = "full") String fields) {
+
+        ProductFields shape = ProductFields.parse(fields);
+        CountedPage<Product> products = productListingService.findPage(ProductFilter.priceRange(minPrice, maxPrice),
+                PageRequest.of(page, size), approximateCount, shape);
+        return listResponse(httpCacheProperties, products, shape);
+    }
+
+    static Pageable sortedPage(int page, int size, String sortBy, String sortDir) {
+        Sort sort = sortDir.equalsIgnoreCase("desc") ?
+            Sort.by(sortBy).descending() :
+            Sort.by(sortBy).ascending();
+        return PageRequest.of(page, size, sort);
+    }
+
+    static ResponseEntity<Page<?>> listResponse(HttpCacheProperties httpCacheProperties, Page<Product> products,
+                                                ProductFields fields) {
+        return ResponseEntity.ok()
+                .cacheControl(httpCacheProperties.cacheControl("product-list"))
+                .body(ProductController.shape(products, fields));
+    }
+}
@@ -0,0 +1,80 @@
+package com.ecommerce.controller;
+
+import com.ecommerce.config.HttpCacheProperties;
+import com.ecommerce.repository.ProductFields;
+import com.ecommerce.repository.ProductFilter;
+import com.ecommerce.service.ProductListingService;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+import reactor.core.publisher.Mono;
+
+import java.math.BigDecimal;
+
+import static com.ecommerce.controller.ProductListingController.listResponse;
+import static com.ecommerce.controller.ProductListingController.sortedPage;
+
+/**
+ * The paged product listings of {@link ProductListingController} on the reactive driver, enabled
+ * by {@code catalog.listing.non-blocking}. Spring MVC completes the returned {@link Mono}
+ * asynchronously, so a slow query service does not hold a request thread per listing.
+ */
+@CrossOrigin(origins = "*", maxAge = 3600)
+@RestController
+@RequestMapping("/api/products")
+@ConditionalOnProperty(name = "catalog.listing.non-blocking", havingValue = "true")
+public class ReactiveProductListingController {
+
+    @Autowired
+    private ProductListingService productListingService;
+
+    @Autowired
+    private HttpCacheProperties httpCacheProperties;
+
+    @GetMapping
+    public Mono<ResponseEntity<Page<?>>> getAllProducts(
+            @RequestParam(defaultValue = "0") int page,
+            @RequestParam(defaultValue = "12") int size,
+            @RequestParam(defaultValue = "createdAt") String sortBy,
+            @RequestParam(defaultValue = "desc") String sortDir,
+            @RequestParam(defaultValue = "false") boolean approximateCount,
+            @RequestParam(defaultValue = "full") String fields) {
+
+        ProductFields shape = ProductFields.parse(fields);
+        return productListingService.findPageAsync(ProductFilter.active(), sortedPage(page, size, sortBy, sortDir),
+                        approximateCount, shape)
+                .map(products -> listResponse(httpCacheProperties, products, shape));
+    }
+
+    @GetMapping("/category/{category}")
+    public Mono<ResponseEntity<Page<?>>> getProductsByCategory(
+            @PathVariable String category,
+            @RequestParam(defaultValue = "0") int page,
+            @RequestParam(defaultValue = "12") int size,
+            @RequestParam(defaultValue = "false") boolean approximateCount,
+            @RequestParam(defaultValue = "full") String fields) {
+
+        ProductFields shape = ProductFields.parse(fields);
+        return productListingService.findPageAsync(ProductFilter.category(category), PageRequest.of(page, size),
+                        approximateCount, shape)
+                .map(products -> listResponse(httpCacheProperties, products, shape));
+    }
+
+    @GetMapping("/price-range")
+    public Mono<ResponseEntity<Page<?>>> getProductsByPriceRange(
+            @RequestParam BigDecimal minPrice,
+            @RequestParam BigDecimal maxPrice,
+            @RequestParam(defaultValue = "0") int page,
+            @RequestParam(defaultValue = "12") int size,
+            @RequestParam(defaultValue = "false") boolean approximateCount,
+            @RequestParam(defaultValue = "full") String fields) {
+
+        ProductFields shape = ProductFields.parse(fields);
+        return productListingService.findPageAsync(ProductFilter.priceRange(minPrice, maxPrice),
+                        PageRequest.of(page, size), approximateCount, shape)
+                .map(products -> listResponse(httpCacheProperties, products, shape));
+    }
+}
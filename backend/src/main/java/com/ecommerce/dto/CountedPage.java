@@ -0,0 +1,29 @@
+package com.ecommerce.dto;
+
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.Pageable;
+
+import java.util.List;
+import java.util.function.Function;
+
+/**
+ * A page whose total may come from a cached count. When {@code totalEstimated} is set, the total
+ * was not recomputed for this request and may lag recent product changes.
+ */
+public class CountedPage<T> extends PageImpl<T> {
+    private final boolean totalEstimated;
+
+    public CountedPage(List<T> content, Pageable pageable, long total, boolean totalEstimated) {
+        super(content, pageable, total);
+        this.totalEstimated = totalEstimated;
+    }
+
+    public boolean isTotalEstimated() {
+        return totalEstimated;
+    }
+
+    @Override
+    public <U> CountedPage<U> map(Function<? super T, ? extends U> converter) {
+        return new CountedPage<>(getConvertedContent(converter), getPageable(), getTotalElements(), totalEstimated);
+    }
+}
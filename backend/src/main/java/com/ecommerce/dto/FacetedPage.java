@@ -0,0 +1,65 @@
+package com.ecommerce.dto;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * One page of faceted query results. Each facet maps a value to the number of products that
+ * would match if that facet's own filter were changed to that value, with all other filters kept.
+ */
+public class FacetedPage<T> {
+    private List<T> content;
+    private int page;
+    private int size;
+    private long totalElements;
+    private Map<String, Map<String, Integer>> facets;
+
+    public FacetedPage(List<T> content, int page, int size, long totalElements,
+                       Map<String, Map<String, Integer>> facets) {
+        this.content = content;
+        this.page = page;
+        this.size = size;
+        this.totalElements = totalElements;
+        this.facets = facets;
+    }
+
+    public List<T> getContent() {
+        return content;
+    }
+
+    public void setContent(List<T> content) {
+        this.content = content;
+    }
+
+    public int getPage() {
+        return page;
+    }
+
+    public void setPage(int page) {
+        this.page = page;
+    }
+
+    public int getSize() {
+        return size;
+    }
+
+    public void setSize(int size) {
+        this.size = size;
+    }
+
+    public long getTotalElements() {
+        return totalElements;
+    }
+
+    public void setTotalElements(long totalElements) {
+        this.totalElements = totalElements;
+    }
+
+    public Map<String, Map<String, Integer>> getFacets() {
+        return facets;
+    }
+
+    public void setFacets(Map<String, Map<String, Integer>> facets) {
+        this.facets = facets;
+    }
+}
@@ -0,0 +1,25 @@
+package com.ecommerce.dto;
+
+public class InventoryLevel {
+    private final String productId;
+    private final long available;
+    private final int stripes;
+
+    public InventoryLevel(String productId, long available, int stripes) {
+        this.productId = productId;
+        this.available = available;
+        this.stripes = stripes;
+    }
+
+    public String getProductId() {
+        return productId;
+    }
+
+    public long getAvailable() {
+        return available;
+    }
+
+    public int getStripes() {
+        return stripes;
+    }
+}
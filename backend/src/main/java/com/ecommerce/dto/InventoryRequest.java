@@ -0,0 +1,33 @@
+package com.ecommerce.dto;
+
+import jakarta.validation.constraints.Max;
+import jakarta.validation.constraints.Min;
+import jakarta.validation.constraints.NotNull;
+import jakarta.validation.constraints.PositiveOrZero;
+
+public class InventoryRequest {
+    @NotNull
+    @PositiveOrZero
+    private Long quantity;
+
+    // Counter documents to spread the stock over; more stripes for hot products
+    @Min(1)
+    @Max(64)
+    private Integer stripes;
+
+    public Long getQuantity() {
+        return quantity;
+    }
+
+    public void setQuantity(Long quantity) {
+        this.quantity = quantity;
+    }
+
+    public Integer getStripes() {
+        return stripes;
+    }
+
+    public void setStripes(Integer stripes) {
+        this.stripes = stripes;
+    }
+}
@@ -0,0 +1,117 @@
+package com.ecommerce.dto;
+
+import com.ecommerce.model.Product;
+
+import jakarta.validation.constraints.Pattern;
+import jakarta.validation.constraints.PositiveOrZero;
+import java.math.BigDecimal;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+
+/**
+ * Fields of a partial product update. Omitted or {@code null} fields are left unchanged.
+ */
+public class ProductPatch {
+    @Pattern(regexp = "(?s).*\\S.*", message = "must not be blank")
+    private String name;
+    private String description;
+    @PositiveOrZero
+    private BigDecimal price;
+    private String category;
+    private String brand;
+    private String sku;
+    @PositiveOrZero
+    private Integer stockQuantity;
+    private List<String> imageUrls;
+    private List<String> tags;
+    private Product.ProductDimensions dimensions;
+    private Double weight;
+    private Boolean active;
+    private Boolean featured;
+
+    /**
+     * A product holding only the supplied fields; see {@link #fieldNames()} for which those are.
+     */
+    public Product toProduct() {
+        Product product = new Product();
+        product.setName(name);
+        product.setDescription(description);
+        product.setPrice(price);
+        product.setCategory(category);
+        product.setBrand(brand);
+        product.setSku(sku);
+        product.setStockQuantity(stockQuantity);
+        product.setImageUrls(imageUrls);
+        product.setTags(tags);
+        product.setDimensions(dimensions);
+        product.setWeight(weight);
+        if (active != null) {
+            product.setActive(active);
+        }
+        if (featured != null) {
+            product.setFeatured(featured);
+        }
+        return product;
+    }
+
+    public Set<String> fieldNames() {
+        Map<String, Object> values = new LinkedHashMap<>();
+        values.put("name", name);
+        values.put("description", description);
+        values.put("price", price);
+        values.put("category", category);
+        values.put("brand", brand);
+        values.put("sku", sku);
+        values.put("stockQuantity", stockQuantity);
+        values.put("imageUrls", imageUrls);
+        values.put("tags", tags);
+        values.put("dimensions", dimensions);
+        values.put("weight", weight);
+        values.put("active", active);
+        values.put("featured", featured);
+        values.values().removeIf(Objects::isNull);
+        return values.keySet();
+    }
+
+    public String getName() { return name; }
+    public void setName(String name) { this.name = name; }
+
+    public String getDescription() { return description; }
+    public void setDescription(String description) { this.description = description; }
+
+    public BigDecimal getPrice() { return price; }
+    public void setPrice(BigDecimal price) { this.price = price; }
+
+    public String getCategory() { return category; }
+    public void setCategory(String category) { this.category = category; }
+
+    public String getBrand() { return brand; }
+    public void setBrand(String brand) { this.brand = brand; }
+
+    public String getSku() { return sku; }
+    public void setSku(String sku) { this.sku = sku; }
+
+    public Integer getStockQuantity() { return stockQuantity; }
+    public void setStockQuantity(Integer stockQuantity) { this.stockQuantity = stockQuantity; }
+
+    public List<String> getImageUrls() { return imageUrls; }
+    public void setImageUrls(List<String> imageUrls) { this.imageUrls = imageUrls; }
+
+    public List<String> getTags() { return tags; }
+    public void setTags(List<String> tags) { this.tags = tags; }
+
+    public Product.ProductDimensions getDimensions() { return dimensions; }
+    public void setDimensions(Product.ProductDimensions dimensions) { this.dimensions = dimensions; }
+
+    public Double getWeight() { return weight; }
+    public void setWeight(Double weight) { this.weight = weight; }
+
+    public Boolean getActive() { return active; }
+    public void setActive(Boolean active) { this.active = active; }
+
+    public Boolean getFeatured() { return featured; }
+    public void setFeatured(Boolean featured) { this.featured = featured; }
+}
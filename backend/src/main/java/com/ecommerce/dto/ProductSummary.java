@@ -0,0 +1,94 @@
+package com.ecommerce.dto;
+
+import com.ecommerce.model.Product;
+
+import java.math.BigDecimal;
+
+/**
+ * The fields a product grid renders, returned by list endpoints when called with
+ * {@code fields=summary}.
+ */
+public class ProductSummary {
+    private String id;
+    private String name;
+    private BigDecimal price;
+    private String imageUrl;
+    private Double rating;
+    private Integer reviewCount;
+    private Integer stockQuantity;
+
+    public ProductSummary(String id, String name, BigDecimal price, String imageUrl, Double rating,
+                          Integer reviewCount, Integer stockQuantity) {
+        this.id = id;
+        this.name = name;
+        this.price = price;
+        this.imageUrl = imageUrl;
+        this.rating = rating;
+        this.reviewCount = reviewCount;
+        this.stockQuantity = stockQuantity;
+    }
+
+    public static ProductSummary from(Product product) {
+        String imageUrl = product.getImageUrls() != null && !product.getImageUrls().isEmpty()
+                ? product.getImageUrls().get(0)
+                : null;
+        return new ProductSummary(product.getId(), product.getName(), product.getPrice(), imageUrl,
+                product.getRating(), product.getReviewCount(), product.getStockQuantity());
+    }
+
+    public String getId() {
+        return id;
+    }
+
+    public void setId(String id) {
+        this.id = id;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public void setName(String name) {
+        this.name = name;
+    }
+
+    public BigDecimal getPrice() {
+        return price;
+    }
+
+    public void setPrice(BigDecimal price) {
+        this.price = price;
+    }
+
+    public String getImageUrl() {
+        return imageUrl;
+    }
+
+    public void setImageUrl(String imageUrl) {
+        this.imageUrl = imageUrl;
+    }
+
+    public Double getRating() {
+        return rating;
+    }
+
+    public void setRating(Double rating) {
+        this.rating = rating;
+    }
+
+    public Integer getReviewCount() {
+        return reviewCount;
+    }
+
+    public void setReviewCount(Integer reviewCount) {
+        this.reviewCount = reviewCount;
+    }
+
+    public Integer getStockQuantity() {
+        return stockQuantity;
+    }
+
+    public void setStockQuantity(Integer stockQuantity) {
+        this.stockQuantity = stockQuantity;
+    }
+}
@@ -1,6 +1,8 @@
 package com.ecommerce.model;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
 import org.springframework.data.annotation.Id;
+import org.springframework.data.annotation.Version;
 import org.springframework.data.couchbase.core.mapping.Document;
 import org.springframework.data.couchbase.core.mapping.Field;
 import org.springframework.data.couchbase.core.mapping.id.GeneratedValue;
@@ -20,6 +22,11 @@ public class Product {
     @GeneratedValue(strategy = GenerationStrategy.UNIQUE)
     private String id;
 
+    // Document CAS, exposed to clients as the ETag
+    @Version
+    @JsonIgnore
+    private long version;
+
     @NotBlank
     @Field
     private String name;
@@ -84,6 +91,9 @@ public class Product {
     public String getId() { return id; }
     public void setId(String id) { this.id = id; }
 
+    public long getVersion() { return version; }
+    public void setVersion(long version) { this.version = version; }
+
     public String getName() { return name; }
     public void setName(String name) { this.name = name; }
 
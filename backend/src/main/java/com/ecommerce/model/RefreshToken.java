@@ -0,0 +1,76 @@
+package com.ecommerce.model;
+
+import org.springframework.data.annotation.Id;
+import org.springframework.data.annotation.Version;
+import org.springframework.data.couchbase.core.mapping.Document;
+import org.springframework.data.couchbase.core.mapping.Field;
+
+import java.time.LocalDateTime;
+import java.util.concurrent.TimeUnit;
+
+@Document(expiryExpression = "${jwt.refresh.expiry-days:30}", expiryUnit = TimeUnit.DAYS)
+public class RefreshToken {
+
+    // SHA-256 of the opaque token value; the value itself is never stored
+    @Id
+    private String id;
+
+    @Version
+    private long version;
+
+    @Field
+    private String familyId;
+
+    @Field
+    private String userId;
+
+    @Field
+    private String username;
+
+    @Field
+    private boolean used = false;
+
+    @Field
+    private LocalDateTime createdAt;
+
+    @Field
+    private LocalDateTime expiresAt;
+
+    public RefreshToken() {
+        this.createdAt = LocalDateTime.now();
+    }
+
+    public RefreshToken(String id, String familyId, String userId, String username, LocalDateTime expiresAt) {
+        this.id = id;
+        this.familyId = familyId;
+        this.userId = userId;
+        this.username = username;
+        this.expiresAt = expiresAt;
+        this.createdAt = LocalDateTime.now();
+    }
+
+    // Getters and Setters
+    public String getId() { return id; }
+    public void setId(String id) { this.id = id; }
+
+    public long getVersion() { return version; }
+    public void setVersion(long version) { this.version = version; }
+
+    public String getFamilyId() { return familyId; }
+    public void setFamilyId(String familyId) { this.familyId = familyId; }
+
+    public String getUserId() { return userId; }
+    public void setUserId(String userId) { this.userId = userId; }
+
+    public String getUsername() { return username; }
+    public void setUsername(String username) { this.username = username; }
+
+    public boolean isUsed() { return used; }
+    public void setUsed(boolean used) { this.used = used; }
+
+    public LocalDateTime getCreatedAt() { return createdAt; }
+    public void setCreatedAt(LocalDateTime createdAt) { this.createdAt = createdAt; }
+
+    public LocalDateTime getExpiresAt() { return expiresAt; }
+    public void setExpiresAt(LocalDateTime expiresAt) { this.expiresAt = expiresAt; }
+}
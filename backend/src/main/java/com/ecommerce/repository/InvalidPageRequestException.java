@@ -0,0 +1,8 @@
+package com.ecommerce.repository;
+
+public class InvalidPageRequestException extends RuntimeException {
+
+    public InvalidPageRequestException(String message) {
+        super(message);
+    }
+}
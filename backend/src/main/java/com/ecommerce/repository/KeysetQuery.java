@@ -0,0 +1,186 @@
+package com.ecommerce.repository;
+
+import com.couchbase.client.java.json.JsonObject;
+import com.ecommerce.dto.CursorPage;
+import org.springframework.data.couchbase.core.CouchbaseTemplate;
+import org.springframework.data.couchbase.core.query.Query;
+import org.springframework.data.couchbase.core.query.QueryCriteria;
+import org.springframework.data.domain.Sort;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.List;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+import static org.springframework.data.couchbase.core.query.N1QLExpression.x;
+
+/**
+ * Seek pagination over {@code (sort expression, document id)}. Each page continues strictly after
+ * the last row of the previous one, so the query service never skips rows the way {@code OFFSET}
+ * does, and no count query is needed.
+ * <p>
+ * Rows whose sort expression is {@code NULL} or {@code MISSING} come last in either direction,
+ * ordered by id, and are read by a second query once the valued rows run out.
+ * <p>
+ * The cursor is the base64url encoding of the sort name, direction, last sort value ({@code null}
+ * among the rows without one) and last id. It only resumes the listing it was issued for.
+ */
+final class KeysetQuery<T> {
+
+    private static final String ID = "META().id";
+
+    private final Class<T> type;
+    private final String sortName;
+    private final String sortExpression;
+    private final boolean descending;
+    private final Function<T, Object> sortValue;
+    private final Function<T, String> idOf;
+
+    /**
+     * @param sortName       document field the listing is sorted by; selected even in projections
+     * @param sortExpression N1QL expression ordered on; {@code sortValue} must return the value it
+     *                       evaluates to for a row, in its stored (JSON) form
+     */
+    KeysetQuery(Class<T> type, String sortName, String sortExpression, boolean descending,
+                Function<T, Object> sortValue, Function<T, String> idOf) {
+        this.type = type;
+        this.sortName = sortName;
+        this.sortExpression = sortExpression;
+        this.descending = descending;
+        this.sortValue = sortValue;
+        this.idOf = idOf;
+    }
+
+    CursorPage<T> execute(CouchbaseTemplate template, Supplier<QueryCriteria> filter, String cursor, int size) {
+        return execute(template, filter, null, cursor, size);
+    }
+
+    /**
+     * @param filter supplies a fresh criteria per query, as {@link QueryCriteria#and} extends the
+     *               criteria it is called on
+     * @param fields document fields to select besides the sort field, or {@code null} for all
+     */
+    CursorPage<T> execute(CouchbaseTemplate template, Supplier<QueryCriteria> filter, String[] fields, String cursor,
+                          int size) {
+        if (size < 1) {
+            throw new InvalidPageRequestException("Page size must be at least one");
+        }
+        JsonObject position = cursor != null && !cursor.isEmpty() ? decode(cursor) : null;
+        boolean resumeInNulls = position != null && position.get("v") == null;
+
+        List<T> rows = new ArrayList<>();
+        if (!resumeInNulls) {
+            rows.addAll(find(template, valuedQuery(filter, position, size + 1), fields));
+        }
+
+        // Rows without a sort value follow all others, in id order
+        int nullsFrom = rows.size();
+        if (rows.size() <= size) {
+            rows.addAll(find(template, unvaluedQuery(filter, position, size + 1 - rows.size()), fields));
+        }
+
+        if (rows.size() <= size) {
+            return new CursorPage<>(rows, size, null);
+        }
+        List<T> content = rows.subList(0, size);
+        return new CursorPage<>(content, size, encode(position(content.get(size - 1), size - 1 >= nullsFrom)));
+    }
+
+    /**
+     * The rows with a sort value, after {@code position} unless it is {@code null}.
+     */
+    Query valuedQuery(Supplier<QueryCriteria> filter, JsonObject position, int limit) {
+        Sort.Direction direction = descending ? Sort.Direction.DESC : Sort.Direction.ASC;
+        QueryCriteria criteria = filter.get().and(QueryCriteria.where(x(sortExpression)).isNotNull());
+        if (position != null) {
+            criteria = criteria.and(seek(position));
+        }
+        return new Query(criteria)
+                .with(Sort.by(new Sort.Order(direction, sortExpression), new Sort.Order(direction, ID)))
+                .limit(limit);
+    }
+
+    /**
+     * The rows without a sort value, after {@code position} if it is one of them.
+     */
+    Query unvaluedQuery(Supplier<QueryCriteria> filter, JsonObject position, int limit) {
+        Sort.Direction direction = descending ? Sort.Direction.DESC : Sort.Direction.ASC;
+        QueryCriteria criteria = filter.get().and(QueryCriteria.where(x(sortExpression)).isNotValued());
+        if (position != null && position.get("v") == null) {
+            criteria = criteria.and(after(position.getString("id")));
+        }
+        return new Query(criteria)
+                .with(Sort.by(new Sort.Order(direction, ID)))
+                .limit(limit);
+    }
+
+    /**
+     * The position a page ending with {@code last} continues from.
+     */
+    JsonObject position(T last, boolean withoutValue) {
+        return JsonObject.create()
+                .put("s", sortName)
+                .put("d", descending ? "desc" : "asc")
+                .put("v", withoutValue ? null : sortValue.apply(last))
+                .put("id", idOf.apply(last));
+    }
+
+    /**
+     * @return {@code fields} plus the sort field, or {@code null} to select all
+     */
+    String[] projection(String[] fields) {
+        if (fields == null) {
+            return null;
+        }
+        String[] projection = Arrays.copyOf(fields, fields.length + 1);
+        projection[fields.length] = sortName;
+        return projection;
+    }
+
+    Class<T> getType() {
+        return type;
+    }
+
+    private List<T> find(CouchbaseTemplate template, Query query, String[] fields) {
+        return fields != null
+                ? template.findByQuery(type).project(projection(fields)).matching(query).all()
+                : template.findByQuery(type).matching(query).all();
+    }
+
+    private QueryCriteria seek(JsonObject position) {
+        Object value = position.get("v");
+        return (descending
+                ? QueryCriteria.where(x(sortExpression)).lt(value)
+                : QueryCriteria.where(x(sortExpression)).gt(value))
+                .or(QueryCriteria.where(x(sortExpression)).is(value).and(after(position.getString("id"))));
+    }
+
+    private QueryCriteria after(String id) {
+        return descending ? QueryCriteria.where(x(ID)).lt(id) : QueryCriteria.where(x(ID)).gt(id);
+    }
+
+    private static String encode(JsonObject position) {
+        return Base64.getUrlEncoder().withoutPadding()
+                .encodeToString(position.toString().getBytes(StandardCharsets.UTF_8));
+    }
+
+    private JsonObject decode(String cursor) {
+        JsonObject position;
+        boolean matches;
+        try {
+            position = JsonObject.fromJson(new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8));
+            matches = sortName.equals(position.getString("s"))
+                    && (descending ? "desc" : "asc").equals(position.getString("d"))
+                    && position.containsKey("v") && position.getString("id") != null;
+        } catch (RuntimeException e) {
+            throw new InvalidPageRequestException("Malformed cursor");
+        }
+        if (!matches) {
+            throw new InvalidPageRequestException("Cursor does not belong to this listing");
+        }
+        return position;
+    }
+}
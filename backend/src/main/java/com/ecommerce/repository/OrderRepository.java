@@ -10,7 +10,7 @@ import org.springframework.stereotype.Repository;
 import java.util.List;
 
 @Repository
-public interface OrderRepository extends CouchbaseRepository<Order, String> {
+public interface OrderRepository extends CouchbaseRepository<Order, String>, OrderRepositoryCustom {
 
     @Query("SELECT o.* FROM #{#n1ql.bucket} o WHERE o.userId = $1 ORDER BY o.orderDate DESC")
     Page<Order> findByUserIdOrderByOrderDateDesc(String userId, Pageable pageable);
@@ -0,0 +1,12 @@
+package com.ecommerce.repository;
+
+import com.ecommerce.dto.CursorPage;
+import com.ecommerce.model.Order;
+
+/**
+ * Keyset-paginated counterpart of {@link OrderRepository#findByUserIdOrderByOrderDateDesc}.
+ */
+public interface OrderRepositoryCustom {
+
+    CursorPage<Order> scrollByUserId(String userId, String cursor, int size);
+}
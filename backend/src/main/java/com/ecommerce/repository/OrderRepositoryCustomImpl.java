@@ -0,0 +1,29 @@
+package com.ecommerce.repository;
+
+import com.ecommerce.dto.CursorPage;
+import com.ecommerce.model.Order;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.couchbase.core.CouchbaseTemplate;
+import org.springframework.data.couchbase.core.convert.CouchbaseConverter;
+import org.springframework.data.couchbase.core.query.QueryCriteria;
+
+public class OrderRepositoryCustomImpl implements OrderRepositoryCustom {
+
+    @Autowired
+    private CouchbaseTemplate couchbaseTemplate;
+
+    @Override
+    public CursorPage<Order> scrollByUserId(String userId, String cursor, int size) {
+        return keyset(couchbaseTemplate.getConverter())
+                .execute(couchbaseTemplate, () -> userCriteria(userId), cursor, size);
+    }
+
+    static KeysetQuery<Order> keyset(CouchbaseConverter converter) {
+        return new KeysetQuery<>(Order.class, "orderDate", "orderDate", true,
+                o -> converter.convertForWriteIfNeeded(o.getOrderDate()), Order::getId);
+    }
+
+    static QueryCriteria userCriteria(String userId) {
+        return QueryCriteria.where("userId").is(userId);
+    }
+}
@@ -0,0 +1,38 @@
+package com.ecommerce.repository;
+
+import java.util.Arrays;
+import java.util.Locale;
+
+/**
+ * Shapes a product listing can be returned in, selected with the {@code fields} request parameter.
+ */
+public enum ProductFields {
+    FULL,
+    SUMMARY("name", "price", "imageUrls", "rating", "reviewCount", "stockQuantity");
+
+    private final String[] projection;
+
+    ProductFields(String... projection) {
+        this.projection = projection;
+    }
+
+    public static ProductFields parse(String value) {
+        try {
+            return valueOf(value.toUpperCase(Locale.ROOT));
+        } catch (IllegalArgumentException e) {
+            throw new InvalidPageRequestException("Unknown fields value: " + value);
+        }
+    }
+
+    /**
+     * @return the document fields to select, plus {@code extra}, or {@code null} to select all
+     */
+    String[] projection(String... extra) {
+        if (projection.length == 0) {
+            return null;
+        }
+        String[] fields = Arrays.copyOf(projection, projection.length + extra.length);
+        System.arraycopy(extra, 0, fields, projection.length, extra.length);
+        return fields;
+    }
+}
@@ -0,0 +1,77 @@
+package com.ecommerce.repository;
+
+import org.springframework.data.couchbase.core.query.QueryCriteria;
+
+import java.math.BigDecimal;
+import java.util.Locale;
+import java.util.function.Supplier;
+
+import static org.springframework.data.couchbase.core.query.N1QLExpression.x;
+
+/**
+ * The filter behind one of the paged product listings, together with a key that identifies the
+ * listing and its parameters, e.g. for caching its total count.
+ */
+public final class ProductFilter {
+
+    private final String key;
+    private final Supplier<QueryCriteria> criteria;
+
+    private ProductFilter(String key, Supplier<QueryCriteria> criteria) {
+        this.key = key;
+        this.criteria = criteria;
+    }
+
+    public static ProductFilter active() {
+        return new ProductFilter("active", ProductFilter::activeCriteria);
+    }
+
+    public static ProductFilter category(String category) {
+        return new ProductFilter("category:" + category,
+                () -> activeCriteria().and("category").is(category));
+    }
+
+    public static ProductFilter brand(String brand) {
+        return new ProductFilter("brand:" + brand,
+                () -> activeCriteria().and("brand").is(brand));
+    }
+
+    public static ProductFilter priceRange(BigDecimal minPrice, BigDecimal maxPrice) {
+        // Prices are stored as strings, so they are compared as numbers explicitly
+        return new ProductFilter("price:" + minPrice.toPlainString() + ":" + maxPrice.toPlainString(),
+                () -> activeCriteria()
+                        .and(QueryCriteria.where(x("TONUMBER(price)")).gte(minPrice.doubleValue()))
+                        .and(QueryCriteria.where(x("TONUMBER(price)")).lte(maxPrice.doubleValue())));
+    }
+
+    /**
+     * Every product updated after {@code storedSince}, active or not.
+     *
+     * @param storedSince the timestamp in its stored form
+     */
+    public static ProductFilter updatedAfter(Object storedSince) {
+        return new ProductFilter("updated:" + storedSince,
+                () -> QueryCriteria.where("updatedAt").gt(storedSince));
+    }
+
+    public static ProductFilter nameContains(String name) {
+        String lowerCase = name.toLowerCase(Locale.ROOT);
+        return new ProductFilter("name:" + lowerCase,
+                () -> activeCriteria().and(QueryCriteria.where(x("LOWER(name)")).like("%" + lowerCase + "%")));
+    }
+
+    public String getKey() {
+        return key;
+    }
+
+    /**
+     * @return a new criteria instance, so callers may chain onto it
+     */
+    public QueryCriteria toCriteria() {
+        return criteria.get();
+    }
+
+    private static QueryCriteria activeCriteria() {
+        return QueryCriteria.where("active").is(true);
+    }
+}
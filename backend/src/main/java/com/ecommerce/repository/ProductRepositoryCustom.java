@@ -0,0 +1,45 @@
+package com.ecommerce.repository;
+
+import com.ecommerce.dto.CursorPage;
+import com.ecommerce.model.Product;
+import org.springframework.data.domain.Pageable;
+import reactor.core.publisher.Mono;
+
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Paged product listings. {@link #findPage} and {@link #count} run separately so that callers
+ * can cache counts; the {@code scroll} methods use keyset pagination and need no count at all.
+ * A {@code null} cursor starts at the first page; {@code sortBy} is one of {@code createdAt},
+ * {@code price}, {@code name} or {@code rating}. Products of a {@link ProductFields#SUMMARY}
+ * listing only have the summary fields populated.
+ * <p>
+ * The {@code Async} variants run the same queries without holding the calling thread.
+ * <p>
+ * {@link #patch} writes single fields with a sub-document mutation instead of replacing the
+ * whole document.
+ */
+public interface ProductRepositoryCustom {
+
+    List<Product> findPage(ProductFilter filter, Pageable pageable, ProductFields fields);
+
+    long count(ProductFilter filter);
+
+    Mono<List<Product>> findPageAsync(ProductFilter filter, Pageable pageable, ProductFields fields);
+
+    Mono<Long> countAsync(ProductFilter filter);
+
+    CursorPage<Product> scroll(ProductFilter filter, String sortBy, String sortDir, String cursor, int size,
+                               ProductFields fields);
+
+    /**
+     * Sets the named fields of {@code values}, and {@code updatedAt} to now, in one mutation. A
+     * non-zero {@code version} is the CAS the product must still have. Either way the document is
+     * first looked up to check that it is a product.
+     *
+     * @return the new version, or {@code null} if there is no such product
+     * @throws org.springframework.dao.OptimisticLockingFailureException if {@code version} is stale
+     */
+    Long patch(String id, Product values, Set<String> fields, long version);
+}
@@ -0,0 +1,169 @@
+package com.ecommerce.repository;
+
+import com.couchbase.client.core.error.CasMismatchException;
+import com.couchbase.client.core.error.DocumentNotFoundException;
+import com.couchbase.client.java.Collection;
+import com.couchbase.client.java.json.JsonObject;
+import com.couchbase.client.java.kv.LookupInResult;
+import com.couchbase.client.java.kv.LookupInSpec;
+import com.couchbase.client.java.kv.MutateInSpec;
+import com.ecommerce.dto.CursorPage;
+import com.ecommerce.model.Product;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.data.couchbase.core.CouchbaseTemplate;
+import org.springframework.data.couchbase.core.convert.CouchbaseConverter;
+import org.springframework.data.couchbase.core.mapping.CouchbaseDocument;
+import org.springframework.data.couchbase.core.query.Query;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
+import reactor.core.publisher.Mono;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.regex.Pattern;
+
+import static com.couchbase.client.java.kv.MutateInOptions.mutateInOptions;
+
+public class ProductRepositoryCustomImpl implements ProductRepositoryCustom {
+
+    // Sort properties end up verbatim in ORDER BY
+    private static final Pattern SORT_PROPERTY = Pattern.compile("[A-Za-z][A-Za-z0-9_]*");
+
+    private static final int MAX_PATCH_ATTEMPTS = 5;
+
+    @Autowired
+    private CouchbaseTemplate couchbaseTemplate;
+
+    @Override
+    public List<Product> findPage(ProductFilter filter, Pageable pageable, ProductFields fields) {
+        Query query = pageQuery(filter, pageable);
+        String[] projection = fields.projection();
+        if (projection == null) {
+            return couchbaseTemplate.findByQuery(Product.class).matching(query).all();
+        }
+        return couchbaseTemplate.findByQuery(Product.class).project(projection).matching(query).all();
+    }
+
+    @Override
+    public long count(ProductFilter filter) {
+        return couchbaseTemplate.findByQuery(Product.class).matching(countQuery(filter)).count();
+    }
+
+    @Override
+    public Mono<List<Product>> findPageAsync(ProductFilter filter, Pageable pageable, ProductFields fields) {
+        Query query = pageQuery(filter, pageable);
+        String[] projection = fields.projection();
+        if (projection == null) {
+            return couchbaseTemplate.reactive().findByQuery(Product.class).matching(query).all().collectList();
+        }
+        return couchbaseTemplate.reactive().findByQuery(Product.class).project(projection).matching(query).all()
+                .collectList();
+    }
+
+    @Override
+    public Mono<Long> countAsync(ProductFilter filter) {
+        return couchbaseTemplate.reactive().findByQuery(Product.class).matching(countQuery(filter)).count();
+    }
+
+    @Override
+    public CursorPage<Product> scroll(ProductFilter filter, String sortBy, String sortDir, String cursor, int size,
+                                      ProductFields fields) {
+        return keyset(couchbaseTemplate.getConverter(), sortBy, sortDir)
+                .execute(couchbaseTemplate, filter::toCriteria, fields.projection(), cursor, size);
+    }
+
+    @Override
+    public Long patch(String id, Product values, Set<String> fields, long version) {
+        values.setUpdatedAt(LocalDateTime.now());
+        CouchbaseDocument document = new CouchbaseDocument();
+        couchbaseTemplate.getConverter().write(values, document);
+        JsonObject stored = JsonObject.from(document.export());
+
+        List<MutateInSpec> specs = new ArrayList<>();
+        for (String field : fields) {
+            specs.add(MutateInSpec.upsert(field, stored.get(field)));
+        }
+        specs.add(MutateInSpec.upsert("updatedAt", stored.get("updatedAt")));
+
+        // The type is checked by a lookup and the mutation is applied with the CAS that lookup saw,
+        // so the document written is the product that was checked. Without a version from the
+        // client, a concurrent change between the two is retried rather than reported.
+        for (int attempt = 1; ; attempt++) {
+            LookupInResult current;
+            try {
+                current = collection().lookupIn(id,
+                        List.of(LookupInSpec.get(couchbaseTemplate.getConverter().getTypeKey())));
+            } catch (DocumentNotFoundException e) {
+                return null;
+            }
+            if (!current.exists(0) || !Product.class.getName().equals(current.contentAs(0, String.class))) {
+                return null;
+            }
+            if (version != 0 && current.cas() != version) {
+                throw new OptimisticLockingFailureException("Product " + id + " has been modified");
+            }
+
+            try {
+                return collection().mutateIn(id, specs, mutateInOptions().cas(current.cas())).cas();
+            } catch (DocumentNotFoundException e) {
+                return null;
+            } catch (CasMismatchException e) {
+                if (version != 0) {
+                    throw new OptimisticLockingFailureException("Product " + id + " has been modified", e);
+                }
+                if (attempt == MAX_PATCH_ATTEMPTS) {
+                    throw new OptimisticLockingFailureException("Product " + id + " is being modified concurrently", e);
+                }
+            }
+        }
+    }
+
+    static Query pageQuery(ProductFilter filter, Pageable pageable) {
+        return new Query(filter.toCriteria())
+                .with(sortExpressions(pageable.getSort()))
+                .skip(pageable.getOffset())
+                .limit(pageable.getPageSize());
+    }
+
+    static Query countQuery(ProductFilter filter) {
+        return new Query(filter.toCriteria());
+    }
+
+    private static Sort sortExpressions(Sort sort) {
+        List<Sort.Order> orders = new ArrayList<>();
+        for (Sort.Order order : sort) {
+            if (!SORT_PROPERTY.matcher(order.getProperty()).matches()) {
+                throw new InvalidPageRequestException("Cannot sort products by " + order.getProperty());
+            }
+            String expression = order.getProperty().equals("price") ? "TONUMBER(price)" : order.getProperty();
+            orders.add(new Sort.Order(order.getDirection(), expression));
+        }
+        return Sort.by(orders);
+    }
+
+    static KeysetQuery<Product> keyset(CouchbaseConverter converter, String sortBy, String sortDir) {
+        boolean descending = !"asc".equalsIgnoreCase(sortDir);
+        // Sort values are taken in the form they are stored in, so they compare like the query does
+        switch (sortBy) {
+            case "createdAt":
+                return new KeysetQuery<>(Product.class, sortBy, "createdAt", descending,
+                        p -> converter.convertForWriteIfNeeded(p.getCreatedAt()), Product::getId);
+            case "price":
+                return new KeysetQuery<>(Product.class, sortBy, "TONUMBER(price)", descending,
+                        p -> p.getPrice().doubleValue(), Product::getId);
+            case "name":
+                return new KeysetQuery<>(Product.class, sortBy, "name", descending, Product::getName, Product::getId);
+            case "rating":
+                return new KeysetQuery<>(Product.class, sortBy, "rating", descending, Product::getRating, Product::getId);
+            default:
+                throw new InvalidPageRequestException("Cannot paginate products by " + sortBy);
+        }
+    }
+
+    private Collection collection() {
+        return couchbaseTemplate.getCouchbaseClientFactory().getDefaultCollection();
+    }
+}
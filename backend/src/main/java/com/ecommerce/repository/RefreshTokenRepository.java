@@ -0,0 +1,19 @@
+package com.ecommerce.repository;
+
+import com.couchbase.client.java.query.QueryScanConsistency;
+import com.ecommerce.model.RefreshToken;
+import org.springframework.data.couchbase.repository.CouchbaseRepository;
+import org.springframework.data.couchbase.repository.Query;
+import org.springframework.data.couchbase.repository.ScanConsistency;
+import org.springframework.stereotype.Repository;
+
+import java.util.List;
+
+@Repository
+public interface RefreshTokenRepository extends CouchbaseRepository<RefreshToken, String> {
+
+    // Waits for the index to catch up, so revoking a family also finds the token its last rotation issued
+    @ScanConsistency(query = QueryScanConsistency.REQUEST_PLUS)
+    @Query("#{#n1ql.selectEntity} WHERE #{#n1ql.filter} AND familyId = $1")
+    List<RefreshToken> findByFamilyId(String familyId);
+}
@@ -0,0 +1,145 @@
+package com.ecommerce.repository;
+
+import com.couchbase.client.java.query.QueryOptions;
+import com.ecommerce.model.Order;
+import com.ecommerce.model.Product;
+import com.ecommerce.model.User;
+import org.springframework.data.couchbase.core.convert.CouchbaseConverter;
+import org.springframework.data.couchbase.core.query.Query;
+import org.springframework.data.couchbase.core.query.QueryCriteria;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.function.Supplier;
+
+import static com.couchbase.client.java.query.QueryOptions.queryOptions;
+
+/**
+ * The statements {@code findByQuery} sends for the criteria queries built outside of
+ * {@code @Query} methods, rendered by the same builders the repositories and services use, with
+ * sample values standing in for request parameters. Used to check their plans against the indexes.
+ */
+public final class TemplateQueries {
+
+    private static final String SAMPLE = "sample";
+
+    private final CouchbaseConverter converter;
+    private final String bucketName;
+    private final List<TemplateQuery> queries = new ArrayList<>();
+
+    private TemplateQueries(CouchbaseConverter converter, String bucketName) {
+        this.converter = converter;
+        this.bucketName = bucketName;
+    }
+
+    public static List<TemplateQuery> render(CouchbaseConverter converter, String bucketName) {
+        TemplateQueries rendered = new TemplateQueries(converter, bucketName);
+        rendered.addProductListings();
+        rendered.addKeysetPages();
+        rendered.addScans();
+        return rendered.queries;
+    }
+
+    private void addProductListings() {
+        Pageable newest = PageRequest.of(0, 12, Sort.by(Sort.Direction.DESC, "createdAt"));
+        Pageable unsorted = PageRequest.of(0, 12);
+        List<ProductFilter> filters = List.of(
+                ProductFilter.active(),
+                ProductFilter.category(SAMPLE),
+                ProductFilter.brand(SAMPLE),
+                ProductFilter.priceRange(BigDecimal.ZERO, BigDecimal.valueOf(100)),
+                ProductFilter.nameContains(SAMPLE));
+        for (ProductFilter filter : filters) {
+            String name = "product " + filter.getKey().split(":")[0];
+            Pageable pageable = filter.getKey().equals("active") ? newest : unsorted;
+            for (ProductFields fields : ProductFields.values()) {
+                add(name + " page (" + fields.name().toLowerCase(Locale.ROOT) + ")", Product.class,
+                        ProductRepositoryCustomImpl.pageQuery(filter, pageable), false, fields.projection());
+            }
+            add(name + " count", Product.class, ProductRepositoryCustomImpl.countQuery(filter), true, null);
+        }
+    }
+
+    private void addKeysetPages() {
+        Product lastProduct = new Product();
+        lastProduct.setId(SAMPLE);
+        lastProduct.setCreatedAt(LocalDateTime.now());
+        lastProduct.setPrice(BigDecimal.TEN);
+        lastProduct.setName(SAMPLE);
+        lastProduct.setRating(4.0);
+        for (String sortBy : List.of("createdAt", "price", "name", "rating")) {
+            for (String sortDir : List.of("desc", "asc")) {
+                addKeyset("product keyset by " + sortBy + " " + sortDir,
+                        ProductRepositoryCustomImpl.keyset(converter, sortBy, sortDir), lastProduct,
+                        () -> ProductFilter.active().toCriteria(), ProductFields.SUMMARY.projection());
+            }
+        }
+
+        Order lastOrder = new Order();
+        lastOrder.setId(SAMPLE);
+        lastOrder.setOrderDate(LocalDateTime.now());
+        addKeyset("order keyset", OrderRepositoryCustomImpl.keyset(converter), lastOrder,
+                () -> OrderRepositoryCustomImpl.userCriteria(SAMPLE), null);
+    }
+
+    private <T> void addKeyset(String name, KeysetQuery<T> keyset, T last,
+                               Supplier<QueryCriteria> filter, String[] fields) {
+        add(name + " first page", keyset.getType(), keyset.valuedQuery(filter, null, 13), false,
+                keyset.projection(fields));
+        add(name + " next page", keyset.getType(), keyset.valuedQuery(filter, keyset.position(last, false), 13),
+                false, keyset.projection(fields));
+        add(name + " without sort value", keyset.getType(),
+                keyset.unvaluedQuery(filter, keyset.position(last, true), 13), false, keyset.projection(fields));
+    }
+
+    private void addScans() {
+        add("active products", Product.class, new Query(ProductFilter.active().toCriteria()), false, null);
+        add("products updated since", Product.class, new Query(ProductFilter.updatedAfter(
+                converter.convertForWriteIfNeeded(LocalDateTime.now())).toCriteria()), false, null);
+        add("user reservation backfill", User.class, UserRepositoryCustomImpl.backfillQuery(), false, null);
+        add("user legacy lookup by username", User.class, UserRepositoryCustomImpl.legacyQuery("username", SAMPLE),
+                false, null);
+        add("user legacy lookup by email", User.class, UserRepositoryCustomImpl.legacyQuery("email", SAMPLE),
+                false, null);
+    }
+
+    private void add(String name, Class<?> type, Query query, boolean count, String[] fields) {
+        // Rendering collects the positional parameters the options are built from
+        String statement = query.toN1qlSelectString(converter, bucketName, null, null, type, type, count, null,
+                fields);
+        queries.add(new TemplateQuery(name, statement, query.buildQueryOptions(queryOptions(), null)));
+    }
+
+    public static final class TemplateQuery {
+        private final String name;
+        private final String statement;
+        private final QueryOptions options;
+
+        TemplateQuery(String name, String statement, QueryOptions options) {
+            this.name = name;
+            this.statement = statement;
+            this.options = options;
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        public String getStatement() {
+            return statement;
+        }
+
+        /**
+         * The positional parameters sent with the statement.
+         */
+        public QueryOptions getOptions() {
+            return options;
+        }
+    }
+}
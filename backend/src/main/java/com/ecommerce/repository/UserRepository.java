@@ -8,16 +8,8 @@ import org.springframework.stereotype.Repository;
 import java.util.Optional;
 
 @Repository
-public interface UserRepository extends CouchbaseRepository<User, String> {
+public interface UserRepository extends CouchbaseRepository<User, String>, UserRepositoryCustom {
 
-    Optional<User> findByUsername(String username);
-    
-    Optional<User> findByEmail(String email);
-    
-    Boolean existsByUsername(String username);
-    
-    Boolean existsByEmail(String email);
-    
     @Query("SELECT u.* FROM #{#n1ql.bucket} u WHERE u.active = true AND u.username = $1")
     Optional<User> findActiveByUsername(String username);
 }
\ No newline at end of file
@@ -0,0 +1,47 @@
+package com.ecommerce.repository;
+
+import com.ecommerce.model.User;
+
+import java.util.Optional;
+
+/**
+ * Key-value access to users through username and email reservation documents. These take
+ * precedence over the derived queries of the same name on {@link UserRepository}.
+ */
+public interface UserRepositoryCustom {
+
+    Optional<User> findByUsername(String username);
+
+    Optional<User> findByEmail(String email);
+
+    Boolean existsByUsername(String username);
+
+    Boolean existsByEmail(String email);
+
+    /**
+     * Atomically claims the username for the given user id.
+     *
+     * @return {@code false} if the username already belongs to another user
+     */
+    boolean reserveUsername(String username, String userId);
+
+    /**
+     * Atomically claims the email address for the given user id.
+     *
+     * @return {@code false} if the email address already belongs to another user
+     */
+    boolean reserveEmail(String email, String userId);
+
+    void releaseUsername(String username, String userId);
+
+    void releaseEmail(String email, String userId);
+
+    /**
+     * Creates the missing reservation documents of users saved before reservations existed, then
+     * records that the legacy query fallback is no longer needed. Safe to run repeatedly and on
+     * several replicas at once.
+     *
+     * @return the number of users checked, or -1 if the backfill had already completed
+     */
+    long backfillReservations();
+}
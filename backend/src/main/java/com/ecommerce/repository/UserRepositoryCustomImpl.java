@@ -0,0 +1,225 @@
+package com.ecommerce.repository;
+
+import com.couchbase.client.core.error.CasMismatchException;
+import com.couchbase.client.core.error.DocumentExistsException;
+import com.couchbase.client.core.error.DocumentNotFoundException;
+import com.couchbase.client.java.Collection;
+import com.couchbase.client.java.json.JsonObject;
+import com.couchbase.client.java.kv.GetResult;
+import com.ecommerce.model.User;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.couchbase.core.CouchbaseTemplate;
+import org.springframework.data.couchbase.core.query.Query;
+import org.springframework.data.couchbase.core.query.QueryCriteria;
+
+import java.time.Duration;
+import java.util.Iterator;
+import java.util.Locale;
+import java.util.Optional;
+import java.util.stream.Stream;
+
+import static com.couchbase.client.java.kv.RemoveOptions.removeOptions;
+import static com.couchbase.client.java.kv.ReplaceOptions.replaceOptions;
+
+/**
+ * Users are addressed through reservation documents with deterministic keys
+ * ({@code user::username::<username>}, {@code user::email::<email>}) that hold the user id.
+ * A lookup is two KV gets instead of a query, and a KV insert makes a reservation atomic.
+ */
+public class UserRepositoryCustomImpl implements UserRepositoryCustom {
+    private static final Logger logger = LoggerFactory.getLogger(UserRepositoryCustomImpl.class);
+
+    private static final String USERNAME_KEY_PREFIX = "user::username::";
+    private static final String EMAIL_KEY_PREFIX = "user::email::";
+    // Written once every user has its reservations; the legacy fallback is skipped from then on
+    private static final String BACKFILL_MARKER_KEY = "user::reservation-backfill";
+
+    @Autowired
+    private CouchbaseTemplate couchbaseTemplate;
+
+    // A reservation whose user was never saved is reclaimable once it is this old
+    @Value("${user.reservation.orphan-after:1m}")
+    private Duration orphanAfter;
+
+    // Query for users created before reservations existed, until the backfill has completed
+    @Value("${user.reservation.legacy-fallback:true}")
+    private boolean legacyFallback;
+
+    private volatile boolean backfilled;
+
+    @Override
+    public Optional<User> findByUsername(String username) {
+        return findByKey(usernameKey(username), "username", username);
+    }
+
+    @Override
+    public Optional<User> findByEmail(String email) {
+        return findByKey(emailKey(email), "email", email);
+    }
+
+    @Override
+    public Boolean existsByUsername(String username) {
+        return findByUsername(username).isPresent();
+    }
+
+    @Override
+    public Boolean existsByEmail(String email) {
+        return findByEmail(email).isPresent();
+    }
+
+    @Override
+    public boolean reserveUsername(String username, String userId) {
+        return !findLegacy(usernameKey(username), "username", username).isPresent()
+                && reserve(usernameKey(username), userId);
+    }
+
+    @Override
+    public boolean reserveEmail(String email, String userId) {
+        return !findLegacy(emailKey(email), "email", email).isPresent()
+                && reserve(emailKey(email), userId);
+    }
+
+    @Override
+    public void releaseUsername(String username, String userId) {
+        release(usernameKey(username), userId);
+    }
+
+    @Override
+    public void releaseEmail(String email, String userId) {
+        release(emailKey(email), userId);
+    }
+
+    @Override
+    public long backfillReservations() {
+        if (isBackfilled()) {
+            return -1;
+        }
+
+        long checked = 0;
+        try (Stream<User> users = couchbaseTemplate.findByQuery(User.class)
+                .matching(backfillQuery())
+                .stream()) {
+            Iterator<User> iterator = users.iterator();
+            while (iterator.hasNext()) {
+                User user = iterator.next();
+                if (!reserve(usernameKey(user.getUsername()), user.getId())) {
+                    logger.warn("Username {} of user {} is reserved by another user", user.getUsername(), user.getId());
+                }
+                if (user.getEmail() != null && !reserve(emailKey(user.getEmail()), user.getId())) {
+                    logger.warn("Email of user {} is reserved by another user", user.getId());
+                }
+                checked++;
+            }
+        }
+
+        try {
+            collection().insert(BACKFILL_MARKER_KEY, JsonObject.create()
+                    .put("completedAt", System.currentTimeMillis())
+                    .put("users", checked));
+        } catch (DocumentExistsException e) {
+            // Completed concurrently by another replica
+        }
+        backfilled = true;
+        return checked;
+    }
+
+    private Optional<User> findByKey(String key, String field, String value) {
+        try {
+            String userId = collection().get(key).contentAsObject().getString("userId");
+            return Optional.ofNullable(couchbaseTemplate.findById(User.class).one(userId));
+        } catch (DocumentNotFoundException e) {
+            return findLegacy(key, field, value);
+        }
+    }
+
+    private Optional<User> findLegacy(String key, String field, String value) {
+        if (!legacyFallback || isBackfilled() || collection().exists(key).exists()) {
+            return Optional.empty();
+        }
+
+        User user = couchbaseTemplate.findByQuery(User.class)
+                .matching(legacyQuery(field, value))
+                .firstValue();
+        if (user != null) {
+            reserve(key, user.getId());
+        }
+        return Optional.ofNullable(user);
+    }
+
+    static Query backfillQuery() {
+        return new Query(QueryCriteria.where("username").isNotNull());
+    }
+
+    static Query legacyQuery(String field, String value) {
+        return new Query(QueryCriteria.where(field).is(value));
+    }
+
+    private boolean isBackfilled() {
+        if (!backfilled && collection().exists(BACKFILL_MARKER_KEY).exists()) {
+            backfilled = true;
+        }
+        return backfilled;
+    }
+
+    private boolean reserve(String key, String userId) {
+        JsonObject reservation = JsonObject.create()
+                .put("userId", userId)
+                .put("reservedAt", System.currentTimeMillis());
+        try {
+            collection().insert(key, reservation);
+            return true;
+        } catch (DocumentExistsException e) {
+            return reclaimOrphan(key, reservation);
+        }
+    }
+
+    private boolean reclaimOrphan(String key, JsonObject reservation) {
+        try {
+            GetResult existing = collection().get(key);
+            JsonObject content = existing.contentAsObject();
+            if (reservation.getString("userId").equals(content.getString("userId"))) {
+                return true;
+            }
+
+            Long reservedAt = content.getLong("reservedAt");
+            boolean orphaned = (reservedAt == null || System.currentTimeMillis() - reservedAt > orphanAfter.toMillis())
+                    && !couchbaseTemplate.existsById(User.class).one(content.getString("userId"));
+            if (!orphaned) {
+                return false;
+            }
+
+            collection().replace(key, reservation, replaceOptions().cas(existing.cas()));
+            return true;
+        } catch (DocumentNotFoundException e) {
+            return reserve(key, reservation.getString("userId"));
+        } catch (CasMismatchException e) {
+            return false;
+        }
+    }
+
+    private void release(String key, String userId) {
+        try {
+            GetResult existing = collection().get(key);
+            if (userId.equals(existing.contentAsObject().getString("userId"))) {
+                collection().remove(key, removeOptions().cas(existing.cas()));
+            }
+        } catch (DocumentNotFoundException | CasMismatchException e) {
+            // Already released or claimed by someone else
+        }
+    }
+
+    private static String usernameKey(String username) {
+        return USERNAME_KEY_PREFIX + username;
+    }
+
+    private static String emailKey(String email) {
+        return EMAIL_KEY_PREFIX + email.toLowerCase(Locale.ROOT);
+    }
+
+    private Collection collection() {
+        return couchbaseTemplate.getCouchbaseClientFactory().getDefaultCollection();
+    }
+}
@@ -1,40 +1,77 @@
 package com.ecommerce.security;
 
-import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.core.io.JsonStringEncoder;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
 import jakarta.servlet.ServletException;
+import jakarta.servlet.ServletOutputStream;
 import jakarta.servlet.http.HttpServletRequest;
 import jakarta.servlet.http.HttpServletResponse;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.http.MediaType;
 import org.springframework.security.core.AuthenticationException;
 import org.springframework.security.web.AuthenticationEntryPoint;
 import org.springframework.stereotype.Component;
 
 import java.io.IOException;
-import java.util.HashMap;
+import java.nio.charset.StandardCharsets;
+import java.util.EnumMap;
 import java.util.Map;
+import java.util.concurrent.TimeUnit;
 
 @Component
 public class AuthEntryPointJwt implements AuthenticationEntryPoint {
 
     private static final Logger logger = LoggerFactory.getLogger(AuthEntryPointJwt.class);
 
+    private static final byte[] BODY_SUFFIX = "}".getBytes(StandardCharsets.UTF_8);
+
+    private final RateLimitedLogger rateLimitedLogger = new RateLimitedLogger(logger, 10, 1, TimeUnit.SECONDS);
+
+    // Everything up to the request path is fixed per reason, so it is encoded once
+    private final Map<AuthRejectionReason, byte[]> bodyPrefixes = new EnumMap<>(AuthRejectionReason.class);
+
+    private final Map<AuthRejectionReason, Counter> rejections = new EnumMap<>(AuthRejectionReason.class);
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @PostConstruct
+    void init() {
+        for (AuthRejectionReason reason : AuthRejectionReason.values()) {
+            String prefix = "{\"status\":" + HttpServletResponse.SC_UNAUTHORIZED
+                    + ",\"error\":\"Unauthorized\",\"message\":\""
+                    + new String(JsonStringEncoder.getInstance().quoteAsString(reason.getMessage()))
+                    + "\",\"path\":";
+            bodyPrefixes.put(reason, prefix.getBytes(StandardCharsets.UTF_8));
+            rejections.put(reason, Counter.builder("auth.rejections")
+                    .tag("reason", reason.tag())
+                    .register(meterRegistry));
+        }
+    }
+
     @Override
     public void commence(HttpServletRequest request, HttpServletResponse response,
                          AuthenticationException authException) throws IOException, ServletException {
-        logger.error("Unauthorized error: {}", authException.getMessage());
+        Object attribute = request.getAttribute(AuthRejectionReason.REQUEST_ATTRIBUTE);
+        AuthRejectionReason reason = attribute instanceof AuthRejectionReason rejectionReason
+                ? rejectionReason
+                : AuthRejectionReason.MISSING;
+
+        rejections.get(reason).increment();
+        rateLimitedLogger.warn("Unauthorized request to {}: {}", request.getServletPath(), reason.tag());
 
         response.setContentType(MediaType.APPLICATION_JSON_VALUE);
         response.setStatus(HttpServletResponse.SC_UNAUTHORIZED);
 
-        final Map<String, Object> body = new HashMap<>();
-        body.put("status", HttpServletResponse.SC_UNAUTHORIZED);
-        body.put("error", "Unauthorized");
-        body.put("message", authException.getMessage());
-        body.put("path", request.getServletPath());
-
-        final ObjectMapper mapper = new ObjectMapper();
-        mapper.writeValue(response.getOutputStream(), body);
+        ServletOutputStream out = response.getOutputStream();
+        out.write(bodyPrefixes.get(reason));
+        out.write('"');
+        out.write(JsonStringEncoder.getInstance().quoteAsUTF8(request.getServletPath()));
+        out.write('"');
+        out.write(BODY_SUFFIX);
     }
-}
\ No newline at end of file
+}
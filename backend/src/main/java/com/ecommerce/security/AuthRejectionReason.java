@@ -0,0 +1,30 @@
+package com.ecommerce.security;
+
+/**
+ * Why a request could not be authenticated; recorded on the request by {@link AuthTokenFilter}
+ * and reported by {@link AuthEntryPointJwt}.
+ */
+public enum AuthRejectionReason {
+    MISSING("Full authentication is required to access this resource"),
+    EXPIRED("JWT token is expired"),
+    MALFORMED("JWT token is invalid"),
+    BAD_SIGNATURE("JWT signature does not match"),
+    REVOKED("JWT token has been revoked"),
+    DISABLED("User account is disabled");
+
+    public static final String REQUEST_ATTRIBUTE = AuthRejectionReason.class.getName();
+
+    private final String message;
+
+    AuthRejectionReason(String message) {
+        this.message = message;
+    }
+
+    public String getMessage() {
+        return message;
+    }
+
+    public String tag() {
+        return name().toLowerCase();
+    }
+}
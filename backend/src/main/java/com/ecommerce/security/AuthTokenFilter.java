@@ -1,5 +1,8 @@
 package com.ecommerce.security;
 
+import io.jsonwebtoken.ExpiredJwtException;
+import io.jsonwebtoken.JwtException;
+import io.jsonwebtoken.security.SecurityException;
 import jakarta.servlet.FilterChain;
 import jakarta.servlet.ServletException;
 import jakarta.servlet.http.HttpServletRequest;
@@ -7,48 +10,117 @@ import jakarta.servlet.http.HttpServletResponse;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
 import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.security.core.userdetails.UserDetails;
+import org.springframework.security.core.userdetails.UsernameNotFoundException;
 import org.springframework.security.web.authentication.WebAuthenticationDetailsSource;
+import org.springframework.util.AntPathMatcher;
 import org.springframework.util.StringUtils;
 import org.springframework.web.filter.OncePerRequestFilter;
 
 import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
 
 public class AuthTokenFilter extends OncePerRequestFilter {
     @Autowired
-    private JwtUtils jwtUtils;
+    private JwtVerifier jwtVerifier;
 
     @Autowired
-    private UserDetailsServiceImpl userDetailsService;
+    private CachedUserDetailsService userDetailsService;
+
+    @Autowired
+    private TokenRevocationList revocationList;
+
+    @Value("${jwt.principal.db-lookup-patterns:}")
+    private List<String> dbLookupPatterns;
+
+    // Tokens granting any of these are checked against the current user record on every request
+    @Value("${jwt.principal.db-lookup-authorities:ROLE_ADMIN}")
+    private List<String> dbLookupAuthorities;
+
+    private final AntPathMatcher pathMatcher = new AntPathMatcher();
 
     private static final Logger logger = LoggerFactory.getLogger(AuthTokenFilter.class);
 
+    private final RateLimitedLogger rateLimitedLogger = new RateLimitedLogger(logger, 10, 1, TimeUnit.SECONDS);
+
     @Override
     protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain filterChain)
             throws ServletException, IOException {
-        try {
-            String jwt = parseJwt(request);
-            if (jwt != null && jwtUtils.validateJwtToken(jwt)) {
-                String username = jwtUtils.getUserNameFromJwtToken(jwt);
-
-                UserDetails userDetails = userDetailsService.loadUserByUsername(username);
-                UsernamePasswordAuthenticationToken authentication =
-                        new UsernamePasswordAuthenticationToken(userDetails,
-                                null,
-                                userDetails.getAuthorities());
-                authentication.setDetails(new WebAuthenticationDetailsSource().buildDetails(request));
-
-                SecurityContextHolder.getContext().setAuthentication(authentication);
+        String jwt = parseJwt(request);
+        if (jwt != null) {
+            AuthRejectionReason rejection = authenticate(request, jwt);
+            if (rejection != null) {
+                request.setAttribute(AuthRejectionReason.REQUEST_ATTRIBUTE, rejection);
             }
-        } catch (Exception e) {
-            logger.error("Cannot set user authentication: {}", e);
         }
 
         filterChain.doFilter(request, response);
     }
 
+    private AuthRejectionReason authenticate(HttpServletRequest request, String jwt) {
+        VerifiedToken token;
+        try {
+            token = jwtVerifier.verify(jwt);
+        } catch (ExpiredJwtException e) {
+            return AuthRejectionReason.EXPIRED;
+        } catch (SecurityException e) {
+            rateLimitedLogger.warn("Rejected JWT with bad signature: {}", e.getMessage());
+            return AuthRejectionReason.BAD_SIGNATURE;
+        } catch (JwtException | IllegalArgumentException e) {
+            rateLimitedLogger.warn("Rejected malformed JWT: {}", e.getMessage());
+            return AuthRejectionReason.MALFORMED;
+        }
+
+        if (token.getTokenId() != null && revocationList.isRevoked(token.getTokenId())) {
+            return AuthRejectionReason.REVOKED;
+        }
+
+        UserDetails userDetails;
+        try {
+            userDetails = requiresDbLookup(request, token)
+                    ? userDetailsService.loadUserByUsername(token.getSubject())
+                    : UserPrincipal.create(token);
+        } catch (UsernameNotFoundException e) {
+            return AuthRejectionReason.DISABLED;
+        }
+        if (!userDetails.isEnabled()) {
+            return AuthRejectionReason.DISABLED;
+        }
+
+        UsernamePasswordAuthenticationToken authentication =
+                new UsernamePasswordAuthenticationToken(userDetails,
+                        null,
+                        userDetails.getAuthorities());
+        authentication.setDetails(new WebAuthenticationDetailsSource().buildDetails(request));
+
+        SecurityContextHolder.getContext().setAuthentication(authentication);
+        return null;
+    }
+
+    private boolean requiresDbLookup(HttpServletRequest request, VerifiedToken token) {
+        if (!token.hasPrincipalClaims()) {
+            return true;
+        }
+        for (String role : token.getRoles()) {
+            if (dbLookupAuthorities.contains(role)) {
+                return true;
+            }
+        }
+
+        String path = request.getServletPath();
+        for (String pattern : dbLookupPatterns) {
+            if (pathMatcher.match(pattern, path)) {
+                return true;
+            }
+        }
+
+        return false;
+    }
+
     private String parseJwt(HttpServletRequest request) {
         String headerAuth = request.getHeader("Authorization");
 
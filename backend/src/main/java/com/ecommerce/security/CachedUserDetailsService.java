@@ -0,0 +1,86 @@
+package com.ecommerce.security;
+
+import com.ecommerce.cache.CacheLoading;
+import com.ecommerce.cluster.ClusterEventBus;
+import com.ecommerce.model.User;
+import com.github.benmanes.caffeine.cache.AsyncCache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import jakarta.annotation.PostConstruct;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.couchbase.core.mapping.event.AfterDeleteEvent;
+import org.springframework.data.couchbase.core.mapping.event.AfterSaveEvent;
+import org.springframework.security.core.userdetails.UserDetails;
+import org.springframework.security.core.userdetails.UserDetailsService;
+import org.springframework.security.core.userdetails.UsernameNotFoundException;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+
+/**
+ * Size and TTL bounded cache in front of {@link UserDetailsServiceImpl} for the paths that still
+ * need a database-backed principal. Entries are evicted whenever a user is saved, on this replica
+ * directly and on the others through the {@link ClusterEventBus}.
+ */
+@Service
+public class CachedUserDetailsService implements UserDetailsService {
+
+    static final String USER_CHANGED_TOPIC = "user-changed";
+
+    @Autowired
+    private UserDetailsServiceImpl delegate;
+
+    @Autowired
+    private ClusterEventBus clusterEventBus;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Value("${cache.user-details.max-size:10000}")
+    private long maxSize;
+
+    @Value("${cache.user-details.ttl:5m}")
+    private Duration ttl;
+
+    private AsyncCache<String, UserDetails> users;
+
+    @PostConstruct
+    void init() {
+        users = Caffeine.newBuilder()
+                .maximumSize(maxSize)
+                .expireAfterWrite(ttl)
+                .recordStats()
+                .buildAsync();
+        CaffeineCacheMetrics.monitor(meterRegistry, users, "userDetails");
+        clusterEventBus.subscribe(USER_CHANGED_TOPIC, this::evict);
+    }
+
+    @Override
+    public UserDetails loadUserByUsername(String username) throws UsernameNotFoundException {
+        return CacheLoading.get(users, username, delegate::loadUserByUsername);
+    }
+
+    public void evict(String username) {
+        users.synchronous().invalidate(username);
+    }
+
+    @EventListener
+    public void onUserSaved(AfterSaveEvent<?> event) {
+        userChanged(event.getSource());
+    }
+
+    @EventListener
+    public void onUserDeleted(AfterDeleteEvent<?> event) {
+        userChanged(event.getSource());
+    }
+
+    private void userChanged(Object source) {
+        if (source instanceof User user && user.getUsername() != null) {
+            evict(user.getUsername());
+            clusterEventBus.publish(USER_CHANGED_TOPIC, user.getUsername());
+        }
+    }
+}
@@ -0,0 +1,8 @@
+package com.ecommerce.security;
+
+public class InvalidRefreshTokenException extends RuntimeException {
+
+    public InvalidRefreshTokenException(String message) {
+        super(message);
+    }
+}
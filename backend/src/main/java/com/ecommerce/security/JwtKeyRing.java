@@ -0,0 +1,172 @@
+package com.ecommerce.security;
+
+import io.jsonwebtoken.security.Keys;
+import jakarta.annotation.PostConstruct;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.io.Resource;
+import org.springframework.stereotype.Component;
+
+import javax.crypto.SecretKey;
+import java.io.IOException;
+import java.io.InputStream;
+import java.math.BigInteger;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.KeyFactory;
+import java.security.PrivateKey;
+import java.security.interfaces.RSAPrivateCrtKey;
+import java.security.interfaces.RSAPublicKey;
+import java.security.spec.PKCS8EncodedKeySpec;
+import java.security.spec.RSAPublicKeySpec;
+import java.security.spec.X509EncodedKeySpec;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Holds the keys used to sign and verify access tokens. When no RSA keys are configured, tokens
+ * keep being signed with the shared {@code jwt.secret} HMAC key.
+ */
+@Component
+public class JwtKeyRing {
+    private static final Logger logger = LoggerFactory.getLogger(JwtKeyRing.class);
+
+    @Autowired
+    private JwtSigningProperties properties;
+
+    @Value("${jwt.secret:}")
+    private String jwtSecret;
+
+    @Value("${jwt.signing.accept-legacy-hmac:true}")
+    private boolean acceptLegacyHmac;
+
+    private final Map<String, RSAPublicKey> verificationKeys = new LinkedHashMap<>();
+
+    private String activeKeyId;
+
+    private PrivateKey activePrivateKey;
+
+    private volatile SecretKey hmacKey;
+
+    private Map<String, Object> jwks;
+
+    @PostConstruct
+    void init() throws IOException, GeneralSecurityException {
+        KeyFactory keyFactory = KeyFactory.getInstance("RSA");
+
+        for (JwtSigningProperties.Key key : properties.getKeys()) {
+            PrivateKey privateKey = key.getPrivateKey() != null
+                    ? keyFactory.generatePrivate(new PKCS8EncodedKeySpec(readPem(key.getPrivateKey())))
+                    : null;
+
+            RSAPublicKey publicKey;
+            if (key.getPublicKey() != null) {
+                publicKey = (RSAPublicKey) keyFactory.generatePublic(new X509EncodedKeySpec(readPem(key.getPublicKey())));
+            } else if (privateKey instanceof RSAPrivateCrtKey crtKey) {
+                publicKey = (RSAPublicKey) keyFactory.generatePublic(
+                        new RSAPublicKeySpec(crtKey.getModulus(), crtKey.getPublicExponent()));
+            } else {
+                throw new IllegalStateException("JWT signing key " + key.getId() + " has no public key");
+            }
+
+            verificationKeys.put(key.getId(), publicKey);
+            if (key.getId().equals(properties.getActiveKeyId())) {
+                if (privateKey == null) {
+                    throw new IllegalStateException("Active JWT signing key " + key.getId() + " has no private key");
+                }
+                activeKeyId = key.getId();
+                activePrivateKey = privateKey;
+            }
+        }
+
+        if (activeKeyId == null && !verificationKeys.isEmpty()) {
+            throw new IllegalStateException("jwt.signing.active-key-id does not name a configured key");
+        }
+        if (activeKeyId == null) {
+            logger.info("No RSA signing keys configured, signing tokens with the shared HMAC secret");
+        }
+
+        List<Map<String, Object>> jwkList = new ArrayList<>();
+        verificationKeys.forEach((keyId, publicKey) -> {
+            Map<String, Object> jwk = new LinkedHashMap<>();
+            jwk.put("kty", "RSA");
+            jwk.put("use", "sig");
+            jwk.put("alg", "RS256");
+            jwk.put("kid", keyId);
+            jwk.put("n", base64Url(publicKey.getModulus()));
+            jwk.put("e", base64Url(publicKey.getPublicExponent()));
+            jwkList.add(jwk);
+        });
+        jwks = Map.of("keys", List.copyOf(jwkList));
+    }
+
+    public boolean isAsymmetric() {
+        return activeKeyId != null;
+    }
+
+    public String getActiveKeyId() {
+        return activeKeyId;
+    }
+
+    public PrivateKey getActivePrivateKey() {
+        return activePrivateKey;
+    }
+
+    public RSAPublicKey getVerificationKey(String keyId) {
+        return verificationKeys.get(keyId);
+    }
+
+    /**
+     * Public verification keys as a JWK Set document.
+     */
+    public Map<String, Object> getJwks() {
+        return jwks;
+    }
+
+    /**
+     * Algorithms of the published verification keys; empty when tokens are only HMAC-signed,
+     * which nobody else can verify.
+     */
+    public List<String> getPublishedAlgorithms() {
+        return verificationKeys.isEmpty() ? List.of() : List.of("RS256");
+    }
+
+    /**
+     * HMAC key for signing when no RSA keys are configured, and for verifying tokens without a
+     * {@code kid} header issued before the switch to RSA.
+     */
+    public SecretKey getHmacKey() {
+        SecretKey key = hmacKey;
+        if (key == null) {
+            if (isAsymmetric() && !acceptLegacyHmac) {
+                return null;
+            }
+            key = Keys.hmacShaKeyFor(jwtSecret.getBytes(StandardCharsets.UTF_8));
+            hmacKey = key;
+        }
+        return key;
+    }
+
+    private static byte[] readPem(Resource resource) throws IOException {
+        try (InputStream in = resource.getInputStream()) {
+            String pem = new String(in.readAllBytes(), StandardCharsets.US_ASCII);
+            String base64 = pem.replaceAll("-----(BEGIN|END) [A-Z ]+-----", "").replaceAll("\\s", "");
+            return Base64.getDecoder().decode(base64);
+        }
+    }
+
+    private static String base64Url(BigInteger value) {
+        byte[] bytes = value.toByteArray();
+        if (bytes.length > 1 && bytes[0] == 0) {
+            byte[] unsigned = new byte[bytes.length - 1];
+            System.arraycopy(bytes, 1, unsigned, 0, unsigned.length);
+            bytes = unsigned;
+        }
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(bytes);
+    }
+}
@@ -0,0 +1,67 @@
+package com.ecommerce.security;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.core.io.Resource;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * RSA key ring used to sign access tokens. Keys without a private key are kept for verification
+ * and published in the JWKS document, which lets old and new keys overlap during rotation.
+ */
+@Component
+@ConfigurationProperties(prefix = "jwt.signing")
+public class JwtSigningProperties {
+
+    private String activeKeyId;
+
+    private List<Key> keys = new ArrayList<>();
+
+    public String getActiveKeyId() {
+        return activeKeyId;
+    }
+
+    public void setActiveKeyId(String activeKeyId) {
+        this.activeKeyId = activeKeyId;
+    }
+
+    public List<Key> getKeys() {
+        return keys;
+    }
+
+    public void setKeys(List<Key> keys) {
+        this.keys = keys;
+    }
+
+    public static class Key {
+        private String id;
+        private Resource privateKey;
+        private Resource publicKey;
+
+        public String getId() {
+            return id;
+        }
+
+        public void setId(String id) {
+            this.id = id;
+        }
+
+        public Resource getPrivateKey() {
+            return privateKey;
+        }
+
+        public void setPrivateKey(Resource privateKey) {
+            this.privateKey = privateKey;
+        }
+
+        public Resource getPublicKey() {
+            return publicKey;
+        }
+
+        public void setPublicKey(Resource publicKey) {
+            this.publicKey = publicKey;
+        }
+    }
+}
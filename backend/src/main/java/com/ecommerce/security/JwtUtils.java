@@ -1,68 +1,107 @@
 package com.ecommerce.security;
 
 import io.jsonwebtoken.*;
-import io.jsonwebtoken.security.Keys;
-import org.slf4j.Logger;
-import org.slf4j.LoggerFactory;
+import io.jsonwebtoken.security.SignatureException;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.security.core.Authentication;
 import org.springframework.stereotype.Component;
 
-import javax.crypto.SecretKey;
-import java.nio.charset.StandardCharsets;
+import java.security.Key;
 import java.util.Date;
+import java.util.List;
+import java.util.UUID;
+import java.util.stream.Collectors;
 
 @Component
 public class JwtUtils {
-    private static final Logger logger = LoggerFactory.getLogger(JwtUtils.class);
 
-    @Value("${jwt.secret}")
-    private String jwtSecret;
+    static final String CLAIM_USER_ID = "uid";
+    static final String CLAIM_EMAIL = "email";
+    static final String CLAIM_ROLES = "roles";
+
+    @Autowired
+    private JwtKeyRing keyRing;
+
+    @Value("${jwt.issuer}")
+    private String issuer;
 
     @Value("${jwt.expiration}")
     private int jwtExpirationMs;
 
-    private SecretKey getSigningKey() {
-        return Keys.hmacShaKeyFor(jwtSecret.getBytes(StandardCharsets.UTF_8));
+    private volatile JwtParser parser;
+
+    private JwtParser getParser() {
+        JwtParser jwtParser = parser;
+        if (jwtParser == null) {
+            jwtParser = Jwts.parserBuilder()
+                    .setSigningKeyResolver(new SigningKeyResolverAdapter() {
+                        // The adapter declares the raw type; JwsHeader<?> would not override it
+                        @Override
+                        @SuppressWarnings("rawtypes")
+                        public Key resolveSigningKey(JwsHeader header, Claims claims) {
+                            return resolveVerificationKey(header.getKeyId());
+                        }
+                    })
+                    .build();
+            parser = jwtParser;
+        }
+        return jwtParser;
+    }
+
+    private Key resolveVerificationKey(String keyId) {
+        Key key = keyId != null ? keyRing.getVerificationKey(keyId) : keyRing.getHmacKey();
+        if (key == null) {
+            throw new SignatureException("Unknown JWT signing key: " + keyId);
+        }
+        return key;
     }
 
     public String generateJwtToken(Authentication authentication) {
-        UserPrincipal userPrincipal = (UserPrincipal) authentication.getPrincipal();
+        return generateJwtToken((UserPrincipal) authentication.getPrincipal());
+    }
+
+    public String generateJwtToken(UserPrincipal userPrincipal) {
+        List<String> roles = userPrincipal.getAuthorities().stream()
+                .map(item -> item.getAuthority())
+                .collect(Collectors.toList());
 
-        return Jwts.builder()
+        JwtBuilder builder = Jwts.builder()
+                .setId(UUID.randomUUID().toString())
+                .setIssuer(issuer)
                 .setSubject((userPrincipal.getUsername()))
+                .claim(CLAIM_USER_ID, userPrincipal.getId())
+                .claim(CLAIM_EMAIL, userPrincipal.getEmail())
+                .claim(CLAIM_ROLES, roles)
                 .setIssuedAt(new Date())
-                .setExpiration(new Date((new Date()).getTime() + jwtExpirationMs))
-                .signWith(getSigningKey())
-                .compact();
-    }
+                .setExpiration(new Date((new Date()).getTime() + jwtExpirationMs));
 
-    public String getUserNameFromJwtToken(String token) {
-        return Jwts.parserBuilder()
-                .setSigningKey(getSigningKey())
-                .build()
-                .parseClaimsJws(token)
-                .getBody()
-                .getSubject();
+        if (keyRing.isAsymmetric()) {
+            builder.setHeaderParam(JwsHeader.KEY_ID, keyRing.getActiveKeyId())
+                    .signWith(keyRing.getActivePrivateKey(), SignatureAlgorithm.RS256);
+        } else {
+            builder.signWith(keyRing.getHmacKey());
+        }
+
+        return builder.compact();
     }
 
-    public boolean validateJwtToken(String authToken) {
-        try {
-            Jwts.parserBuilder()
-                .setSigningKey(getSigningKey())
-                .build()
-                .parseClaimsJws(authToken);
-            return true;
-        } catch (MalformedJwtException e) {
-            logger.error("Invalid JWT token: {}", e.getMessage());
-        } catch (ExpiredJwtException e) {
-            logger.error("JWT token is expired: {}", e.getMessage());
-        } catch (UnsupportedJwtException e) {
-            logger.error("JWT token is unsupported: {}", e.getMessage());
-        } catch (IllegalArgumentException e) {
-            logger.error("JWT claims string is empty: {}", e.getMessage());
-        }
+    /**
+     * Parses and verifies the token in a single pass.
+     *
+     * @throws JwtException if the token is malformed, expired or carries a bad signature
+     */
+    public VerifiedToken parseVerifiedToken(String token) {
+        Claims claims = getParser().parseClaimsJws(token).getBody();
+        List<?> roles = claims.get(CLAIM_ROLES, List.class);
 
-        return false;
+        return new VerifiedToken(
+                claims.getId(),
+                claims.getSubject(),
+                claims.get(CLAIM_USER_ID, String.class),
+                claims.get(CLAIM_EMAIL, String.class),
+                roles != null ? roles.stream().map(String::valueOf).collect(Collectors.toList()) : null,
+                claims.getIssuedAt() != null ? claims.getIssuedAt().toInstant() : null,
+                claims.getExpiration() != null ? claims.getExpiration().toInstant() : null);
     }
-}
\ No newline at end of file
+}
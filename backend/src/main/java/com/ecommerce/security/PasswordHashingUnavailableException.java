@@ -0,0 +1,11 @@
+package com.ecommerce.security;
+
+/**
+ * Thrown when the password hashing executor is saturated and cannot accept more work.
+ */
+public class PasswordHashingUnavailableException extends RuntimeException {
+
+    public PasswordHashingUnavailableException(String message) {
+        super(message);
+    }
+}
@@ -0,0 +1,122 @@
+package com.ecommerce.security;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.util.AntPathMatcher;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Per-route request throttling keyed by client IP or authenticated user. Requests over the limit
+ * are answered with {@code 429} and a {@code Retry-After} header.
+ */
+public class RateLimitFilter extends OncePerRequestFilter {
+
+    private static final byte[] TOO_MANY_REQUESTS_BODY =
+            "{\"message\":\"Error: Too many requests, please retry later\"}".getBytes(StandardCharsets.UTF_8);
+
+    @Autowired
+    private RateLimitProperties properties;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    private final AntPathMatcher pathMatcher = new AntPathMatcher();
+
+    private final List<LimitedRoute> routes = new ArrayList<>();
+
+    @PostConstruct
+    void init() {
+        for (RateLimitProperties.Route route : properties.getRoutes()) {
+            TokenBucketLimiter limiter = new TokenBucketLimiter(route.getCapacity(), route.getRefillPerSecond(),
+                    properties.getStripes(), properties.getMaxKeysPerStripe());
+            Counter rejected = Counter.builder("rate_limit.rejected")
+                    .tag("route", route.getName())
+                    .register(meterRegistry);
+            routes.add(new LimitedRoute(route, limiter, rejected));
+        }
+    }
+
+    @Override
+    protected boolean shouldNotFilter(HttpServletRequest request) {
+        return !properties.isEnabled() || routes.isEmpty();
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain filterChain)
+            throws ServletException, IOException {
+        LimitedRoute route = match(request);
+        if (route != null) {
+            long waitNanos = route.limiter.tryAcquire(clientKey(request, route.config.getKey()), System.nanoTime());
+            if (waitNanos > 0) {
+                route.rejected.increment();
+                long retryAfterSeconds = Math.max(1, (waitNanos + 999_999_999L) / 1_000_000_000L);
+                response.setStatus(HttpStatus.TOO_MANY_REQUESTS.value());
+                response.setHeader(HttpHeaders.RETRY_AFTER, Long.toString(retryAfterSeconds));
+                response.setContentType(MediaType.APPLICATION_JSON_VALUE);
+                response.getOutputStream().write(TOO_MANY_REQUESTS_BODY);
+                return;
+            }
+        }
+
+        filterChain.doFilter(request, response);
+    }
+
+    @Scheduled(fixedDelayString = "${rate-limit.eviction-interval-ms:30000}")
+    public void evictIdleBuckets() {
+        long now = System.nanoTime();
+        for (LimitedRoute route : routes) {
+            route.limiter.evictIdle(now);
+        }
+    }
+
+    private LimitedRoute match(HttpServletRequest request) {
+        String path = request.getServletPath();
+        for (LimitedRoute route : routes) {
+            String method = route.config.getMethod();
+            if ((method == null || method.equalsIgnoreCase(request.getMethod()))
+                    && pathMatcher.match(route.config.getPattern(), path)) {
+                return route;
+            }
+        }
+        return null;
+    }
+
+    private static String clientKey(HttpServletRequest request, RateLimitProperties.KeyType keyType) {
+        if (keyType == RateLimitProperties.KeyType.USER_OR_IP) {
+            Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
+            if (authentication != null && authentication.getPrincipal() instanceof UserPrincipal userPrincipal) {
+                return "u:" + userPrincipal.getId();
+            }
+        }
+        return request.getRemoteAddr();
+    }
+
+    private static final class LimitedRoute {
+        final RateLimitProperties.Route config;
+        final TokenBucketLimiter limiter;
+        final Counter rejected;
+
+        LimitedRoute(RateLimitProperties.Route config, TokenBucketLimiter limiter, Counter rejected) {
+            this.config = config;
+            this.limiter = limiter;
+            this.rejected = rejected;
+        }
+    }
+}
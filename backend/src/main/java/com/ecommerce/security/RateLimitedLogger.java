@@ -0,0 +1,49 @@
+package com.ecommerce.security;
+
+import org.slf4j.Logger;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Lets through at most a fixed number of log lines per interval and reports how many were
+ * dropped, so a flood of bad requests cannot turn into a flood of log I/O.
+ */
+final class RateLimitedLogger {
+
+    private final Logger logger;
+    private final int maxPerInterval;
+    private final long intervalNanos;
+    private final AtomicLong windowStart = new AtomicLong(System.nanoTime());
+    private final AtomicInteger logged = new AtomicInteger();
+    private final AtomicInteger suppressed = new AtomicInteger();
+
+    RateLimitedLogger(Logger logger, int maxPerInterval, long interval, TimeUnit unit) {
+        this.logger = logger;
+        this.maxPerInterval = maxPerInterval;
+        this.intervalNanos = unit.toNanos(interval);
+    }
+
+    void warn(String format, Object... arguments) {
+        if (!logger.isWarnEnabled()) {
+            return;
+        }
+
+        long now = System.nanoTime();
+        long start = windowStart.get();
+        if (now - start >= intervalNanos && windowStart.compareAndSet(start, now)) {
+            logged.set(0);
+            int dropped = suppressed.getAndSet(0);
+            if (dropped > 0) {
+                logger.warn("Suppressed {} similar messages", dropped);
+            }
+        }
+
+        if (logged.incrementAndGet() <= maxPerInterval) {
+            logger.warn(format, arguments);
+        } else {
+            suppressed.incrementAndGet();
+        }
+    }
+}
@@ -0,0 +1,116 @@
+package com.ecommerce.security;
+
+import com.ecommerce.model.RefreshToken;
+import com.ecommerce.repository.RefreshTokenRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.stereotype.Service;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.security.SecureRandom;
+import java.time.LocalDateTime;
+import java.util.Base64;
+import java.util.HexFormat;
+import java.util.UUID;
+
+/**
+ * Issues opaque, single-use refresh tokens. Every refresh consumes the presented token and issues
+ * a new one in the same family; presenting an already used token revokes the whole family.
+ */
+@Service
+public class RefreshTokenService {
+    private static final Logger logger = LoggerFactory.getLogger(RefreshTokenService.class);
+
+    private final SecureRandom secureRandom = new SecureRandom();
+
+    @Autowired
+    private RefreshTokenRepository refreshTokenRepository;
+
+    @Value("${jwt.refresh.expiry-days:30}")
+    private int expiryDays;
+
+    public String issue(UserPrincipal userPrincipal) {
+        return issue(userPrincipal.getId(), userPrincipal.getUsername(), UUID.randomUUID().toString());
+    }
+
+    /**
+     * Consumes the presented refresh token and returns the one replacing it.
+     *
+     * @throws InvalidRefreshTokenException if the token is unknown, expired or was already used
+     */
+    public Rotation rotate(String presentedToken) {
+        RefreshToken current = refreshTokenRepository.findById(hash(presentedToken))
+                .orElseThrow(() -> new InvalidRefreshTokenException("Refresh token is not valid"));
+
+        if (current.getExpiresAt().isBefore(LocalDateTime.now())) {
+            throw new InvalidRefreshTokenException("Refresh token has expired");
+        }
+
+        if (current.isUsed()) {
+            logger.warn("Refresh token reuse detected for user {}, revoking token family", current.getUsername());
+            revokeFamily(current.getFamilyId());
+            throw new InvalidRefreshTokenException("Refresh token has already been used");
+        }
+
+        current.setUsed(true);
+        try {
+            refreshTokenRepository.save(current);
+        } catch (OptimisticLockingFailureException e) {
+            throw new InvalidRefreshTokenException("Refresh token has already been used");
+        }
+
+        String replacement = issue(current.getUserId(), current.getUsername(), current.getFamilyId());
+        return new Rotation(current.getUsername(), replacement);
+    }
+
+    public void revoke(String presentedToken) {
+        refreshTokenRepository.findById(hash(presentedToken))
+                .ifPresent(token -> revokeFamily(token.getFamilyId()));
+    }
+
+    private void revokeFamily(String familyId) {
+        refreshTokenRepository.deleteAll(refreshTokenRepository.findByFamilyId(familyId));
+    }
+
+    private String issue(String userId, String username, String familyId) {
+        byte[] bytes = new byte[32];
+        secureRandom.nextBytes(bytes);
+        String token = Base64.getUrlEncoder().withoutPadding().encodeToString(bytes);
+
+        refreshTokenRepository.save(new RefreshToken(hash(token), familyId, userId, username,
+                LocalDateTime.now().plusDays(expiryDays)));
+        return token;
+    }
+
+    private static String hash(String token) {
+        try {
+            MessageDigest sha256 = MessageDigest.getInstance("SHA-256");
+            return HexFormat.of().formatHex(sha256.digest(token.getBytes(StandardCharsets.US_ASCII)));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 not available", e);
+        }
+    }
+
+    public static class Rotation {
+        private final String username;
+        private final String refreshToken;
+
+        Rotation(String username, String refreshToken) {
+            this.username = username;
+            this.refreshToken = refreshToken;
+        }
+
+        public String getUsername() {
+            return username;
+        }
+
+        public String getRefreshToken() {
+            return refreshToken;
+        }
+    }
+}
@@ -0,0 +1,88 @@
+package com.ecommerce.security;
+
+import java.util.Iterator;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Lock-free token buckets, one per client key, implemented as a generic cell rate algorithm: each
+ * bucket is a single {@code AtomicLong} holding the theoretical arrival time of the next request,
+ * and a request is admitted with one CAS.
+ * <p>
+ * Buckets live in independent stripes so that concurrent requests rarely touch the same map
+ * segment. Each stripe holds a bounded number of keys; once full, new keys share the stripe's
+ * overflow bucket until idle buckets are evicted.
+ */
+final class TokenBucketLimiter {
+
+    private final long emissionIntervalNanos;
+    private final long burstNanos;
+    private final int maxKeysPerStripe;
+    private final int stripeMask;
+    private final Stripe[] stripes;
+
+    TokenBucketLimiter(int capacity, double refillPerSecond, int stripeCount, int maxKeysPerStripe) {
+        this.emissionIntervalNanos = (long) (1_000_000_000L / refillPerSecond);
+        this.burstNanos = emissionIntervalNanos * capacity;
+        this.maxKeysPerStripe = maxKeysPerStripe;
+
+        int size = Integer.highestOneBit(Math.max(1, stripeCount - 1) << 1);
+        this.stripeMask = size - 1;
+        this.stripes = new Stripe[size];
+        for (int i = 0; i < size; i++) {
+            stripes[i] = new Stripe();
+        }
+    }
+
+    /**
+     * @return 0 if the request is admitted, otherwise the nanoseconds until it would be
+     */
+    long tryAcquire(String key, long nowNanos) {
+        AtomicLong bucket = bucketFor(key);
+        while (true) {
+            long tat = bucket.get();
+            long newTat = Math.max(tat, nowNanos) + emissionIntervalNanos;
+            long excess = newTat - nowNanos - burstNanos;
+            if (excess > 0) {
+                return excess;
+            }
+            if (bucket.compareAndSet(tat, newTat)) {
+                return 0;
+            }
+        }
+    }
+
+    /**
+     * Drops buckets that have refilled completely; they behave exactly like a new bucket.
+     */
+    void evictIdle(long nowNanos) {
+        for (Stripe stripe : stripes) {
+            Iterator<Map.Entry<String, AtomicLong>> iterator = stripe.buckets.entrySet().iterator();
+            while (iterator.hasNext()) {
+                if (iterator.next().getValue().get() <= nowNanos) {
+                    iterator.remove();
+                }
+            }
+        }
+    }
+
+    private AtomicLong bucketFor(String key) {
+        int hash = key.hashCode();
+        Stripe stripe = stripes[(hash ^ (hash >>> 16)) & stripeMask];
+
+        AtomicLong bucket = stripe.buckets.get(key);
+        if (bucket != null) {
+            return bucket;
+        }
+        if (stripe.buckets.size() >= maxKeysPerStripe) {
+            return stripe.overflow;
+        }
+        return stripe.buckets.computeIfAbsent(key, k -> new AtomicLong(Long.MIN_VALUE));
+    }
+
+    private static final class Stripe {
+        final ConcurrentHashMap<String, AtomicLong> buckets = new ConcurrentHashMap<>();
+        final AtomicLong overflow = new AtomicLong(Long.MIN_VALUE);
+    }
+}
@@ -0,0 +1,180 @@
+package com.ecommerce.security;
+
+import com.couchbase.client.core.error.CouchbaseException;
+import com.couchbase.client.core.error.DocumentNotFoundException;
+import com.couchbase.client.java.Collection;
+import com.couchbase.client.java.json.JsonObject;
+import com.couchbase.client.java.kv.MutateInSpec;
+import com.couchbase.client.java.kv.StoreSemantics;
+import com.ecommerce.cluster.ClusterEventBus;
+import jakarta.annotation.PostConstruct;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.couchbase.core.CouchbaseTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import static com.couchbase.client.java.kv.MutateInOptions.mutateInOptions;
+
+/**
+ * In-memory set of revoked access token ids ({@code jti}). A Bloom filter answers the common
+ * "not revoked" case without touching the exact set; entries are dropped once the token they
+ * revoke has expired. Revocations are shared with other replicas through the
+ * {@link ClusterEventBus}.
+ * <p>
+ * The bus only replays recent events to a replica that starts up, so every revocation is also
+ * recorded in one KV document, read in full at startup. Entries are removed from it once their
+ * token has expired.
+ */
+@Component
+public class TokenRevocationList {
+
+    private static final Logger logger = LoggerFactory.getLogger(TokenRevocationList.class);
+
+    static final String TOKEN_REVOKED_TOPIC = "token-revoked";
+
+    public static final String REVOCATIONS_KEY = "token-revocations";
+    private static final String REVOKED = "revoked";
+    // Sub-document operations allowed in one request
+    private static final int MAX_SPECS = 16;
+
+    @Autowired
+    private ClusterEventBus clusterEventBus;
+
+    @Autowired
+    private CouchbaseTemplate couchbaseTemplate;
+
+    @Value("${jwt.revocation.expected-entries:100000}")
+    private int expectedEntries;
+
+    @Value("${jwt.revocation.false-positive-rate:0.001}")
+    private double falsePositiveRate;
+
+    private final Map<String, Long> revoked = new ConcurrentHashMap<>();
+
+    private volatile BloomFilter filter;
+
+    private volatile boolean loaded;
+
+    @PostConstruct
+    void init() {
+        filter = new BloomFilter(expectedEntries, falsePositiveRate);
+        clusterEventBus.subscribe(TOKEN_REVOKED_TOPIC, this::onRemoteRevocation);
+        load();
+    }
+
+    public boolean isRevoked(String tokenId) {
+        return filter.mightContain(tokenId) && revoked.containsKey(tokenId);
+    }
+
+    public void revoke(String tokenId, Instant expiresAt) {
+        add(tokenId, expiresAt.getEpochSecond());
+        try {
+            collection().mutateIn(REVOCATIONS_KEY,
+                    List.of(MutateInSpec.upsert(path(tokenId), expiresAt.getEpochSecond()).createPath()),
+                    mutateInOptions().storeSemantics(StoreSemantics.UPSERT));
+        } catch (CouchbaseException e) {
+            logger.warn("Could not record revocation of token {}: {}", tokenId, e.getMessage());
+        }
+        clusterEventBus.publish(TOKEN_REVOKED_TOPIC, tokenId + ":" + expiresAt.getEpochSecond());
+    }
+
+    private void onRemoteRevocation(String payload) {
+        int separator = payload.lastIndexOf(':');
+        add(payload.substring(0, separator), Long.parseLong(payload.substring(separator + 1)));
+    }
+
+    private void add(String tokenId, long expiresAtEpochSecond) {
+        if (expiresAtEpochSecond > Instant.now().getEpochSecond()) {
+            revoked.put(tokenId, expiresAtEpochSecond);
+            filter.add(tokenId);
+        }
+    }
+
+    /**
+     * Drops revocations for tokens that have expired anyway and rebuilds the Bloom filter, which
+     * cannot remove entries on its own.
+     */
+    @Scheduled(fixedDelayString = "${jwt.revocation.purge-interval-ms:60000}")
+    public void purgeExpired() {
+        if (!loaded) {
+            load();
+        }
+        purgeStored();
+
+        long now = Instant.now().getEpochSecond();
+        if (!revoked.values().removeIf(expiresAt -> expiresAt <= now)) {
+            return;
+        }
+
+        BloomFilter rebuilt = new BloomFilter(expectedEntries, falsePositiveRate);
+        revoked.keySet().forEach(rebuilt::add);
+        filter = rebuilt;
+        // Catch revocations that raced with the rebuild
+        revoked.keySet().forEach(rebuilt::add);
+    }
+
+    private void load() {
+        try {
+            JsonObject stored = collection().get(REVOCATIONS_KEY).contentAsObject().getObject(REVOKED);
+            if (stored != null) {
+                for (String tokenId : stored.getNames()) {
+                    add(tokenId, stored.getLong(tokenId));
+                }
+            }
+            loaded = true;
+        } catch (DocumentNotFoundException e) {
+            loaded = true;
+        } catch (CouchbaseException e) {
+            logger.warn("Could not load token revocations, retrying on the next purge: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * Removes expired entries from the stored document. Replicas purge concurrently, so a batch
+     * that names an entry already removed fails and is left for the next run.
+     */
+    private void purgeStored() {
+        try {
+            JsonObject stored = collection().get(REVOCATIONS_KEY).contentAsObject().getObject(REVOKED);
+            if (stored == null) {
+                return;
+            }
+
+            long now = Instant.now().getEpochSecond();
+            List<MutateInSpec> batch = new ArrayList<>();
+            for (String tokenId : stored.getNames()) {
+                if (stored.getLong(tokenId) <= now) {
+                    batch.add(MutateInSpec.remove(path(tokenId)));
+                }
+                if (batch.size() == MAX_SPECS) {
+                    collection().mutateIn(REVOCATIONS_KEY, batch);
+                    batch = new ArrayList<>();
+                }
+            }
+            if (!batch.isEmpty()) {
+                collection().mutateIn(REVOCATIONS_KEY, batch);
+            }
+        } catch (DocumentNotFoundException e) {
+            // nothing revoked yet
+        } catch (CouchbaseException e) {
+            logger.debug("Could not purge stored token revocations: {}", e.getMessage());
+        }
+    }
+
+    private static String path(String tokenId) {
+        return REVOKED + ".`" + tokenId + "`";
+    }
+
+    private Collection collection() {
+        return couchbaseTemplate.getCouchbaseClientFactory().getDefaultCollection();
+    }
+}
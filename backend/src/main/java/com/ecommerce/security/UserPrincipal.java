@@ -15,14 +15,21 @@ public class UserPrincipal implements UserDetails {
     private String email;
     private String password;
     private Collection<? extends GrantedAuthority> authorities;
+    private boolean enabled;
 
     public UserPrincipal(String id, String username, String email, String password, 
                         Collection<? extends GrantedAuthority> authorities) {
+        this(id, username, email, password, authorities, true);
+    }
+
+    public UserPrincipal(String id, String username, String email, String password,
+                        Collection<? extends GrantedAuthority> authorities, boolean enabled) {
         this.id = id;
         this.username = username;
         this.email = email;
         this.password = password;
         this.authorities = authorities;
+        this.enabled = enabled;
     }
 
     public static UserPrincipal create(User user) {
@@ -35,6 +42,24 @@ public class UserPrincipal implements UserDetails {
                 user.getUsername(),
                 user.getEmail(),
                 user.getPassword(),
+                authorities,
+                user.isActive()
+        );
+    }
+
+    /**
+     * Rebuilds the principal from verified token claims without touching the database.
+     */
+    public static UserPrincipal create(VerifiedToken token) {
+        List<GrantedAuthority> authorities = token.getRoles().stream()
+                .map(SimpleGrantedAuthority::new)
+                .collect(Collectors.toList());
+
+        return new UserPrincipal(
+                token.getUserId(),
+                token.getSubject(),
+                token.getEmail(),
+                null,
                 authorities
         );
     }
@@ -79,6 +104,6 @@ public class UserPrincipal implements UserDetails {
 
     @Override
     public boolean isEnabled() {
-        return true;
+        return enabled;
     }
 }
\ No newline at end of file
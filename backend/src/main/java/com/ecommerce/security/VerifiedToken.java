@@ -0,0 +1,67 @@
+package com.ecommerce.security;
+
+import java.time.Instant;
+import java.util.List;
+
+/**
+ * Immutable view of a JWT whose signature and expiry have already been checked.
+ */
+public final class VerifiedToken {
+    private final String tokenId;
+    private final String subject;
+    private final String userId;
+    private final String email;
+    private final List<String> roles;
+    private final Instant issuedAt;
+    private final Instant expiresAt;
+
+    public VerifiedToken(String tokenId, String subject, String userId, String email, List<String> roles,
+                         Instant issuedAt, Instant expiresAt) {
+        this.tokenId = tokenId;
+        this.subject = subject;
+        this.userId = userId;
+        this.email = email;
+        this.roles = roles != null ? List.copyOf(roles) : null;
+        this.issuedAt = issuedAt;
+        this.expiresAt = expiresAt;
+    }
+
+    public String getTokenId() {
+        return tokenId;
+    }
+
+    public String getSubject() {
+        return subject;
+    }
+
+    public String getUserId() {
+        return userId;
+    }
+
+    public String getEmail() {
+        return email;
+    }
+
+    /**
+     * Granted authority names, or {@code null} for tokens issued before roles were embedded.
+     */
+    public List<String> getRoles() {
+        return roles;
+    }
+
+    public boolean hasPrincipalClaims() {
+        return userId != null && roles != null;
+    }
+
+    public Instant getIssuedAt() {
+        return issuedAt;
+    }
+
+    public Instant getExpiresAt() {
+        return expiresAt;
+    }
+
+    public boolean isExpired(Instant now) {
+        return expiresAt != null && !expiresAt.isAfter(now);
+    }
+}
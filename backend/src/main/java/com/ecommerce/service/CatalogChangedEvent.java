@@ -0,0 +1,18 @@
+package com.ecommerce.service;
+
+/**
+ * Published locally when any number of products may have been written at once, such as by a bulk
+ * import, instead of one {@link ProductChangedEvent} per product. In-memory product views reload
+ * in full.
+ */
+public class CatalogChangedEvent {
+    private final boolean remote;
+
+    public CatalogChangedEvent(boolean remote) {
+        this.remote = remote;
+    }
+
+    public boolean isRemote() {
+        return remote;
+    }
+}
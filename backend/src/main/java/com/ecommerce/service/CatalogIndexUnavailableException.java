@@ -0,0 +1,8 @@
+package com.ecommerce.service;
+
+public class CatalogIndexUnavailableException extends RuntimeException {
+
+    public CatalogIndexUnavailableException(String message) {
+        super(message);
+    }
+}
@@ -0,0 +1,63 @@
+package com.ecommerce.service;
+
+import com.ecommerce.dto.ProductSummary;
+import com.ecommerce.model.Product;
+
+import java.time.Instant;
+import java.util.List;
+
+/**
+ * Immutable catalog-wide lists served to every visitor: featured products, categories and brands.
+ */
+public final class CatalogSnapshot {
+    private final long generation;
+    private final String etag;
+    private final Instant builtAt;
+    private final List<Product> featured;
+    private final List<ProductSummary> featuredSummaries;
+    private final List<String> categories;
+    private final List<String> brands;
+
+    public CatalogSnapshot(long generation, String etag, Instant builtAt, List<Product> featured,
+                           List<String> categories, List<String> brands) {
+        this.generation = generation;
+        this.etag = etag;
+        this.builtAt = builtAt;
+        this.featured = List.copyOf(featured);
+        this.featuredSummaries = featured.stream().map(ProductSummary::from).toList();
+        this.categories = List.copyOf(categories);
+        this.brands = List.copyOf(brands);
+    }
+
+    public long getGeneration() {
+        return generation;
+    }
+
+    /**
+     * Strong validator derived from the snapshot's content, so it is equal on every replica that
+     * holds the same catalog and survives rebuilds that change nothing.
+     */
+    public String getEtag() {
+        return etag;
+    }
+
+    public Instant getBuiltAt() {
+        return builtAt;
+    }
+
+    public List<Product> getFeatured() {
+        return featured;
+    }
+
+    public List<ProductSummary> getFeaturedSummaries() {
+        return featuredSummaries;
+    }
+
+    public List<String> getCategories() {
+        return categories;
+    }
+
+    public List<String> getBrands() {
+        return brands;
+    }
+}
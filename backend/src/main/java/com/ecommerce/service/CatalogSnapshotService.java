@@ -0,0 +1,109 @@
+package com.ecommerce.service;
+
+import com.ecommerce.model.Product;
+import com.ecommerce.repository.ProductRepository;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Instant;
+import java.util.Arrays;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Keeps the featured products, categories and brands in memory. The lists are rebuilt in the
+ * background on a schedule and shortly after any product write, then swapped in atomically, so
+ * page views never wait on the catalog-wide queries.
+ */
+@Service
+public class CatalogSnapshotService {
+    private static final Logger logger = LoggerFactory.getLogger(CatalogSnapshotService.class);
+
+    @Autowired
+    private ProductRepository productRepository;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    private final AtomicReference<CatalogSnapshot> snapshot = new AtomicReference<>();
+
+    private final AtomicBoolean stale = new AtomicBoolean();
+
+    private final AtomicLong generations = new AtomicLong();
+
+    public CatalogSnapshot getSnapshot() {
+        CatalogSnapshot current = snapshot.get();
+        return current != null ? current : rebuild();
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void onApplicationReady() {
+        refresh();
+    }
+
+    @EventListener
+    public void onProductChanged(ProductChangedEvent event) {
+        stale.set(true);
+    }
+
+    @EventListener
+    public void onCatalogChanged(CatalogChangedEvent event) {
+        stale.set(true);
+    }
+
+    @Scheduled(fixedDelayString = "${catalog.snapshot.write-delay-ms:1000}")
+    public void refreshIfStale() {
+        if (stale.getAndSet(false)) {
+            refresh();
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${catalog.snapshot.refresh-interval-ms:300000}",
+            initialDelayString = "${catalog.snapshot.refresh-interval-ms:300000}")
+    public void refresh() {
+        try {
+            rebuild();
+        } catch (RuntimeException e) {
+            stale.set(true);
+            logger.warn("Could not rebuild catalog snapshot: {}", e.getMessage());
+        }
+    }
+
+    private CatalogSnapshot rebuild() {
+        List<Product> featured = productRepository.findFeaturedProducts();
+        List<String> categories = withoutNulls(productRepository.findAllCategories());
+        List<String> brands = withoutNulls(productRepository.findAllBrands());
+
+        CatalogSnapshot rebuilt = new CatalogSnapshot(generations.incrementAndGet(),
+                etag(featured, categories, brands), Instant.now(), featured, categories, brands);
+        snapshot.set(rebuilt);
+        return rebuilt;
+    }
+
+    private String etag(List<Product> featured, List<String> categories, List<String> brands) {
+        try {
+            byte[] content = objectMapper.writeValueAsBytes(List.of(featured, categories, brands));
+            byte[] digest = MessageDigest.getInstance("SHA-256").digest(content);
+            return "\"" + HexFormat.of().formatHex(Arrays.copyOf(digest, 16)) + "\"";
+        } catch (JsonProcessingException | NoSuchAlgorithmException e) {
+            throw new IllegalStateException("Could not compute catalog snapshot ETag", e);
+        }
+    }
+
+    private static List<String> withoutNulls(List<String> values) {
+        return values.stream().filter(Objects::nonNull).toList();
+    }
+}
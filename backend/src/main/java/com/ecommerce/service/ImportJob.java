@@ -0,0 +1,138 @@
+package com.ecommerce.service;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Progress of one bulk product import. Counters are updated concurrently by the batch writers
+ * while the request thread is still reading rows.
+ */
+public class ImportJob {
+
+    public enum Status { PENDING, RUNNING, COMPLETED, FAILED }
+
+    private final String id;
+    private final Instant createdAt;
+    private final int maxReportedErrors;
+    private final AtomicLong rowsRead = new AtomicLong();
+    private final AtomicLong rowsImported = new AtomicLong();
+    private final AtomicLong rowsFailed = new AtomicLong();
+    private final List<RowError> errors = new ArrayList<>();
+
+    private volatile Status status = Status.PENDING;
+    private volatile ProductFeedFormat format;
+    private volatile Instant startedAt;
+    private volatile Instant finishedAt;
+    private volatile String message;
+
+    public ImportJob(String id, int maxReportedErrors) {
+        this.id = id;
+        this.createdAt = Instant.now();
+        this.maxReportedErrors = maxReportedErrors;
+    }
+
+    void start(ProductFeedFormat format) {
+        this.format = format;
+        this.startedAt = Instant.now();
+        this.status = Status.RUNNING;
+    }
+
+    void finish(Status status, String message) {
+        this.message = message;
+        this.finishedAt = Instant.now();
+        this.status = status;
+    }
+
+    void rowRead() {
+        rowsRead.incrementAndGet();
+    }
+
+    void rowsImported(int count) {
+        rowsImported.addAndGet(count);
+    }
+
+    void rowFailed(long line, String productId, String message) {
+        rowsFailed.incrementAndGet();
+        synchronized (errors) {
+            if (errors.size() < maxReportedErrors) {
+                errors.add(new RowError(line, productId, message));
+            }
+        }
+    }
+
+    public String getId() {
+        return id;
+    }
+
+    public Status getStatus() {
+        return status;
+    }
+
+    public ProductFeedFormat getFormat() {
+        return format;
+    }
+
+    public Instant getCreatedAt() {
+        return createdAt;
+    }
+
+    public Instant getStartedAt() {
+        return startedAt;
+    }
+
+    public Instant getFinishedAt() {
+        return finishedAt;
+    }
+
+    public String getMessage() {
+        return message;
+    }
+
+    public long getRowsRead() {
+        return rowsRead.get();
+    }
+
+    public long getRowsImported() {
+        return rowsImported.get();
+    }
+
+    public long getRowsFailed() {
+        return rowsFailed.get();
+    }
+
+    /**
+     * The first {@code product-import.max-reported-errors} row errors; {@link #getRowsFailed()}
+     * counts all of them.
+     */
+    public List<RowError> getErrors() {
+        synchronized (errors) {
+            return List.copyOf(errors);
+        }
+    }
+
+    public static class RowError {
+        private final long line;
+        private final String productId;
+        private final String message;
+
+        RowError(long line, String productId, String message) {
+            this.line = line;
+            this.productId = productId;
+            this.message = message;
+        }
+
+        public long getLine() {
+            return line;
+        }
+
+        public String getProductId() {
+            return productId;
+        }
+
+        public String getMessage() {
+            return message;
+        }
+    }
+}
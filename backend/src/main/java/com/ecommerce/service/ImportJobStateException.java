@@ -0,0 +1,8 @@
+package com.ecommerce.service;
+
+public class ImportJobStateException extends RuntimeException {
+
+    public ImportJobStateException(String message) {
+        super(message);
+    }
+}
@@ -0,0 +1,571 @@
+package com.ecommerce.service;
+
+import com.couchbase.client.core.error.CasMismatchException;
+import com.couchbase.client.core.error.CouchbaseException;
+import com.couchbase.client.core.error.DocumentExistsException;
+import com.couchbase.client.core.error.DocumentNotFoundException;
+import com.couchbase.client.java.Collection;
+import com.couchbase.client.java.json.JsonArray;
+import com.couchbase.client.java.json.JsonObject;
+import com.couchbase.client.java.kv.GetResult;
+import com.couchbase.client.java.kv.MutateInSpec;
+import com.ecommerce.dto.InventoryLevel;
+import com.ecommerce.model.Product;
+import com.ecommerce.repository.ProductRepository;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import jakarta.annotation.PostConstruct;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.data.couchbase.core.CouchbaseTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.function.Function;
+import java.util.function.Predicate;
+
+import static com.couchbase.client.java.kv.IncrementOptions.incrementOptions;
+import static com.couchbase.client.java.kv.InsertOptions.insertOptions;
+import static com.couchbase.client.java.kv.RemoveOptions.removeOptions;
+import static com.couchbase.client.java.kv.ReplaceOptions.replaceOptions;
+import static com.couchbase.client.java.query.QueryOptions.queryOptions;
+
+/**
+ * Stock levels kept in counter documents and changed only with atomic sub-document
+ * increments and decrements, so concurrent buyers never read-modify-write the same document.
+ * <p>
+ * A product's stock can be split over several stripes ({@code inventory::<id>::<generation>::<n>})
+ * to spread writes to a hot product over more documents. A reservation decrements a stripe by the wanted
+ * quantity and gives back whatever took the counter below zero, then moves on to the next stripe;
+ * units are only ever kept when the counter held them, so stock cannot be oversold. Under heavy
+ * contention for the last few units a reservation may briefly see less stock than there is.
+ * <p>
+ * Every {@link #reset} writes a new generation of stripes and removes the previous one, so units
+ * given back for a reservation taken before the reset find no stripe and are dropped rather than
+ * added to the new stock. The seeded generation, 0, keeps the {@code inventory::<id>::<n>} keys.
+ * <p>
+ * Reservations hold their units until they are confirmed, released or expire; expired ones are
+ * released by {@link #releaseExpired()}. Counters are seeded from {@link Product#getStockQuantity()}
+ * the first time a product's stock is used and are authoritative from then on: their totals are
+ * written back to the product by {@link #syncStockQuantities()}, so listings, summaries and facets
+ * show the stock that can be reserved.
+ */
+@Service
+public class InventoryService {
+    private static final Logger logger = LoggerFactory.getLogger(InventoryService.class);
+
+    private static final String INVENTORY_KEY_PREFIX = "inventory::";
+    private static final String RESERVATION_KEY_PREFIX = StockReservation.TYPE + "::";
+    private static final String AVAILABLE = "available";
+    private static final String GENERATION = "generation";
+    private static final int MAX_LAYOUT_ATTEMPTS = 5;
+
+    @Autowired
+    private CouchbaseTemplate couchbaseTemplate;
+
+    @Autowired
+    private ProductCache productCache;
+
+    @Autowired
+    private ProductRepository productRepository;
+
+    @Autowired
+    private ProductChangePublisher productChangePublisher;
+
+    @Value("${inventory.default-stripes:1}")
+    private int defaultStripes;
+
+    @Value("${inventory.stripe-cache-ttl:30s}")
+    private Duration stripeCacheTtl;
+
+    @Value("${inventory.reservation.ttl:15m}")
+    private Duration reservationTtl;
+
+    // Extra lifetime of a reservation document past its expiry, so the sweeper can still release it
+    @Value("${inventory.reservation.retention:1d}")
+    private Duration reservationRetention;
+
+    @Value("${inventory.reservation.sweep-batch:500}")
+    private int sweepBatch;
+
+    // Stripe layout per product id; a stale layout is noticed when its stripes are gone
+    private Cache<String, StripeLayout> stripeLayouts;
+
+    // Products whose counters this replica changed since their stock quantity was last written
+    private final Set<String> changedStock = ConcurrentHashMap.newKeySet();
+
+    @PostConstruct
+    void init() {
+        stripeLayouts = Caffeine.newBuilder()
+                .maximumSize(100_000)
+                .expireAfterWrite(stripeCacheTtl)
+                .build();
+    }
+
+    public Optional<InventoryLevel> getLevel(String productId) {
+        return withLayout(productId, layout -> level(productId, layout));
+    }
+
+    /**
+     * Holds {@code quantity} units of the product for the user, or throws
+     * {@link InsufficientStockException} without holding any. Empty for an unknown product.
+     */
+    public Optional<StockReservation> reserve(String productId, String userId, long quantity) {
+        return withLayout(productId, layout -> take(productId, layout, quantity)).map(allocations -> {
+            if (allocations.isEmpty()) {
+                throw new InsufficientStockException("Not enough stock to reserve " + quantity
+                        + " of product " + productId);
+            }
+            return hold(productId, userId, quantity, allocations);
+        });
+    }
+
+    /**
+     * Takes {@code quantity} units from the stripes of the layout: an empty list when they do
+     * not hold that many, null when the layout has been replaced by a reset.
+     */
+    private List<StockReservation.Allocation> take(String productId, StripeLayout layout, long quantity) {
+        int first = ThreadLocalRandom.current().nextInt(layout.stripes);
+        List<StockReservation.Allocation> allocations = new ArrayList<>();
+        long remaining = quantity;
+        for (int i = 0; i < layout.stripes && remaining > 0; i++) {
+            int stripe = (first + i) % layout.stripes;
+            long taken = take(productId, layout.generation, stripe, remaining);
+            if (taken < 0) {
+                giveBack(productId, allocations);
+                return null;
+            }
+            if (taken > 0) {
+                allocations.add(new StockReservation.Allocation(layout.generation, stripe, taken));
+                remaining -= taken;
+            }
+        }
+
+        if (remaining > 0) {
+            giveBack(productId, allocations);
+            return List.of();
+        }
+        return allocations;
+    }
+
+    private StockReservation hold(String productId, String userId, long quantity,
+                                  List<StockReservation.Allocation> allocations) {
+        Instant now = Instant.now();
+        StockReservation reservation = new StockReservation(UUID.randomUUID().toString(), productId, userId,
+                quantity, now, now.plus(reservationTtl), allocations);
+        try {
+            collection().insert(reservationKey(reservation.getId()), reservation.toJson(),
+                    insertOptions().expiry(reservationTtl.plus(reservationRetention)));
+        } catch (RuntimeException e) {
+            giveBack(productId, allocations);
+            throw e;
+        }
+        changedStock.add(productId);
+        return reservation;
+    }
+
+    /**
+     * Returns the reservation's units to stock. False when the reservation does not exist, is
+     * not the user's, or has already been confirmed or released.
+     */
+    public boolean release(String reservationId, String userId, boolean admin) {
+        StockReservation reservation = claim(reservationId, owner(userId, admin));
+        if (reservation == null) {
+            return false;
+        }
+        returnToStock(reservation);
+        return true;
+    }
+
+    /**
+     * Turns the reservation into a sale: its units stay out of stock for good. An expired
+     * reservation is released instead and reported as missing.
+     */
+    public boolean confirm(String reservationId, String userId, boolean admin) {
+        StockReservation reservation = claim(reservationId, owner(userId, admin));
+        if (reservation == null) {
+            return false;
+        }
+        if (reservation.getExpiresAt().isBefore(Instant.now())) {
+            returnToStock(reservation);
+            return false;
+        }
+        return true;
+    }
+
+    /**
+     * Sets the product's stock, split over {@code stripes} counters (the current count when
+     * null). Units held by open reservations are not included, and are dropped rather than
+     * returned to stock when those reservations are released.
+     */
+    public Optional<InventoryLevel> reset(String productId, long quantity, Integer stripes) {
+        if (findProduct(productId).isEmpty()) {
+            return Optional.empty();
+        }
+
+        for (int attempt = 1; ; attempt++) {
+            GetResult stored = storedLayoutDocument(productId);
+            StripeLayout previous = stored != null ? StripeLayout.fromJson(stored.contentAsObject()) : null;
+            int count = stripes != null ? stripes : previous != null ? previous.stripes : defaultStripes;
+            StripeLayout layout = new StripeLayout(count, nextGeneration(productId));
+            for (int stripe = 0; stripe < count; stripe++) {
+                collection().insert(stripeKey(productId, layout.generation, stripe),
+                        stripeContent(share(quantity, count, stripe), layout.generation));
+            }
+
+            // Only one of concurrent resets replaces the layout; the others drop their stripes and retry
+            try {
+                if (stored != null) {
+                    collection().replace(inventoryKey(productId), layout.toJson(), replaceOptions().cas(stored.cas()));
+                } else {
+                    collection().insert(inventoryKey(productId), layout.toJson());
+                }
+            } catch (CasMismatchException | DocumentExistsException | DocumentNotFoundException e) {
+                removeStripes(productId, layout);
+                if (attempt == MAX_LAYOUT_ATTEMPTS) {
+                    throw new OptimisticLockingFailureException("Stock of product " + productId
+                            + " is being reset concurrently", e);
+                }
+                continue;
+            }
+
+            if (previous != null) {
+                removeStripes(productId, previous);
+            }
+            stripeLayouts.put(productId, layout);
+            changedStock.add(productId);
+            return Optional.of(level(productId, layout));
+        }
+    }
+
+    /**
+     * For writes that set a product's stock quantity outright, such as creation and imports:
+     * resets the counters if they have been seeded, since they would otherwise keep the old stock
+     * and the next sync would write it back over the new one.
+     */
+    public void stockQuantityWritten(String productId, int quantity) {
+        if (storedLayout(productId).isPresent()) {
+            reset(productId, Math.max(0, quantity), null);
+        }
+    }
+
+    public Optional<InventoryLevel> restock(String productId, long quantity) {
+        return withLayout(productId, layout -> {
+            for (int stripe = 0; stripe < layout.stripes; stripe++) {
+                long share = share(quantity, layout.stripes, stripe);
+                if (share > 0 && !giveBack(productId, layout.generation, stripe, share)) {
+                    // Reset meanwhile: the units added so far went to the replaced stripes
+                    return null;
+                }
+            }
+            changedStock.add(productId);
+            return level(productId, layout);
+        });
+    }
+
+    /**
+     * Writes the available stock of every product whose counters changed on this replica to its
+     * {@link Product#getStockQuantity()}, at most once per interval per product however many
+     * reservations it had.
+     */
+    @Scheduled(fixedDelayString = "${inventory.stock-sync-interval-ms:5000}")
+    public void syncStockQuantities() {
+        for (String productId : List.copyOf(changedStock)) {
+            changedStock.remove(productId);
+            try {
+                Optional<InventoryLevel> level = getLevel(productId);
+                if (level.isEmpty()) {
+                    continue;
+                }
+
+                Product stock = new Product();
+                stock.setStockQuantity((int) Math.min(Integer.MAX_VALUE, level.get().getAvailable()));
+                if (productRepository.patch(productId, stock, Set.of("stockQuantity"), 0) != null) {
+                    productChangePublisher.productChanged(productId);
+                }
+            } catch (RuntimeException e) {
+                changedStock.add(productId);
+                logger.warn("Could not write stock quantity of product {}: {}", productId, e.getMessage());
+            }
+        }
+    }
+
+    /**
+     * Releases reservations past their expiry. Every replica sweeps; a reservation is claimed
+     * with a CAS remove, so its units are returned once.
+     */
+    @Scheduled(fixedDelayString = "${inventory.reservation.sweep-interval-ms:30000}")
+    public void releaseExpired() {
+        try {
+            List<String> expired = couchbaseTemplate.getCouchbaseClientFactory().getCluster()
+                    .query(expiredReservationsStatement(couchbaseTemplate.getBucketName()),
+                            queryOptions().parameters(JsonArray.from(Instant.now().toEpochMilli(), sweepBatch)))
+                    .rowsAs(String.class);
+
+            int released = 0;
+            for (String key : expired) {
+                StockReservation reservation = claim(key.substring(RESERVATION_KEY_PREFIX.length()),
+                        candidate -> candidate.getExpiresAt().isBefore(Instant.now()));
+                if (reservation != null) {
+                    returnToStock(reservation);
+                    released++;
+                }
+            }
+            if (released > 0) {
+                logger.info("Released {} expired stock reservations", released);
+            }
+        } catch (CouchbaseException e) {
+            logger.warn("Could not release expired stock reservations: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * Takes up to {@code wanted} units from one stripe: decrements by the full amount and gives
+     * back the part that was not there. Negative when the stripe has been removed by a reset.
+     */
+    private long take(String productId, long generation, int stripe, long wanted) {
+        long after;
+        try {
+            after = collection().mutateIn(stripeKey(productId, generation, stripe),
+                            List.of(MutateInSpec.decrement(AVAILABLE, wanted)))
+                    .contentAs(0, Long.class);
+        } catch (DocumentNotFoundException e) {
+            return -1;
+        }
+
+        long taken = Math.max(0, Math.min(wanted, after + wanted));
+        if (taken < wanted) {
+            giveBack(productId, generation, stripe, wanted - taken);
+        }
+        return taken;
+    }
+
+    private void returnToStock(StockReservation reservation) {
+        giveBack(reservation.getProductId(), reservation.getAllocations());
+        changedStock.add(reservation.getProductId());
+    }
+
+    private void giveBack(String productId, List<StockReservation.Allocation> allocations) {
+        for (StockReservation.Allocation allocation : allocations) {
+            giveBack(productId, allocation.generation, allocation.stripe, allocation.quantity);
+        }
+    }
+
+    /**
+     * Increments the stripe. False when a reset has removed it, in which case the units are not
+     * part of the current stock.
+     */
+    private boolean giveBack(String productId, long generation, int stripe, long quantity) {
+        try {
+            collection().mutateIn(stripeKey(productId, generation, stripe),
+                    List.of(MutateInSpec.increment(AVAILABLE, quantity)));
+            return true;
+        } catch (DocumentNotFoundException e) {
+            return false;
+        }
+    }
+
+    /**
+     * Removes the reservation with a CAS remove, so that of a concurrent release, confirm and
+     * sweep only one acts on it.
+     */
+    private StockReservation claim(String reservationId, Predicate<StockReservation> allowed) {
+        String key = reservationKey(reservationId);
+        try {
+            GetResult stored = collection().get(key);
+            StockReservation reservation = StockReservation.fromJson(reservationId, stored.contentAsObject());
+            if (!allowed.test(reservation)) {
+                return null;
+            }
+            collection().remove(key, removeOptions().cas(stored.cas()));
+            return reservation;
+        } catch (DocumentNotFoundException | CasMismatchException e) {
+            return null;
+        }
+    }
+
+    private static Predicate<StockReservation> owner(String userId, boolean admin) {
+        return reservation -> admin || reservation.getUserId().equals(userId);
+    }
+
+    /**
+     * Null when a stripe of the layout has been removed by a reset.
+     */
+    private InventoryLevel level(String productId, StripeLayout layout) {
+        long available = 0;
+        for (int stripe = 0; stripe < layout.stripes; stripe++) {
+            try {
+                available += collection().get(stripeKey(productId, layout.generation, stripe))
+                        .contentAsObject().getLong(AVAILABLE);
+            } catch (DocumentNotFoundException e) {
+                return null;
+            }
+        }
+        return new InventoryLevel(productId, Math.max(0, available), layout.stripes);
+    }
+
+    /**
+     * Applies the action to the product's stripe layout, reading the layout again for as long as
+     * the action finds it replaced by a reset (returns null). Empty for an unknown product.
+     */
+    private <T> Optional<T> withLayout(String productId, Function<StripeLayout, T> action) {
+        for (int attempt = 1; ; attempt++) {
+            Optional<StripeLayout> layout = layout(productId);
+            if (layout.isEmpty()) {
+                return Optional.empty();
+            }
+            T result = action.apply(layout.get());
+            if (result != null) {
+                return Optional.of(result);
+            }
+
+            stripeLayouts.invalidate(productId);
+            if (attempt == MAX_LAYOUT_ATTEMPTS) {
+                throw new OptimisticLockingFailureException("Stock of product " + productId
+                        + " is being reset concurrently");
+            }
+        }
+    }
+
+    /**
+     * The product's stripe layout, seeding its counters on first use. Empty for an unknown product.
+     */
+    private Optional<StripeLayout> layout(String productId) {
+        StripeLayout cached = stripeLayouts.getIfPresent(productId);
+        if (cached != null) {
+            return Optional.of(cached);
+        }
+
+        Optional<StripeLayout> layout = storedLayout(productId).or(() -> seed(productId));
+        layout.ifPresent(stored -> stripeLayouts.put(productId, stored));
+        return layout;
+    }
+
+    private Optional<StripeLayout> storedLayout(String productId) {
+        return Optional.ofNullable(storedLayoutDocument(productId))
+                .map(stored -> StripeLayout.fromJson(stored.contentAsObject()));
+    }
+
+    private GetResult storedLayoutDocument(String productId) {
+        try {
+            return collection().get(inventoryKey(productId));
+        } catch (DocumentNotFoundException e) {
+            return null;
+        }
+    }
+
+    private long nextGeneration(String productId) {
+        return collection().binary()
+                .increment(inventoryKey(productId) + "::" + GENERATION, incrementOptions().initial(1))
+                .content();
+    }
+
+    private void removeStripes(String productId, StripeLayout layout) {
+        for (int stripe = 0; stripe < layout.stripes; stripe++) {
+            try {
+                collection().remove(stripeKey(productId, layout.generation, stripe));
+            } catch (DocumentNotFoundException e) {
+                // already gone
+            }
+        }
+    }
+
+    /**
+     * Creates the counters from the product's stock quantity. Everything is inserted, so
+     * replicas seeding the same product at once keep whichever counters were written first; the
+     * stripe count is written last, so a reader never sees it before its counters exist.
+     */
+    private Optional<StripeLayout> seed(String productId) {
+        Optional<Product> product = findProduct(productId);
+        if (product.isEmpty()) {
+            return Optional.empty();
+        }
+
+        Integer stock = product.get().getStockQuantity();
+        long quantity = stock != null ? Math.max(0, stock) : 0;
+        for (int stripe = 0; stripe < defaultStripes; stripe++) {
+            insertIfAbsent(stripeKey(productId, 0, stripe), stripeContent(share(quantity, defaultStripes, stripe), 0));
+        }
+        insertIfAbsent(inventoryKey(productId), new StripeLayout(defaultStripes, 0).toJson());
+        return storedLayout(productId);
+    }
+
+    private void insertIfAbsent(String key, JsonObject content) {
+        try {
+            collection().insert(key, content);
+        } catch (DocumentExistsException e) {
+            // seeded concurrently
+        }
+    }
+
+    private Optional<Product> findProduct(String productId) {
+        return productCache.findById(productId).filter(Product::isActive);
+    }
+
+    private static long share(long quantity, int stripes, int stripe) {
+        return quantity / stripes + (stripe < quantity % stripes ? 1 : 0);
+    }
+
+    /**
+     * Ids of reservations that expired before {@code $1}, at most {@code $2} of them.
+     */
+    public static String expiredReservationsStatement(String bucketName) {
+        return "SELECT RAW META(r).id FROM `" + bucketName + "` r"
+                + " WHERE r.type = \"" + StockReservation.TYPE + "\" AND r.expiresAt < $1 LIMIT $2";
+    }
+
+    private static String inventoryKey(String productId) {
+        return INVENTORY_KEY_PREFIX + productId;
+    }
+
+    private static String stripeKey(String productId, long generation, int stripe) {
+        if (generation == 0) {
+            return INVENTORY_KEY_PREFIX + productId + "::" + stripe;
+        }
+        return INVENTORY_KEY_PREFIX + productId + "::" + generation + "::" + stripe;
+    }
+
+    private static JsonObject stripeContent(long available, long generation) {
+        return JsonObject.create().put(AVAILABLE, available).put(GENERATION, generation);
+    }
+
+    private static String reservationKey(String reservationId) {
+        return RESERVATION_KEY_PREFIX + reservationId;
+    }
+
+    private Collection collection() {
+        return couchbaseTemplate.getCouchbaseClientFactory().getDefaultCollection();
+    }
+
+    private static final class StripeLayout {
+        final int stripes;
+        final long generation;
+
+        StripeLayout(int stripes, long generation) {
+            this.stripes = stripes;
+            this.generation = generation;
+        }
+
+        // Layouts seeded before generations were introduced have none and use the generation 0 keys
+        static StripeLayout fromJson(JsonObject json) {
+            Long generation = json.getLong(GENERATION);
+            return new StripeLayout(json.getInt("stripes"), generation != null ? generation : 0);
+        }
+
+        JsonObject toJson() {
+            return JsonObject.create().put("stripes", stripes).put(GENERATION, generation);
+        }
+    }
+}
@@ -0,0 +1,114 @@
+package com.ecommerce.service;
+
+import com.couchbase.client.core.error.DocumentNotFoundException;
+import com.couchbase.client.java.kv.LookupInResult;
+import com.couchbase.client.java.kv.LookupInSpec;
+import com.ecommerce.cache.CacheLoading;
+import com.ecommerce.model.Product;
+import com.ecommerce.repository.ProductRepository;
+import com.github.benmanes.caffeine.cache.AsyncCache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import jakarta.annotation.PostConstruct;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.couchbase.core.CouchbaseTemplate;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * Read-through cache in front of {@link ProductRepository#findById}. Unknown ids are cached as
+ * well, for a shorter time, so repeated lookups of missing products do not reach Couchbase.
+ */
+@Service
+public class ProductCache {
+
+    @Autowired
+    private ProductRepository productRepository;
+
+    @Autowired
+    private CouchbaseTemplate couchbaseTemplate;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Value("${cache.products.max-size:10000}")
+    private long maxSize;
+
+    @Value("${cache.products.ttl:10m}")
+    private Duration ttl;
+
+    @Value("${cache.products.negative-ttl:30s}")
+    private Duration negativeTtl;
+
+    private AsyncCache<String, Optional<Product>> products;
+
+    @PostConstruct
+    void init() {
+        products = Caffeine.newBuilder()
+                .maximumSize(maxSize)
+                .expireAfter(new Expiry<String, Optional<Product>>() {
+                    @Override
+                    public long expireAfterCreate(String id, Optional<Product> product, long currentTime) {
+                        return (product.isPresent() ? ttl : negativeTtl).toNanos();
+                    }
+
+                    @Override
+                    public long expireAfterUpdate(String id, Optional<Product> product, long currentTime,
+                                                  long currentDuration) {
+                        return expireAfterCreate(id, product, currentTime);
+                    }
+
+                    @Override
+                    public long expireAfterRead(String id, Optional<Product> product, long currentTime,
+                                                long currentDuration) {
+                        return currentDuration;
+                    }
+                })
+                .recordStats()
+                .buildAsync();
+        CaffeineCacheMetrics.monitor(meterRegistry, products, "products");
+    }
+
+    public Optional<Product> findById(String id) {
+        return CacheLoading.get(products, id, productRepository::findById);
+    }
+
+    /**
+     * The version of a product without loading it: from the cache if present, otherwise from the
+     * document metadata. Documents of other types are reported as missing, like {@link #findById}
+     * does, so the answer does not reveal which other keys exist.
+     *
+     * @return the document CAS, or {@code null} if there is no such product
+     */
+    public Long findVersion(String id) {
+        Optional<Product> cached = CacheLoading.getIfLoaded(products, id);
+        if (cached != null) {
+            return cached.map(Product::getVersion).orElse(null);
+        }
+        LookupInResult type;
+        try {
+            type = couchbaseTemplate.getCouchbaseClientFactory().getDefaultCollection().lookupIn(id,
+                    List.of(LookupInSpec.get(couchbaseTemplate.getConverter().getTypeKey())));
+        } catch (DocumentNotFoundException e) {
+            return null;
+        }
+        return type.exists(0) && Product.class.getName().equals(type.contentAs(0, String.class)) ? type.cas() : null;
+    }
+
+    @EventListener
+    public void onProductChanged(ProductChangedEvent event) {
+        products.synchronous().invalidate(event.getProductId());
+    }
+
+    @EventListener
+    public void onCatalogChanged(CatalogChangedEvent event) {
+        products.synchronous().invalidateAll();
+    }
+}
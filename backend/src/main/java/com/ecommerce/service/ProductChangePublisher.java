@@ -0,0 +1,68 @@
+package com.ecommerce.service;
+
+import com.ecommerce.cluster.ClusterEventBus;
+import com.ecommerce.model.Product;
+import jakarta.annotation.PostConstruct;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.couchbase.core.mapping.event.AfterDeleteEvent;
+import org.springframework.data.couchbase.core.mapping.event.AfterSaveEvent;
+import org.springframework.stereotype.Component;
+
+/**
+ * Turns product writes into {@link ProductChangedEvent}s on every replica: Couchbase save/delete
+ * events are republished locally and broadcast over the {@link ClusterEventBus}.
+ */
+@Component
+public class ProductChangePublisher {
+
+    static final String PRODUCT_CHANGED_TOPIC = "product-changed";
+    static final String CATALOG_CHANGED_TOPIC = "catalog-changed";
+
+    @Autowired
+    private ApplicationEventPublisher eventPublisher;
+
+    @Autowired
+    private ClusterEventBus clusterEventBus;
+
+    @PostConstruct
+    void init() {
+        clusterEventBus.subscribe(PRODUCT_CHANGED_TOPIC,
+                productId -> eventPublisher.publishEvent(new ProductChangedEvent(productId, true)));
+        clusterEventBus.subscribe(CATALOG_CHANGED_TOPIC,
+                payload -> eventPublisher.publishEvent(new CatalogChangedEvent(true)));
+    }
+
+    /**
+     * For writes that bypass the repository, such as sub-document mutations.
+     */
+    public void productChanged(String productId) {
+        eventPublisher.publishEvent(new ProductChangedEvent(productId, false));
+        clusterEventBus.publish(PRODUCT_CHANGED_TOPIC, productId);
+    }
+
+    /**
+     * For bulk writes that publish no event per product.
+     *
+     * @param source what changed the catalog, sent as the event payload
+     */
+    public void catalogChanged(String source) {
+        eventPublisher.publishEvent(new CatalogChangedEvent(false));
+        clusterEventBus.publish(CATALOG_CHANGED_TOPIC, source);
+    }
+
+    @EventListener
+    public void onProductSaved(AfterSaveEvent<?> event) {
+        if (event.getSource() instanceof Product product && product.getId() != null) {
+            productChanged(product.getId());
+        }
+    }
+
+    @EventListener
+    public void onProductDeleted(AfterDeleteEvent<?> event) {
+        if (event.getSource() instanceof Product product && product.getId() != null) {
+            productChanged(product.getId());
+        }
+    }
+}
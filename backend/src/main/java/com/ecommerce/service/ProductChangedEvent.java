@@ -0,0 +1,23 @@
+package com.ecommerce.service;
+
+/**
+ * Published locally whenever a product is written, on this replica or on another one. In-memory
+ * product views listen for it to stay current.
+ */
+public class ProductChangedEvent {
+    private final String productId;
+    private final boolean remote;
+
+    public ProductChangedEvent(String productId, boolean remote) {
+        this.productId = productId;
+        this.remote = remote;
+    }
+
+    public String getProductId() {
+        return productId;
+    }
+
+    public boolean isRemote() {
+        return remote;
+    }
+}
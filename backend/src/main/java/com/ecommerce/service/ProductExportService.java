@@ -0,0 +1,70 @@
+package com.ecommerce.service;
+
+import com.couchbase.client.java.query.QueryScanConsistency;
+import com.ecommerce.model.Product;
+import com.ecommerce.repository.ProductFilter;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.couchbase.core.CouchbaseTemplate;
+import org.springframework.data.couchbase.core.query.Query;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.time.LocalDateTime;
+import java.util.Iterator;
+import java.util.stream.Stream;
+
+/**
+ * Streams the catalog as a product feed from a single query. Rows are written as the query
+ * returns them and flushed every {@code flush-every} rows, so memory use does not grow with the
+ * catalog.
+ */
+@Service
+public class ProductExportService {
+
+    @Autowired
+    private CouchbaseTemplate couchbaseTemplate;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Value("${product-export.flush-every:1000}")
+    private int flushEvery;
+
+    /**
+     * A full export holds the active products. An incremental export holds every product updated
+     * after {@code since}, including deactivated ones, so consumers can drop them.
+     *
+     * @return the number of products written
+     */
+    public long export(ProductFeedFormat format, LocalDateTime since, OutputStream out) throws IOException {
+        ProductFeedWriter writer = ProductFeedWriter.open(format, out, objectMapper);
+        long written = 0;
+        try (Stream<Product> products = couchbaseTemplate.findByQuery(Product.class)
+                .matching(query(since))
+                .stream()) {
+            Iterator<Product> iterator = products.iterator();
+            while (iterator.hasNext()) {
+                writer.write(iterator.next());
+                if (++written % flushEvery == 0) {
+                    out.flush();
+                }
+            }
+        }
+        out.flush();
+        return written;
+    }
+
+    private Query query(LocalDateTime since) {
+        if (since == null) {
+            return new Query(ProductFilter.active().toCriteria());
+        }
+        // Wait for the index to catch up, or a product updated just before the export could be
+        // missed by it and by the next export, which starts at this export's watermark
+        Object storedSince = couchbaseTemplate.getConverter().convertForWriteIfNeeded(since);
+        return new Query(ProductFilter.updatedAfter(storedSince).toCriteria())
+                .scanConsistency(QueryScanConsistency.REQUEST_PLUS);
+    }
+}
@@ -0,0 +1,739 @@
+package com.ecommerce.service;
+
+import com.ecommerce.dto.FacetedPage;
+import com.ecommerce.dto.ProductQuery;
+import com.ecommerce.dto.ProductSummary;
+import com.ecommerce.model.Product;
+import com.ecommerce.repository.InvalidPageRequestException;
+import com.ecommerce.repository.ProductFields;
+import com.ecommerce.repository.ProductFilter;
+import com.ecommerce.repository.ProductRepository;
+import jakarta.annotation.PostConstruct;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.couchbase.core.CouchbaseTemplate;
+import org.springframework.data.couchbase.core.query.Query;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
+
+/**
+ * Columnar in-memory index of active products for combined filters with facet counts.
+ * <p>
+ * Every product occupies a slot; its filterable attributes live in primitive arrays indexed by
+ * slot, and category, brand and tag values are dictionary-encoded with one bitset of slots per
+ * value. A query builds, 64 slots at a time, a pass mask per filter and counts each facet over
+ * the slots that pass every <em>other</em> filter, so results and all facet counts come from a
+ * single pass over the slots. Large catalogs are split into word ranges counted in parallel.
+ */
+@Service
+public class ProductFacetIndex {
+    private static final Logger logger = LoggerFactory.getLogger(ProductFacetIndex.class);
+
+    private static final int INITIAL_CAPACITY = 1024;
+    private static final int MAX_RATING = 5;
+
+    // Facet dimensions, in the order of the pass masks
+    private static final int CATEGORY = 0;
+    private static final int BRAND = 1;
+    private static final int TAG = 2;
+    private static final int PRICE = 3;
+    private static final int RATING = 4;
+    private static final int STOCK = 5;
+    private static final int DIMENSIONS = 6;
+
+    @Autowired
+    private ProductRepository productRepository;
+
+    @Autowired
+    private CouchbaseTemplate couchbaseTemplate;
+
+    // Upper bounds of the price facet buckets; the last bucket is open-ended
+    @Value("${catalog.facets.price-buckets:25,50,100,250,500}")
+    private double[] priceBuckets;
+
+    @Value("${catalog.facets.max-tag-values:20}")
+    private int maxTagValues;
+
+    // Catalogs with at least this many slots are counted on several cores
+    @Value("${catalog.facets.parallel-threshold:65536}")
+    private int parallelThreshold;
+
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+
+    private final Map<String, Integer> slotsById = new HashMap<>();
+
+    private final Dictionary categories = new Dictionary();
+    private final Dictionary brands = new Dictionary();
+    private final Dictionary tags = new Dictionary();
+
+    private String[] priceLabels;
+
+    private int capacity;
+    private int slotCount;
+    private int[] freeSlots = new int[16];
+    private int freeCount;
+
+    private long[] live;
+    private Product[] products;
+    private String[] ids;
+    private double[] prices;
+    private int[] priceBucketOf;
+    private double[] ratings;
+    private int[] stock;
+    private long[] createdAt;
+    private int[] categoryOf;
+    private int[] brandOf;
+    private int[][] tagsOf;
+
+    private volatile boolean ready;
+
+    // False until a build succeeds, and again once one fails
+    private volatile boolean current;
+
+    private final AtomicBoolean building = new AtomicBoolean();
+
+    private final AtomicBoolean buildRequested = new AtomicBoolean();
+
+    // Products changed while a build is loading; re-read once the build has been applied
+    private Set<String> changedDuringBuild;
+
+    @PostConstruct
+    void init() {
+        Arrays.sort(priceBuckets);
+        priceLabels = new String[priceBuckets.length + 1];
+        double lower = 0;
+        for (int i = 0; i < priceBuckets.length; i++) {
+            priceLabels[i] = label(lower) + "-" + label(priceBuckets[i]);
+            lower = priceBuckets[i];
+        }
+        priceLabels[priceBuckets.length] = label(lower) + "+";
+        allocate(INITIAL_CAPACITY);
+    }
+
+    /**
+     * Loads every active product again. A build requested while another is running makes that one
+     * load once more when it finishes, rather than running concurrently.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void build() {
+        buildRequested.set(true);
+        while (buildRequested.get() && building.compareAndSet(false, true)) {
+            try {
+                if (buildRequested.getAndSet(false)) {
+                    load();
+                }
+            } finally {
+                building.set(false);
+            }
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${catalog.facets.retry-interval-ms:30000}",
+            initialDelayString = "${catalog.facets.retry-interval-ms:30000}")
+    public void retryBuild() {
+        if (!current) {
+            build();
+        }
+    }
+
+    /**
+     * Loads the active products without holding the lock, then applies them in one step, drops
+     * products no longer active and re-reads any product that changed in the meantime, since the
+     * loaded copy may be stale.
+     */
+    private void load() {
+        try {
+            lock.writeLock().lock();
+            try {
+                changedDuringBuild = new HashSet<>();
+            } finally {
+                lock.writeLock().unlock();
+            }
+
+            List<Product> active;
+            try (Stream<Product> stream = couchbaseTemplate.findByQuery(Product.class)
+                    .matching(new Query(ProductFilter.active().toCriteria()))
+                    .stream()) {
+                active = stream.toList();
+            }
+
+            Set<String> changed;
+            lock.writeLock().lock();
+            try {
+                Set<String> inactive = new HashSet<>(slotsById.keySet());
+                for (Product product : active) {
+                    inactive.remove(product.getId());
+                    add(product);
+                }
+                inactive.forEach(this::remove);
+                changed = changedDuringBuild;
+                changedDuringBuild = null;
+                ready = true;
+                current = true;
+            } finally {
+                lock.writeLock().unlock();
+            }
+            changed.forEach(this::refresh);
+            logger.info("Product facet index built with {} products", active.size());
+        } catch (RuntimeException e) {
+            lock.writeLock().lock();
+            try {
+                changedDuringBuild = null;
+            } finally {
+                lock.writeLock().unlock();
+            }
+            current = false;
+            logger.warn("Could not build product facet index: {}", e.getMessage());
+        }
+    }
+
+    @EventListener
+    public void onProductChanged(ProductChangedEvent event) {
+        refresh(event.getProductId());
+    }
+
+    @EventListener
+    public void onCatalogChanged(CatalogChangedEvent event) {
+        build();
+    }
+
+    private void refresh(String productId) {
+        Product product = productRepository.findById(productId).orElse(null);
+
+        lock.writeLock().lock();
+        try {
+            if (changedDuringBuild != null) {
+                changedDuringBuild.add(productId);
+            }
+            remove(productId);
+            if (product != null && product.isActive()) {
+                add(product);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public FacetedPage<?> query(ProductQuery query) {
+        if (!ready) {
+            throw new CatalogIndexUnavailableException("Product facet index is still loading");
+        }
+        if (query.getSize() < 1 || query.getPage() < 0) {
+            throw new InvalidPageRequestException("Page must be at least zero and size at least one");
+        }
+        ProductFields shape = ProductFields.parse(query.getFields());
+
+        lock.readLock().lock();
+        try {
+            Filter filter = new Filter(query);
+            int words = wordCount(slotCount);
+            long[] matches = new long[words];
+
+            Counts counts;
+            if (slotCount >= parallelThreshold) {
+                int chunks = Math.min(words, Runtime.getRuntime().availableProcessors() * 4);
+                int wordsPerChunk = (words + chunks - 1) / chunks;
+                counts = IntStream.range(0, chunks).parallel()
+                        .mapToObj(chunk -> count(filter, matches, chunk * wordsPerChunk,
+                                Math.min(words, (chunk + 1) * wordsPerChunk)))
+                        .reduce(Counts::merge)
+                        .orElseGet(this::newCounts);
+            } else {
+                counts = count(filter, matches, 0, words);
+            }
+
+            int[] page = selectPage(matches, counts.total, comparator(query), query.getPage(), query.getSize());
+            List<Object> content = new ArrayList<>(page.length);
+            for (int slot : page) {
+                content.add(shape == ProductFields.SUMMARY ? ProductSummary.from(products[slot]) : products[slot]);
+            }
+            return new FacetedPage<>(content, query.getPage(), query.getSize(), counts.total, facets(counts));
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Writes the matching slots of words {@code [from, to)} into {@code matches} and counts the
+     * facets of those words.
+     */
+    private Counts count(Filter filter, long[] matches, int from, int to) {
+        Counts counts = newCounts();
+        long[] pass = new long[DIMENSIONS];
+        for (int word = from; word < to; word++) {
+            long liveWord = live[word];
+            if (liveWord == 0) {
+                continue;
+            }
+
+            pass[CATEGORY] = filter.categories != null ? union(categories, filter.categories, word) : liveWord;
+            pass[BRAND] = filter.brands != null ? union(brands, filter.brands, word) : liveWord;
+            pass[TAG] = filter.tags != null ? union(tags, filter.tags, word) : liveWord;
+            pass[PRICE] = filter.hasPriceRange() ? priceMask(filter, word, liveWord) : liveWord;
+            pass[RATING] = filter.minRating != null ? ratingMask(filter.minRating, word, liveWord) : liveWord;
+            pass[STOCK] = filter.inStock != null ? stockMask(filter.inStock, word, liveWord) : liveWord;
+
+            long all = liveWord;
+            for (long mask : pass) {
+                all &= mask;
+            }
+            matches[word] = all;
+            counts.total += Long.bitCount(all);
+
+            // A facet counts the slots that pass every filter except its own
+            for (int dimension = 0; dimension < DIMENSIONS; dimension++) {
+                long base = liveWord;
+                for (int other = 0; other < DIMENSIONS; other++) {
+                    if (other != dimension) {
+                        base &= pass[other];
+                    }
+                }
+                countFacet(counts, dimension, word, base);
+            }
+        }
+        return counts;
+    }
+
+    private void countFacet(Counts counts, int dimension, int word, long slots) {
+        while (slots != 0) {
+            int slot = (word << 6) + Long.numberOfTrailingZeros(slots);
+            slots &= slots - 1;
+            switch (dimension) {
+                case CATEGORY -> {
+                    if (categoryOf[slot] >= 0) {
+                        counts.categories[categoryOf[slot]]++;
+                    }
+                }
+                case BRAND -> {
+                    if (brandOf[slot] >= 0) {
+                        counts.brands[brandOf[slot]]++;
+                    }
+                }
+                case TAG -> {
+                    for (int tag : tagsOf[slot]) {
+                        counts.tags[tag]++;
+                    }
+                }
+                case PRICE -> {
+                    if (priceBucketOf[slot] >= 0) {
+                        counts.prices[priceBucketOf[slot]]++;
+                    }
+                }
+                case RATING -> {
+                    for (int rating = 1; rating <= Math.min(MAX_RATING, (int) ratings[slot]); rating++) {
+                        counts.ratings[rating]++;
+                    }
+                }
+                default -> counts.stock[stock[slot] > 0 ? 0 : 1]++;
+            }
+        }
+    }
+
+    private static long union(Dictionary dictionary, int[] ordinals, int word) {
+        long mask = 0;
+        for (int ordinal : ordinals) {
+            long[] posting = dictionary.postings.get(ordinal);
+            if (word < posting.length) {
+                mask |= posting[word];
+            }
+        }
+        return mask;
+    }
+
+    private long priceMask(Filter filter, int word, long slots) {
+        long mask = 0;
+        while (slots != 0) {
+            int bit = Long.numberOfTrailingZeros(slots);
+            slots &= slots - 1;
+            double price = prices[(word << 6) + bit];
+            if (price >= filter.minPrice && price <= filter.maxPrice) {
+                mask |= 1L << bit;
+            }
+        }
+        return mask;
+    }
+
+    private long ratingMask(double minRating, int word, long slots) {
+        long mask = 0;
+        while (slots != 0) {
+            int bit = Long.numberOfTrailingZeros(slots);
+            slots &= slots - 1;
+            if (ratings[(word << 6) + bit] >= minRating) {
+                mask |= 1L << bit;
+            }
+        }
+        return mask;
+    }
+
+    private long stockMask(boolean inStock, int word, long slots) {
+        long mask = 0;
+        while (slots != 0) {
+            int bit = Long.numberOfTrailingZeros(slots);
+            slots &= slots - 1;
+            if ((stock[(word << 6) + bit] > 0) == inStock) {
+                mask |= 1L << bit;
+            }
+        }
+        return mask;
+    }
+
+    /**
+     * Selects the requested page of matching slots with a bounded heap, so only
+     * {@code (page + 1) * size} slots are ever ordered.
+     */
+    private static int[] selectPage(long[] matches, int total, SlotComparator comparator, int page, int size) {
+        long offset = (long) page * size;
+        if (offset >= total) {
+            return new int[0];
+        }
+        int limit = (int) Math.min(total, offset + size);
+
+        // Max-heap on the comparator: the root is the worst slot kept so far
+        int[] heap = new int[limit];
+        int heapSize = 0;
+        for (int word = 0; word < matches.length; word++) {
+            long slots = matches[word];
+            while (slots != 0) {
+                int slot = (word << 6) + Long.numberOfTrailingZeros(slots);
+                slots &= slots - 1;
+                if (heapSize < limit) {
+                    heap[heapSize] = slot;
+                    siftUp(heap, heapSize++, comparator);
+                } else if (comparator.compare(slot, heap[0]) < 0) {
+                    heap[0] = slot;
+                    siftDown(heap, heapSize, comparator);
+                }
+            }
+        }
+
+        // Popping the root repeatedly leaves the heap sorted best first
+        for (int end = heapSize - 1; end > 0; end--) {
+            int root = heap[0];
+            heap[0] = heap[end];
+            heap[end] = root;
+            siftDown(heap, end, comparator);
+        }
+        return Arrays.copyOfRange(heap, (int) offset, limit);
+    }
+
+    private static void siftUp(int[] heap, int index, SlotComparator comparator) {
+        int slot = heap[index];
+        while (index > 0) {
+            int parent = (index - 1) >>> 1;
+            if (comparator.compare(slot, heap[parent]) <= 0) {
+                break;
+            }
+            heap[index] = heap[parent];
+            index = parent;
+        }
+        heap[index] = slot;
+    }
+
+    private static void siftDown(int[] heap, int size, SlotComparator comparator) {
+        int slot = heap[0];
+        int index = 0;
+        while (true) {
+            int child = 2 * index + 1;
+            if (child >= size) {
+                break;
+            }
+            if (child + 1 < size && comparator.compare(heap[child + 1], heap[child]) > 0) {
+                child++;
+            }
+            if (comparator.compare(slot, heap[child]) >= 0) {
+                break;
+            }
+            heap[index] = heap[child];
+            index = child;
+        }
+        heap[index] = slot;
+    }
+
+    private SlotComparator comparator(ProductQuery query) {
+        SlotComparator byKey = switch (query.getSortBy()) {
+            case "createdAt" -> (a, b) -> Long.compare(createdAt[a], createdAt[b]);
+            case "price" -> (a, b) -> Double.compare(prices[a], prices[b]);
+            case "rating" -> (a, b) -> Double.compare(ratings[a], ratings[b]);
+            case "name" -> (a, b) -> name(a).compareToIgnoreCase(name(b));
+            default -> throw new InvalidPageRequestException("Cannot sort products by " + query.getSortBy());
+        };
+        boolean descending = !"asc".equalsIgnoreCase(query.getSortDir());
+        return (a, b) -> {
+            int result = descending ? byKey.compare(b, a) : byKey.compare(a, b);
+            return result != 0 ? result : ids[a].compareTo(ids[b]);
+        };
+    }
+
+    private String name(int slot) {
+        String name = products[slot].getName();
+        return name != null ? name : "";
+    }
+
+    private Map<String, Map<String, Integer>> facets(Counts counts) {
+        Map<String, Map<String, Integer>> facets = new LinkedHashMap<>();
+        facets.put("category", topValues(categories, counts.categories, Integer.MAX_VALUE));
+        facets.put("brand", topValues(brands, counts.brands, Integer.MAX_VALUE));
+        facets.put("tag", topValues(tags, counts.tags, maxTagValues));
+
+        Map<String, Integer> priceFacet = new LinkedHashMap<>();
+        for (int bucket = 0; bucket < priceLabels.length; bucket++) {
+            priceFacet.put(priceLabels[bucket], counts.prices[bucket]);
+        }
+        facets.put("price", priceFacet);
+
+        Map<String, Integer> ratingFacet = new LinkedHashMap<>();
+        for (int rating = MAX_RATING - 1; rating >= 1; rating--) {
+            ratingFacet.put(rating + "+", counts.ratings[rating]);
+        }
+        facets.put("rating", ratingFacet);
+
+        Map<String, Integer> stockFacet = new LinkedHashMap<>();
+        stockFacet.put("inStock", counts.stock[0]);
+        stockFacet.put("outOfStock", counts.stock[1]);
+        facets.put("stock", stockFacet);
+        return facets;
+    }
+
+    private static Map<String, Integer> topValues(Dictionary dictionary, int[] counts, int limit) {
+        Integer[] ordinals = new Integer[counts.length];
+        int present = 0;
+        for (int ordinal = 0; ordinal < counts.length; ordinal++) {
+            if (counts[ordinal] > 0) {
+                ordinals[present++] = ordinal;
+            }
+        }
+        Arrays.sort(ordinals, 0, present, (a, b) -> counts[a] != counts[b]
+                ? Integer.compare(counts[b], counts[a])
+                : dictionary.values.get(a).compareTo(dictionary.values.get(b)));
+
+        Map<String, Integer> values = new LinkedHashMap<>();
+        for (int i = 0; i < Math.min(present, limit); i++) {
+            values.put(dictionary.values.get(ordinals[i]), counts[ordinals[i]]);
+        }
+        return values;
+    }
+
+    private Counts newCounts() {
+        return new Counts(categories.size(), brands.size(), tags.size(), priceLabels.length);
+    }
+
+    private void add(Product product) {
+        // A product already indexed would otherwise occupy two live slots
+        remove(product.getId());
+
+        int slot = freeCount > 0 ? freeSlots[--freeCount] : slotCount++;
+        if (slot >= capacity) {
+            allocate(capacity * 2);
+        }
+
+        slotsById.put(product.getId(), slot);
+        live[slot >>> 6] |= 1L << slot;
+        products[slot] = product;
+        ids[slot] = product.getId();
+        prices[slot] = product.getPrice() != null ? product.getPrice().doubleValue() : Double.NaN;
+        priceBucketOf[slot] = product.getPrice() != null ? priceBucket(prices[slot]) : -1;
+        ratings[slot] = product.getRating() != null ? product.getRating() : 0;
+        stock[slot] = product.getStockQuantity() != null ? product.getStockQuantity() : 0;
+        createdAt[slot] = product.getCreatedAt() != null
+                ? product.getCreatedAt().toInstant(ZoneOffset.UTC).toEpochMilli()
+                : Long.MIN_VALUE;
+        categoryOf[slot] = product.getCategory() != null ? categories.add(product.getCategory(), slot) : -1;
+        brandOf[slot] = product.getBrand() != null ? brands.add(product.getBrand(), slot) : -1;
+        tagsOf[slot] = product.getTags() != null
+                ? product.getTags().stream().distinct().mapToInt(tag -> tags.add(tag, slot)).toArray()
+                : new int[0];
+    }
+
+    private void remove(String productId) {
+        Integer slot = slotsById.remove(productId);
+        if (slot == null) {
+            return;
+        }
+
+        live[slot >>> 6] &= ~(1L << slot);
+        if (categoryOf[slot] >= 0) {
+            categories.clear(categoryOf[slot], slot);
+        }
+        if (brandOf[slot] >= 0) {
+            brands.clear(brandOf[slot], slot);
+        }
+        for (int tag : tagsOf[slot]) {
+            tags.clear(tag, slot);
+        }
+        products[slot] = null;
+        ids[slot] = null;
+
+        if (freeCount == freeSlots.length) {
+            freeSlots = Arrays.copyOf(freeSlots, freeCount * 2);
+        }
+        freeSlots[freeCount++] = slot;
+    }
+
+    private void allocate(int newCapacity) {
+        live = Arrays.copyOf(live != null ? live : new long[0], wordCount(newCapacity));
+        products = Arrays.copyOf(products != null ? products : new Product[0], newCapacity);
+        ids = Arrays.copyOf(ids != null ? ids : new String[0], newCapacity);
+        prices = Arrays.copyOf(prices != null ? prices : new double[0], newCapacity);
+        priceBucketOf = Arrays.copyOf(priceBucketOf != null ? priceBucketOf : new int[0], newCapacity);
+        ratings = Arrays.copyOf(ratings != null ? ratings : new double[0], newCapacity);
+        stock = Arrays.copyOf(stock != null ? stock : new int[0], newCapacity);
+        createdAt = Arrays.copyOf(createdAt != null ? createdAt : new long[0], newCapacity);
+        categoryOf = Arrays.copyOf(categoryOf != null ? categoryOf : new int[0], newCapacity);
+        brandOf = Arrays.copyOf(brandOf != null ? brandOf : new int[0], newCapacity);
+        tagsOf = Arrays.copyOf(tagsOf != null ? tagsOf : new int[0][], newCapacity);
+        capacity = newCapacity;
+    }
+
+    private int priceBucket(double price) {
+        for (int bucket = 0; bucket < priceBuckets.length; bucket++) {
+            if (price < priceBuckets[bucket]) {
+                return bucket;
+            }
+        }
+        return priceBuckets.length;
+    }
+
+    private static int wordCount(int slots) {
+        return (slots + 63) >>> 6;
+    }
+
+    private static String label(double value) {
+        return value == Math.rint(value) ? Long.toString((long) value) : Double.toString(value);
+    }
+
+    @FunctionalInterface
+    private interface SlotComparator {
+        int compare(int a, int b);
+    }
+
+    /**
+     * Dictionary encoding of one attribute, with a bitset of the slots holding each value.
+     */
+    private static final class Dictionary {
+        final Map<String, Integer> ordinals = new HashMap<>();
+        final List<String> values = new ArrayList<>();
+        final List<long[]> postings = new ArrayList<>();
+
+        int size() {
+            return values.size();
+        }
+
+        Integer find(String value) {
+            return ordinals.get(value);
+        }
+
+        int add(String value, int slot) {
+            int ordinal = ordinals.computeIfAbsent(value, v -> {
+                values.add(v);
+                postings.add(new long[0]);
+                return values.size() - 1;
+            });
+            long[] posting = postings.get(ordinal);
+            int word = slot >>> 6;
+            if (word >= posting.length) {
+                posting = Arrays.copyOf(posting, Math.max(word + 1, posting.length * 2));
+                postings.set(ordinal, posting);
+            }
+            posting[word] |= 1L << slot;
+            return ordinal;
+        }
+
+        void clear(int ordinal, int slot) {
+            postings.get(ordinal)[slot >>> 6] &= ~(1L << slot);
+        }
+
+        /**
+         * @return the ordinals of the values that occur, or {@code null} if none were requested
+         */
+        int[] ordinalsOf(List<String> requested) {
+            if (requested == null || requested.isEmpty()) {
+                return null;
+            }
+            return requested.stream().map(this::find).filter(ordinal -> ordinal != null)
+                    .mapToInt(Integer::intValue).toArray();
+        }
+    }
+
+    /**
+     * A query's filters resolved against the dictionaries; {@code null} means unfiltered.
+     */
+    private final class Filter {
+        final int[] categories;
+        final int[] brands;
+        final int[] tags;
+        final double minPrice;
+        final double maxPrice;
+        final Double minRating;
+        final Boolean inStock;
+
+        Filter(ProductQuery query) {
+            this.categories = ProductFacetIndex.this.categories.ordinalsOf(query.getCategory());
+            this.brands = ProductFacetIndex.this.brands.ordinalsOf(query.getBrand());
+            this.tags = ProductFacetIndex.this.tags.ordinalsOf(query.getTag());
+            this.minPrice = query.getMinPrice() != null
+                    ? query.getMinPrice().doubleValue()
+                    : Double.NEGATIVE_INFINITY;
+            this.maxPrice = query.getMaxPrice() != null
+                    ? query.getMaxPrice().doubleValue()
+                    : Double.POSITIVE_INFINITY;
+            this.minRating = query.getMinRating();
+            this.inStock = query.getInStock();
+        }
+
+        boolean hasPriceRange() {
+            return minPrice != Double.NEGATIVE_INFINITY || maxPrice != Double.POSITIVE_INFINITY;
+        }
+    }
+
+    private static final class Counts {
+        final int[] categories;
+        final int[] brands;
+        final int[] tags;
+        final int[] prices;
+        final int[] ratings = new int[MAX_RATING + 1];
+        final int[] stock = new int[2];
+        int total;
+
+        Counts(int categories, int brands, int tags, int priceBuckets) {
+            this.categories = new int[categories];
+            this.brands = new int[brands];
+            this.tags = new int[tags];
+            this.prices = new int[priceBuckets];
+        }
+
+        Counts merge(Counts other) {
+            add(categories, other.categories);
+            add(brands, other.brands);
+            add(tags, other.tags);
+            add(prices, other.prices);
+            add(ratings, other.ratings);
+            add(stock, other.stock);
+            total += other.total;
+            return this;
+        }
+
+        private static void add(int[] into, int[] from) {
+            for (int i = 0; i < into.length; i++) {
+                into[i] += from[i];
+            }
+        }
+    }
+}
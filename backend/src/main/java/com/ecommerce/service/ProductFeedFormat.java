@@ -0,0 +1,42 @@
+package com.ecommerce.service;
+
+import com.ecommerce.repository.InvalidPageRequestException;
+
+import java.util.Locale;
+
+/**
+ * Line-oriented product feed formats shared by bulk import and export. The CSV form has a header
+ * row of {@link com.ecommerce.model.Product} property names, with list properties joined by {@code |}.
+ */
+public enum ProductFeedFormat {
+    NDJSON("application/x-ndjson", "ndjson"),
+    CSV("text/csv", "csv");
+
+    private final String mediaType;
+    private final String extension;
+
+    ProductFeedFormat(String mediaType, String extension) {
+        this.mediaType = mediaType;
+        this.extension = extension;
+    }
+
+    public String getMediaType() {
+        return mediaType;
+    }
+
+    public String getExtension() {
+        return extension;
+    }
+
+    public static ProductFeedFormat forContentType(String contentType) {
+        return contentType != null && contentType.toLowerCase(Locale.ROOT).startsWith(CSV.mediaType) ? CSV : NDJSON;
+    }
+
+    public static ProductFeedFormat parse(String value) {
+        try {
+            return valueOf(value.toUpperCase(Locale.ROOT));
+        } catch (IllegalArgumentException e) {
+            throw new InvalidPageRequestException("Unknown format value: " + value);
+        }
+    }
+}
@@ -0,0 +1,98 @@
+package com.ecommerce.service;
+
+import com.ecommerce.model.Product;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Writes products one row at a time in a form {@link ProductImportReader} reads back.
+ */
+abstract class ProductFeedWriter {
+
+    protected final OutputStream out;
+    protected final ObjectMapper objectMapper;
+
+    private ProductFeedWriter(OutputStream out, ObjectMapper objectMapper) {
+        this.out = out;
+        this.objectMapper = objectMapper;
+    }
+
+    static ProductFeedWriter open(ProductFeedFormat format, OutputStream out, ObjectMapper objectMapper)
+            throws IOException {
+        if (format == ProductFeedFormat.CSV) {
+            CsvWriter writer = new CsvWriter(out, objectMapper);
+            writer.writeHeader();
+            return writer;
+        }
+        return new NdjsonWriter(out, objectMapper);
+    }
+
+    abstract void write(Product product) throws IOException;
+
+    private static final class NdjsonWriter extends ProductFeedWriter {
+
+        NdjsonWriter(OutputStream out, ObjectMapper objectMapper) {
+            super(out, objectMapper);
+        }
+
+        @Override
+        void write(Product product) throws IOException {
+            out.write(objectMapper.writeValueAsBytes(product));
+            out.write('\n');
+        }
+    }
+
+    /**
+     * Nested {@code dimensions} are left out; every other property gets a column.
+     */
+    private static final class CsvWriter extends ProductFeedWriter {
+
+        private static final List<String> COLUMNS = List.of("id", "name", "description", "price", "category",
+                "brand", "sku", "stockQuantity", "imageUrls", "tags", "rating", "reviewCount", "weight", "active",
+                "featured", "createdAt", "updatedAt");
+
+        private final StringBuilder line = new StringBuilder(512);
+
+        CsvWriter(OutputStream out, ObjectMapper objectMapper) {
+            super(out, objectMapper);
+        }
+
+        void writeHeader() throws IOException {
+            out.write((String.join(",", COLUMNS) + "\r\n").getBytes(StandardCharsets.UTF_8));
+        }
+
+        @Override
+        @SuppressWarnings("unchecked")
+        void write(Product product) throws IOException {
+            Map<String, Object> values = objectMapper.convertValue(product, Map.class);
+            line.setLength(0);
+            for (String column : COLUMNS) {
+                if (line.length() > 0) {
+                    line.append(',');
+                }
+                Object value = values.get(column);
+                if (value instanceof List<?> list) {
+                    appendField(String.join("|", list.stream().map(String::valueOf).toList()));
+                } else if (value != null) {
+                    appendField(String.valueOf(value));
+                }
+            }
+            line.append("\r\n");
+            out.write(line.toString().getBytes(StandardCharsets.UTF_8));
+        }
+
+        private void appendField(String value) {
+            if (value.indexOf(',') < 0 && value.indexOf('"') < 0 && value.indexOf('\n') < 0
+                    && value.indexOf('\r') < 0) {
+                line.append(value);
+                return;
+            }
+            line.append('"').append(value.replace("\"", "\"\"")).append('"');
+        }
+    }
+}
@@ -0,0 +1,193 @@
+package com.ecommerce.service;
+
+import com.ecommerce.model.Product;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.io.BufferedReader;
+import java.io.Closeable;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.Reader;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Reads an import feed one row at a time, so memory use does not depend on the feed size. A row
+ * that cannot be mapped to a {@link Product} is returned with an error instead of ending the read.
+ */
+abstract class ProductImportReader implements Closeable {
+
+    protected final BufferedReader in;
+    protected final ObjectMapper objectMapper;
+    protected long line;
+
+    private ProductImportReader(Reader in, ObjectMapper objectMapper) {
+        this.in = in instanceof BufferedReader buffered ? buffered : new BufferedReader(in);
+        this.objectMapper = objectMapper;
+    }
+
+    static ProductImportReader open(ProductFeedFormat format, Reader in, ObjectMapper objectMapper) {
+        return format == ProductFeedFormat.CSV
+                ? new CsvReader(in, objectMapper)
+                : new NdjsonReader(in, objectMapper);
+    }
+
+    /**
+     * @return the next non-blank row, or {@code null} at the end of the feed
+     */
+    abstract Row next() throws IOException;
+
+    @Override
+    public void close() throws IOException {
+        in.close();
+    }
+
+    static final class Row {
+        final long line;
+        final Product product;
+        final String error;
+
+        private Row(long line, Product product, String error) {
+            this.line = line;
+            this.product = product;
+            this.error = error;
+        }
+    }
+
+    /**
+     * One JSON product object per line.
+     */
+    private static final class NdjsonReader extends ProductImportReader {
+
+        NdjsonReader(Reader in, ObjectMapper objectMapper) {
+            super(in, objectMapper);
+        }
+
+        @Override
+        Row next() throws IOException {
+            String text;
+            while ((text = in.readLine()) != null) {
+                line++;
+                if (text.isBlank()) {
+                    continue;
+                }
+                try {
+                    return new Row(line, objectMapper.readValue(text, Product.class), null);
+                } catch (JsonProcessingException e) {
+                    return new Row(line, null, e.getOriginalMessage());
+                }
+            }
+            return null;
+        }
+    }
+
+    /**
+     * RFC 4180 CSV with a header row naming {@link Product} properties. List columns
+     * ({@code imageUrls}, {@code tags}) hold {@code |}-separated values; empty cells are left unset.
+     */
+    private static final class CsvReader extends ProductImportReader {
+
+        private static final Set<String> LIST_COLUMNS = Set.of("imageUrls", "tags");
+
+        private List<String> header;
+
+        CsvReader(Reader in, ObjectMapper objectMapper) {
+            super(in, objectMapper);
+        }
+
+        @Override
+        Row next() throws IOException {
+            if (header == null) {
+                header = readRecord();
+                if (header == null) {
+                    return null;
+                }
+                header.replaceAll(String::trim);
+                header.set(0, header.get(0).replace("\uFEFF", ""));
+            }
+
+            List<String> record;
+            long start;
+            do {
+                start = line + 1;
+                record = readRecord();
+                if (record == null) {
+                    return null;
+                }
+            } while (record.size() == 1 && record.get(0).isBlank());
+
+            if (record.size() != header.size()) {
+                return new Row(start, null,
+                        "Expected " + header.size() + " columns but found " + record.size());
+            }
+
+            Map<String, Object> values = new LinkedHashMap<>();
+            for (int i = 0; i < record.size(); i++) {
+                String value = record.get(i);
+                if (value.isEmpty()) {
+                    continue;
+                }
+                String column = header.get(i);
+                values.put(column, LIST_COLUMNS.contains(column) ? List.of(value.split("\\|")) : value);
+            }
+            try {
+                return new Row(start, objectMapper.convertValue(values, Product.class), null);
+            } catch (IllegalArgumentException e) {
+                return new Row(start, null, e.getMessage().lines().findFirst().orElse("Invalid row"));
+            }
+        }
+
+        private List<String> readRecord() throws IOException {
+            List<String> fields = new ArrayList<>();
+            StringBuilder field = new StringBuilder();
+            boolean quoted = false;
+            boolean read = false;
+            int c;
+            while ((c = in.read()) != -1) {
+                read = true;
+                if (quoted) {
+                    if (c == '"') {
+                        in.mark(1);
+                        int following = in.read();
+                        if (following == '"') {
+                            field.append('"');
+                        } else {
+                            quoted = false;
+                            if (following != -1) {
+                                in.reset();
+                            }
+                        }
+                    } else {
+                        if (c == '\n') {
+                            line++;
+                        }
+                        field.append((char) c);
+                    }
+                } else if (c == '"' && field.length() == 0) {
+                    quoted = true;
+                } else if (c == ',') {
+                    fields.add(field.toString());
+                    field.setLength(0);
+                } else if (c == '\n') {
+                    line++;
+                    fields.add(field.toString());
+                    return fields;
+                } else if (c != '\r') {
+                    field.append((char) c);
+                }
+            }
+            if (quoted) {
+                throw new EOFException("Unterminated quoted field at line " + line);
+            }
+            if (!read) {
+                return null;
+            }
+            fields.add(field.toString());
+            return fields;
+        }
+    }
+}
@@ -0,0 +1,401 @@
+package com.ecommerce.service;
+
+import com.couchbase.client.core.error.CasMismatchException;
+import com.couchbase.client.core.error.DocumentExistsException;
+import com.couchbase.client.core.error.DocumentNotFoundException;
+import com.couchbase.client.java.Collection;
+import com.couchbase.client.java.ReactiveCollection;
+import com.couchbase.client.java.json.JsonObject;
+import com.couchbase.client.java.kv.GetResult;
+import com.couchbase.client.java.kv.LookupInResult;
+import com.couchbase.client.java.kv.LookupInSpec;
+import com.couchbase.client.java.kv.MutationResult;
+import com.ecommerce.model.Product;
+import com.ecommerce.security.TokenRevocationList;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import jakarta.validation.ConstraintViolation;
+import jakarta.validation.Validator;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.couchbase.core.CouchbaseTemplate;
+import org.springframework.data.couchbase.core.mapping.CouchbaseDocument;
+import org.springframework.stereotype.Service;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.util.retry.Retry;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+
+import static com.couchbase.client.java.kv.InsertOptions.insertOptions;
+import static com.couchbase.client.java.kv.ReplaceOptions.replaceOptions;
+import static com.couchbase.client.java.kv.UpsertOptions.upsertOptions;
+
+/**
+ * Bulk product import. The request thread reads and validates the feed row by row and hands
+ * full batches to a small pool of writers; once {@code max-in-flight-batches} are being written
+ * the reader blocks, which in turn stops reading the request body, so neither the feed nor the
+ * pending upserts ever have to fit in memory. Rows publish no {@link ProductChangedEvent}s; one
+ * {@link CatalogChangedEvent} follows the whole job instead.
+ * <p>
+ * A job is created first and its content uploaded separately, so the job id is known while the
+ * upload is still running. Job state is kept in a KV document, so progress can be polled on any
+ * replica and a job can be claimed for upload only once.
+ */
+@Service
+public class ProductImportService {
+    private static final Logger logger = LoggerFactory.getLogger(ProductImportService.class);
+
+    private static final String JOB_KEY_PREFIX = "product-import::";
+
+    // Keys of the other document types contain this separator, apart from those listed
+    private static final String KEY_SEPARATOR = "::";
+    private static final Set<String> RESERVED_KEYS = Set.of(TokenRevocationList.REVOCATIONS_KEY);
+
+    private static final int MAX_WRITE_ATTEMPTS = 3;
+
+    // Fields a re-imported product keeps from the stored one
+    private static final String CREATED_AT = "createdAt";
+    private static final String RATING = "rating";
+    private static final String REVIEW_COUNT = "reviewCount";
+    private static final String STOCK_QUANTITY = "stockQuantity";
+
+    @Autowired
+    private CouchbaseTemplate couchbaseTemplate;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Autowired
+    private InventoryService inventoryService;
+
+    @Autowired
+    private Validator validator;
+
+    @Autowired
+    private ProductChangePublisher productChangePublisher;
+
+    @Value("${product-import.batch-size:500}")
+    private int batchSize;
+
+    @Value("${product-import.max-in-flight-batches:4}")
+    private int maxInFlightBatches;
+
+    @Value("${product-import.max-reported-errors:1000}")
+    private int maxReportedErrors;
+
+    @Value("${product-import.progress-interval:2s}")
+    private Duration progressInterval;
+
+    @Value("${product-import.job-ttl:7d}")
+    private Duration jobTtl;
+
+    // Jobs uploading on this replica; finished jobs are served from their KV document
+    private final Map<String, ImportJob> running = new ConcurrentHashMap<>();
+
+    private ExecutorService writers;
+
+    @PostConstruct
+    void init() {
+        AtomicInteger threadCount = new AtomicInteger();
+        writers = Executors.newFixedThreadPool(maxInFlightBatches, runnable -> {
+            Thread thread = new Thread(runnable, "product-import-" + threadCount.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    @PreDestroy
+    void shutdown() {
+        writers.shutdown();
+    }
+
+    public ImportJob createJob() {
+        ImportJob job = new ImportJob(UUID.randomUUID().toString(), maxReportedErrors);
+        collection().insert(jobKey(job.getId()), toJson(job), insertOptions().expiry(jobTtl));
+        return job;
+    }
+
+    /**
+     * The job as last recorded: live counters for a job uploading on this replica, otherwise its
+     * stored state, which lags a running upload by at most {@code progress-interval}.
+     */
+    public Optional<Object> findJob(String jobId) {
+        ImportJob job = running.get(jobId);
+        if (job != null) {
+            return Optional.of(job);
+        }
+        try {
+            return Optional.of(collection().get(jobKey(jobId)).contentAsObject().toMap());
+        } catch (DocumentNotFoundException e) {
+            return Optional.empty();
+        }
+    }
+
+    /**
+     * Streams the feed into the job and returns once every row has been written or rejected.
+     *
+     * @return empty if there is no such job
+     * @throws ImportJobStateException if the job has already received its content
+     */
+    public Optional<ImportJob> importProducts(String jobId, ProductFeedFormat format, InputStream content) {
+        ImportJob job = claim(jobId, format);
+        if (job == null) {
+            return Optional.empty();
+        }
+
+        running.put(jobId, job);
+        Semaphore inFlight = new Semaphore(maxInFlightBatches);
+        long nextProgress = System.nanoTime() + progressInterval.toNanos();
+        try (ProductImportReader reader = ProductImportReader.open(format,
+                new InputStreamReader(content, StandardCharsets.UTF_8), objectMapper)) {
+            List<ProductImportReader.Row> batch = new ArrayList<>(batchSize);
+            ProductImportReader.Row row;
+            while ((row = reader.next()) != null) {
+                job.rowRead();
+                String error = row.error != null ? row.error : validate(row.product);
+                if (error != null) {
+                    job.rowFailed(row.line, row.product != null ? row.product.getId() : null, error);
+                    continue;
+                }
+
+                batch.add(row);
+                if (batch.size() == batchSize) {
+                    submit(job, batch, inFlight);
+                    batch = new ArrayList<>(batchSize);
+                    if (System.nanoTime() - nextProgress > 0) {
+                        save(job);
+                        nextProgress = System.nanoTime() + progressInterval.toNanos();
+                    }
+                }
+            }
+            if (!batch.isEmpty()) {
+                submit(job, batch, inFlight);
+            }
+            inFlight.acquireUninterruptibly(maxInFlightBatches);
+            job.finish(ImportJob.Status.COMPLETED, null);
+        } catch (IOException | RuntimeException e) {
+            inFlight.acquireUninterruptibly(maxInFlightBatches);
+            logger.warn("Product import {} failed after {} rows: {}", jobId, job.getRowsRead(), e.getMessage());
+            job.finish(ImportJob.Status.FAILED, "Import stopped after " + job.getRowsRead() + " rows: "
+                    + e.getMessage());
+        } finally {
+            save(job);
+            running.remove(jobId);
+            if (job.getRowsImported() > 0) {
+                productChangePublisher.catalogChanged(jobKey(jobId));
+            }
+        }
+
+        logger.info("Product import {} {}: {} imported, {} failed", jobId, job.getStatus(), job.getRowsImported(),
+                job.getRowsFailed());
+        return Optional.of(job);
+    }
+
+    /**
+     * Blocks while the writers are busy with earlier batches.
+     */
+    private void submit(ImportJob job, List<ProductImportReader.Row> batch, Semaphore inFlight) {
+        inFlight.acquireUninterruptibly();
+        try {
+            writers.execute(() -> {
+                try {
+                    write(job, batch);
+                } finally {
+                    inFlight.release();
+                }
+            });
+        } catch (RuntimeException e) {
+            inFlight.release();
+            throw e;
+        }
+    }
+
+    /**
+     * Writes the batch with concurrent KV writes. They bypass the template, which would publish a
+     * change event for every row.
+     */
+    private void write(ImportJob job, List<ProductImportReader.Row> batch) {
+        ReactiveCollection collection = collection().reactive();
+        Set<String> stockChanged = ConcurrentHashMap.newKeySet();
+        Flux.fromIterable(batch)
+                .flatMap(row -> {
+                    Product product = row.product;
+                    if (product.getId() == null || product.getId().isBlank()) {
+                        product.setId(UUID.randomUUID().toString());
+                    }
+                    return writeRow(collection, product, stockChanged)
+                            .doOnNext(result -> job.rowsImported(1))
+                            .onErrorResume(e -> {
+                                job.rowFailed(row.line, product.getId(), e.getMessage());
+                                return Mono.empty();
+                            });
+                })
+                .blockLast();
+
+        // Counters are reset once the rows are written, off the reactive writes
+        for (ProductImportReader.Row row : batch) {
+            Product product = row.product;
+            if (stockChanged.contains(product.getId())) {
+                try {
+                    inventoryService.stockQuantityWritten(product.getId(), product.getStockQuantity());
+                } catch (RuntimeException e) {
+                    logger.warn("Could not reset stock counters of imported product {}: {}", product.getId(),
+                            e.getMessage());
+                }
+            }
+        }
+    }
+
+    /**
+     * Inserts the product, or replaces it if it exists, checking under the same CAS that the
+     * existing document is a product so that no other document can be overwritten. A replaced
+     * product keeps its creation time, and its rating, review count and stock unless the feed has
+     * them; {@code updatedAt} is always the time of the import, so incremental exports pick the row
+     * up. Products whose stock the row changes are added to {@code stockChanged}.
+     */
+    private Mono<MutationResult> writeRow(ReactiveCollection collection, Product product, Set<String> stockChanged) {
+        String id = product.getId();
+        product.setUpdatedAt(LocalDateTime.now());
+        JsonObject content = toStored(product);
+        return Mono.defer(() -> collection.lookupIn(id, List.of(
+                                LookupInSpec.get(couchbaseTemplate.getConverter().getTypeKey()),
+                                LookupInSpec.get(CREATED_AT),
+                                LookupInSpec.get(RATING),
+                                LookupInSpec.get(REVIEW_COUNT),
+                                LookupInSpec.get(STOCK_QUANTITY)))
+                        .flatMap(current -> {
+                            if (!current.exists(0)
+                                    || !Product.class.getName().equals(current.contentAs(0, String.class))) {
+                                return Mono.error(new IllegalArgumentException(
+                                        "id " + id + " belongs to a document that is not a product"));
+                            }
+                            JsonObject merged = JsonObject.from(content.toMap());
+                            keep(merged, current, 1, CREATED_AT, true);
+                            keep(merged, current, 2, RATING, product.getRating() == null);
+                            keep(merged, current, 3, REVIEW_COUNT, product.getReviewCount() == null);
+                            keep(merged, current, 4, STOCK_QUANTITY, product.getStockQuantity() == null);
+                            boolean changesStock = product.getStockQuantity() != null && !(current.exists(4)
+                                    && product.getStockQuantity().equals(current.contentAs(4, Integer.class)));
+                            return collection.replace(id, merged, replaceOptions().cas(current.cas()))
+                                    .doOnNext(result -> {
+                                        if (changesStock) {
+                                            stockChanged.add(id);
+                                        }
+                                    });
+                        })
+                        .onErrorResume(DocumentNotFoundException.class, e -> collection.insert(id, content)
+                                .doOnNext(result -> {
+                                    // Counters may outlive a deleted product whose id the row reuses
+                                    if (product.getStockQuantity() != null) {
+                                        stockChanged.add(id);
+                                    }
+                                })))
+                // Written concurrently by someone else between the lookup and the write
+                .retryWhen(Retry.max(MAX_WRITE_ATTEMPTS - 1)
+                        .filter(e -> e instanceof CasMismatchException || e instanceof DocumentExistsException)
+                        .onRetryExhaustedThrow((spec, signal) -> signal.failure()));
+    }
+
+    private static void keep(JsonObject merged, LookupInResult current, int index, String field, boolean keep) {
+        if (keep && current.exists(index)) {
+            merged.put(field, current.contentAs(index, Object.class));
+        }
+    }
+
+    /**
+     * The product as the template would store it.
+     */
+    private JsonObject toStored(Product product) {
+        CouchbaseDocument document = new CouchbaseDocument();
+        couchbaseTemplate.getConverter().write(product, document);
+        return JsonObject.from(document.export());
+    }
+
+    private String validate(Product product) {
+        String id = product.getId();
+        if (id != null && (id.contains(KEY_SEPARATOR) || RESERVED_KEYS.contains(id))) {
+            return "id " + id + " is reserved";
+        }
+        Set<ConstraintViolation<Product>> violations = validator.validate(product);
+        if (violations.isEmpty()) {
+            return null;
+        }
+        return violations.stream()
+                .map(violation -> violation.getPropertyPath() + " " + violation.getMessage())
+                .sorted()
+                .collect(Collectors.joining(", "));
+    }
+
+    /**
+     * Moves a pending job to running with a CAS replace, so concurrent uploads to the same job
+     * cannot both start.
+     */
+    private ImportJob claim(String jobId, ProductFeedFormat format) {
+        GetResult stored;
+        try {
+            stored = collection().get(jobKey(jobId));
+        } catch (DocumentNotFoundException e) {
+            return null;
+        }
+
+        JsonObject content = stored.contentAsObject();
+        if (!ImportJob.Status.PENDING.name().equals(content.getString("status"))) {
+            throw new ImportJobStateException("Import job " + jobId + " has already received its content");
+        }
+
+        ImportJob job = new ImportJob(jobId, maxReportedErrors);
+        job.start(format);
+        try {
+            collection().replace(jobKey(jobId), toJson(job), replaceOptions().cas(stored.cas()).expiry(jobTtl));
+        } catch (CasMismatchException | DocumentNotFoundException e) {
+            throw new ImportJobStateException("Import job " + jobId + " has already received its content");
+        }
+        return job;
+    }
+
+    private void save(ImportJob job) {
+        try {
+            collection().upsert(jobKey(job.getId()), toJson(job), upsertOptions().expiry(jobTtl));
+        } catch (RuntimeException e) {
+            logger.warn("Could not record progress of product import {}: {}", job.getId(), e.getMessage());
+        }
+    }
+
+    private JsonObject toJson(ImportJob job) {
+        try {
+            return JsonObject.fromJson(objectMapper.writeValueAsString(job));
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static String jobKey(String jobId) {
+        return JOB_KEY_PREFIX + jobId;
+    }
+
+    private Collection collection() {
+        return couchbaseTemplate.getCouchbaseClientFactory().getDefaultCollection();
+    }
+}
@@ -0,0 +1,152 @@
+package com.ecommerce.service;
+
+import com.ecommerce.cache.CacheLoading;
+import com.ecommerce.dto.CountedPage;
+import com.ecommerce.model.Product;
+import com.ecommerce.repository.ProductFields;
+import com.ecommerce.repository.ProductFilter;
+import com.ecommerce.repository.ProductRepository;
+import com.github.benmanes.caffeine.cache.AsyncCache;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import jakarta.annotation.PostConstruct;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.Pageable;
+import org.springframework.stereotype.Service;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Paged product listings with cached total counts, so that most pages cost a single query.
+ * <p>
+ * Exact counts are cached per listing and parameters for a short time and dropped on any product
+ * change. In approximate mode, the last count computed for a listing is reused for longer, even
+ * across product changes, and the page is flagged as carrying an estimated total.
+ * <p>
+ * {@link #findPageAsync} runs the queries on the reactive driver, so a slow query service does not
+ * tie up a request thread per listing, and a page whose count is not cached is counted alongside
+ * the page rather than after it. The listing endpoints use it when
+ * {@code catalog.listing.non-blocking} is set.
+ */
+@Service
+public class ProductListingService {
+
+    @Autowired
+    private ProductRepository productRepository;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Value("${cache.product-counts.max-size:10000}")
+    private long maxSize;
+
+    @Value("${cache.product-counts.ttl:30s}")
+    private Duration ttl;
+
+    @Value("${cache.product-counts.estimate-ttl:10m}")
+    private Duration estimateTtl;
+
+    private AsyncCache<String, Long> counts;
+
+    private Cache<String, Long> estimates;
+
+    @PostConstruct
+    void init() {
+        counts = Caffeine.newBuilder()
+                .maximumSize(maxSize)
+                .expireAfterWrite(ttl)
+                .recordStats()
+                .buildAsync();
+        estimates = Caffeine.newBuilder()
+                .maximumSize(maxSize)
+                .expireAfterWrite(estimateTtl)
+                .recordStats()
+                .build();
+        CaffeineCacheMetrics.monitor(meterRegistry, counts, "product-counts");
+        CaffeineCacheMetrics.monitor(meterRegistry, estimates, "product-count-estimates");
+    }
+
+    public CountedPage<Product> findPage(ProductFilter filter, Pageable pageable, boolean approximate,
+                                         ProductFields fields) {
+        List<Product> content = productRepository.findPage(filter, pageable, fields);
+
+        // A short page makes the total exact without counting
+        if (!content.isEmpty() && content.size() < pageable.getPageSize()) {
+            return new CountedPage<>(content, pageable, pageable.getOffset() + content.size(), false);
+        }
+
+        if (approximate) {
+            Long estimate = CacheLoading.getIfLoaded(counts, filter.getKey());
+            if (estimate == null) {
+                estimate = estimates.getIfPresent(filter.getKey());
+            }
+            // An estimate that ends before a full page is too stale to tell whether more pages follow
+            if (estimate != null && estimate > pageable.getOffset() + content.size()) {
+                return new CountedPage<>(content, pageable, estimate, true);
+            }
+        }
+        return new CountedPage<>(content, pageable, count(filter), false);
+    }
+
+    public Mono<CountedPage<Product>> findPageAsync(ProductFilter filter, Pageable pageable, boolean approximate,
+                                                    ProductFields fields) {
+        Long exact = CacheLoading.getIfLoaded(counts, filter.getKey());
+        Long estimate = approximate && exact == null ? estimates.getIfPresent(filter.getKey()) : null;
+        Mono<List<Product>> page = productRepository.findPageAsync(filter, pageable, fields);
+        if (exact == null && estimate == null) {
+            return Mono.zip(page, countAsync(filter))
+                    .map(result -> countedPage(result.getT1(), pageable, result.getT2(), false));
+        }
+
+        return page.flatMap(content -> {
+            if (exact != null) {
+                return Mono.just(countedPage(content, pageable, exact, false));
+            }
+            if (estimate > pageable.getOffset() + content.size()) {
+                return Mono.just(countedPage(content, pageable, estimate, true));
+            }
+            return countAsync(filter).map(count -> countedPage(content, pageable, count, false));
+        });
+    }
+
+    public long count(ProductFilter filter) {
+        return CacheLoading.get(counts, filter.getKey(), key -> {
+            long count = productRepository.count(filter);
+            estimates.put(key, count);
+            return count;
+        });
+    }
+
+    private Mono<Long> countAsync(ProductFilter filter) {
+        return productRepository.countAsync(filter).doOnNext(count -> {
+            counts.put(filter.getKey(), CompletableFuture.completedFuture(count));
+            estimates.put(filter.getKey(), count);
+        });
+    }
+
+    private static CountedPage<Product> countedPage(List<Product> content, Pageable pageable, long total,
+                                                    boolean estimated) {
+        // A short page makes the total exact without counting
+        if (!content.isEmpty() && content.size() < pageable.getPageSize()) {
+            return new CountedPage<>(content, pageable, pageable.getOffset() + content.size(), false);
+        }
+        return new CountedPage<>(content, pageable, total, estimated);
+    }
+
+    @EventListener
+    public void onProductChanged(ProductChangedEvent event) {
+        counts.synchronous().invalidateAll();
+    }
+
+    @EventListener
+    public void onCatalogChanged(CatalogChangedEvent event) {
+        counts.synchronous().invalidateAll();
+    }
+}
@@ -0,0 +1,417 @@
+package com.ecommerce.service;
+
+import com.ecommerce.model.Product;
+import com.ecommerce.repository.ProductFields;
+import com.ecommerce.repository.ProductFilter;
+import com.ecommerce.repository.ProductRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.couchbase.core.CouchbaseTemplate;
+import org.springframework.data.couchbase.core.query.Query;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.Pageable;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.stream.Stream;
+
+/**
+ * In-memory inverted index over the name, brand, tags and description of active products.
+ * <p>
+ * Words are indexed with a per-field weight, and the vocabulary itself is indexed by trigram so
+ * that a query term still matches anywhere inside a word, as the old {@code LIKE '%term%'} query
+ * did. The index is built at startup, retried until it succeeds, kept current from
+ * {@link ProductChangedEvent}s and rebuilt on a {@link CatalogChangedEvent}; until it is ready,
+ * searches fall back to a {@link ProductFilter#nameContains} query.
+ * <p>
+ * Indexed products are numbered by slot, so that a search scores its matches in arrays, and only
+ * the products up to the end of the requested page are ranked.
+ */
+@Service
+public class ProductSearchIndex {
+    private static final Logger logger = LoggerFactory.getLogger(ProductSearchIndex.class);
+
+    private static final int NAME_WEIGHT = 8;
+    private static final int BRAND_WEIGHT = 4;
+    private static final int TAG_WEIGHT = 2;
+    private static final int DESCRIPTION_WEIGHT = 1;
+
+    private static final Comparator<Ranked> RANKING = Comparator.<Ranked>comparingInt(ranked -> ranked.score)
+            .reversed()
+            .thenComparing(ranked -> ranked.indexed.rating, Comparator.reverseOrder())
+            .thenComparing(ranked -> ranked.indexed.sortName);
+
+    @Autowired
+    private ProductRepository productRepository;
+
+    @Autowired
+    private ProductListingService productListingService;
+
+    @Autowired
+    private CouchbaseTemplate couchbaseTemplate;
+
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+
+    private final Map<String, IndexedProduct> products = new HashMap<>();
+
+    // slot -> product, null for a free slot
+    private final List<IndexedProduct> slots = new ArrayList<>();
+
+    private final ArrayDeque<Integer> freeSlots = new ArrayDeque<>();
+
+    // word -> product slot -> summed field weight
+    private final Map<String, Map<Integer, Integer>> postings = new HashMap<>();
+
+    // trigram -> words containing it
+    private final Map<String, Set<String>> trigrams = new HashMap<>();
+
+    // Words too short to have a trigram
+    private final Set<String> shortWords = new HashSet<>();
+
+    private volatile boolean ready;
+
+    // False until a build succeeds, and again once one fails
+    private volatile boolean current;
+
+    private final AtomicBoolean building = new AtomicBoolean();
+
+    private final AtomicBoolean buildRequested = new AtomicBoolean();
+
+    // Products changed while a build is loading; re-read once the build has been applied
+    private Set<String> changedDuringBuild;
+
+    /**
+     * Loads every active product again. A build requested while another is running makes that one
+     * load once more when it finishes, rather than running concurrently.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void build() {
+        buildRequested.set(true);
+        while (buildRequested.get() && building.compareAndSet(false, true)) {
+            try {
+                if (buildRequested.getAndSet(false)) {
+                    load();
+                }
+            } finally {
+                building.set(false);
+            }
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${catalog.search.retry-interval-ms:30000}",
+            initialDelayString = "${catalog.search.retry-interval-ms:30000}")
+    public void retryBuild() {
+        if (!current) {
+            build();
+        }
+    }
+
+    /**
+     * Loads the active products without holding the lock, then applies them in one step, drops
+     * products no longer active and re-reads any product that changed in the meantime, since the
+     * loaded copy may be stale.
+     */
+    private void load() {
+        try {
+            lock.writeLock().lock();
+            try {
+                changedDuringBuild = new HashSet<>();
+            } finally {
+                lock.writeLock().unlock();
+            }
+
+            List<Product> active;
+            try (Stream<Product> stream = couchbaseTemplate.findByQuery(Product.class)
+                    .matching(new Query(ProductFilter.active().toCriteria()))
+                    .stream()) {
+                active = stream.toList();
+            }
+
+            Set<String> changed;
+            lock.writeLock().lock();
+            try {
+                Set<String> inactive = new HashSet<>(products.keySet());
+                for (Product product : active) {
+                    inactive.remove(product.getId());
+                    add(product);
+                }
+                inactive.forEach(this::remove);
+                changed = changedDuringBuild;
+                changedDuringBuild = null;
+                ready = true;
+                current = true;
+            } finally {
+                lock.writeLock().unlock();
+            }
+            changed.forEach(this::refresh);
+            logger.info("Product search index built with {} products and {} words", products.size(), postings.size());
+        } catch (RuntimeException e) {
+            lock.writeLock().lock();
+            try {
+                changedDuringBuild = null;
+            } finally {
+                lock.writeLock().unlock();
+            }
+            current = false;
+            logger.warn("Could not build product search index{}: {}", ready ? "" : ", falling back to N1QL search",
+                    e.getMessage());
+        }
+    }
+
+    @EventListener
+    public void onProductChanged(ProductChangedEvent event) {
+        refresh(event.getProductId());
+    }
+
+    @EventListener
+    public void onCatalogChanged(CatalogChangedEvent event) {
+        build();
+    }
+
+    private void refresh(String productId) {
+        Product product = productRepository.findById(productId).orElse(null);
+
+        lock.writeLock().lock();
+        try {
+            if (changedDuringBuild != null) {
+                changedDuringBuild.add(productId);
+            }
+            remove(productId);
+            if (product != null && product.isActive()) {
+                add(product);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public Page<Product> search(String query, Pageable pageable) {
+        if (!ready) {
+            return productListingService.findPage(ProductFilter.nameContains(query), pageable, false,
+                    ProductFields.FULL);
+        }
+
+        List<String> terms = tokenize(query);
+        if (terms.isEmpty()) {
+            return Page.empty(pageable);
+        }
+
+        int from = (int) Math.min(pageable.getOffset(), Integer.MAX_VALUE - pageable.getPageSize());
+        int pageEnd = from + pageable.getPageSize();
+        // Worst ranked at the head, so the heap keeps the products up to the end of the page
+        PriorityQueue<Ranked> top = new PriorityQueue<>(RANKING.reversed());
+        int total = 0;
+        lock.readLock().lock();
+        try {
+            int[] scores = null;
+            for (String term : terms) {
+                int[] termScores = score(term);
+                if (scores == null) {
+                    scores = termScores;
+                } else {
+                    for (int slot = 0; slot < scores.length; slot++) {
+                        scores[slot] = scores[slot] == 0 || termScores[slot] == 0 ? 0 : scores[slot] + termScores[slot];
+                    }
+                }
+            }
+            for (int slot = 0; slot < scores.length; slot++) {
+                if (scores[slot] == 0) {
+                    continue;
+                }
+                total++;
+                Ranked candidate = new Ranked(slots.get(slot), scores[slot]);
+                if (top.size() < pageEnd) {
+                    top.add(candidate);
+                } else if (RANKING.compare(candidate, top.peek()) < 0) {
+                    top.poll();
+                    top.add(candidate);
+                }
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+
+        List<Ranked> ranked = new ArrayList<>(top);
+        ranked.sort(RANKING);
+        List<Product> content = new ArrayList<>();
+        for (int i = from; i < ranked.size(); i++) {
+            content.add(ranked.get(i).indexed.product);
+        }
+        return new PageImpl<>(content, pageable, total);
+    }
+
+    /**
+     * Scores every product containing a word that matches the term, by slot; 0 for no match.
+     * Whole-word matches rank above prefix matches, which rank above matches inside a word.
+     */
+    private int[] score(String term) {
+        int[] scores = new int[slots.size()];
+        for (String word : matchingWords(term)) {
+            int multiplier = word.equals(term) ? 4 : word.startsWith(term) ? 2 : 1;
+            postings.get(word).forEach((slot, weight) -> scores[slot] = Math.max(scores[slot], weight * multiplier));
+        }
+        return scores;
+    }
+
+    private Set<String> matchingWords(String term) {
+        if (term.length() < 3) {
+            // Any longer word containing the term has a trigram containing it
+            Set<String> words = new HashSet<>();
+            trigrams.forEach((trigram, trigramWords) -> {
+                if (trigram.contains(term)) {
+                    words.addAll(trigramWords);
+                }
+            });
+            for (String word : shortWords) {
+                if (word.contains(term)) {
+                    words.add(word);
+                }
+            }
+            return words;
+        }
+
+        Set<String> candidates = null;
+        for (String trigram : trigramsOf(term)) {
+            Set<String> words = trigrams.get(trigram);
+            if (words == null) {
+                return Set.of();
+            }
+            if (candidates == null) {
+                candidates = new HashSet<>(words);
+            } else {
+                candidates.retainAll(words);
+            }
+        }
+        candidates.removeIf(word -> !word.contains(term));
+        return candidates;
+    }
+
+    private void add(Product product) {
+        // Drop the postings of a version already indexed, or its old words keep matching
+        remove(product.getId());
+
+        Map<String, Integer> weights = new HashMap<>();
+        addField(weights, product.getName(), NAME_WEIGHT);
+        addField(weights, product.getBrand(), BRAND_WEIGHT);
+        if (product.getTags() != null) {
+            product.getTags().forEach(tag -> addField(weights, tag, TAG_WEIGHT));
+        }
+        addField(weights, product.getDescription(), DESCRIPTION_WEIGHT);
+
+        Integer free = freeSlots.poll();
+        int slot = free != null ? free : slots.size();
+        IndexedProduct indexed = new IndexedProduct(product, weights.keySet(), slot);
+        if (free != null) {
+            slots.set(slot, indexed);
+        } else {
+            slots.add(indexed);
+        }
+        products.put(product.getId(), indexed);
+        weights.forEach((word, weight) -> {
+            Map<Integer, Integer> posting = postings.computeIfAbsent(word, w -> new HashMap<>());
+            if (posting.isEmpty()) {
+                if (word.length() < 3) {
+                    shortWords.add(word);
+                }
+                for (String trigram : trigramsOf(word)) {
+                    trigrams.computeIfAbsent(trigram, t -> new HashSet<>()).add(word);
+                }
+            }
+            posting.put(slot, weight);
+        });
+    }
+
+    private void remove(String productId) {
+        IndexedProduct indexed = products.remove(productId);
+        if (indexed == null) {
+            return;
+        }
+
+        slots.set(indexed.slot, null);
+        freeSlots.push(indexed.slot);
+        for (String word : indexed.words) {
+            Map<Integer, Integer> posting = postings.get(word);
+            posting.remove(indexed.slot);
+            if (posting.isEmpty()) {
+                postings.remove(word);
+                shortWords.remove(word);
+                for (String trigram : trigramsOf(word)) {
+                    Set<String> words = trigrams.get(trigram);
+                    words.remove(word);
+                    if (words.isEmpty()) {
+                        trigrams.remove(trigram);
+                    }
+                }
+            }
+        }
+    }
+
+    private static void addField(Map<String, Integer> weights, String text, int weight) {
+        for (String word : tokenize(text)) {
+            weights.merge(word, weight, Integer::sum);
+        }
+    }
+
+    private static List<String> tokenize(String text) {
+        List<String> words = new ArrayList<>();
+        if (text == null) {
+            return words;
+        }
+        for (String word : text.toLowerCase(Locale.ROOT).split("[^\\p{L}\\p{N}]+")) {
+            if (!word.isEmpty()) {
+                words.add(word);
+            }
+        }
+        return words;
+    }
+
+    private static List<String> trigramsOf(String word) {
+        List<String> grams = new ArrayList<>(Math.max(0, word.length() - 2));
+        for (int i = 0; i + 3 <= word.length(); i++) {
+            grams.add(word.substring(i, i + 3));
+        }
+        return grams;
+    }
+
+    private static final class IndexedProduct {
+        final Product product;
+        final Set<String> words;
+        final int slot;
+        final double rating;
+        final String sortName;
+
+        IndexedProduct(Product product, Set<String> words, int slot) {
+            this.product = product;
+            this.words = Set.copyOf(words);
+            this.slot = slot;
+            this.rating = product.getRating() != null ? product.getRating() : 0;
+            this.sortName = product.getName() != null ? product.getName() : "";
+        }
+    }
+
+    private static final class Ranked {
+        final IndexedProduct indexed;
+        final int score;
+
+        Ranked(IndexedProduct indexed, int score) {
+            this.indexed = indexed;
+            this.score = score;
+        }
+    }
+}
@@ -0,0 +1,38 @@
+package com.ecommerce.service;
+
+/**
+ * A response body serialized once to JSON, and optionally gzip-compressed as well.
+ */
+public final class SerializedResponse {
+    private final String version;
+    private final byte[] json;
+    private final byte[] gzipped;
+
+    public SerializedResponse(String version, byte[] json, byte[] gzipped) {
+        this.version = version;
+        this.json = json;
+        this.gzipped = gzipped;
+    }
+
+    /**
+     * The version of the resource the body was serialized from.
+     */
+    public String getVersion() {
+        return version;
+    }
+
+    public byte[] getJson() {
+        return json;
+    }
+
+    /**
+     * @return the gzip-compressed JSON, or {@code null} if compression is disabled
+     */
+    public byte[] getGzipped() {
+        return gzipped;
+    }
+
+    int size() {
+        return version.length() + json.length + (gzipped != null ? gzipped.length : 0);
+    }
+}
@@ -0,0 +1,114 @@
+package com.ecommerce.service;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import jakarta.annotation.PostConstruct;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+import org.springframework.util.unit.DataSize;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.function.Supplier;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Ready-to-write JSON bytes for hot product payloads, one entry per resource holding the version
+ * it was serialized from, so a cache hit costs no serialization or compression. The cache is bounded by the bytes it holds; which
+ * entries stay is decided by access frequency, so it ends up holding the most requested products
+ * and catalog lists.
+ */
+@Service
+public class SerializedResponseCache {
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Value("${cache.responses.max-size:32MB}")
+    private DataSize maxSize;
+
+    @Value("${cache.responses.gzip:true}")
+    private boolean gzip;
+
+    private Cache<String, SerializedResponse> responses;
+
+    @PostConstruct
+    void init() {
+        responses = Caffeine.newBuilder()
+                .maximumWeight(maxSize.toBytes())
+                .<String, SerializedResponse>weigher((key, response) -> key.length() + response.size())
+                .recordStats()
+                .build();
+        CaffeineCacheMetrics.monitor(meterRegistry, responses, "responses");
+        Gauge.builder("cache.responses.bytes", responses,
+                        cache -> cache.policy().eviction().map(eviction -> eviction.weightedSize().orElse(0)).orElse(0L))
+                .baseUnit("bytes")
+                .register(meterRegistry);
+    }
+
+    /**
+     * @param body supplies the value to serialize when this version is not cached yet
+     */
+    public SerializedResponse get(String resource, String version, Supplier<?> body) {
+        SerializedResponse cached = responses.getIfPresent(resource);
+        if (cached != null && cached.getVersion().equals(version)) {
+            return cached;
+        }
+        // Another version is replaced, so each resource holds at most one entry
+        SerializedResponse response = serialize(version, body.get());
+        responses.put(resource, response);
+        return response;
+    }
+
+    public void invalidate(String resource) {
+        responses.invalidate(resource);
+    }
+
+    public boolean isGzipEnabled() {
+        return gzip;
+    }
+
+    public static String productResource(String productId) {
+        return "product:" + productId;
+    }
+
+    @EventListener
+    public void onProductChanged(ProductChangedEvent event) {
+        invalidate(productResource(event.getProductId()));
+    }
+
+    @EventListener
+    public void onCatalogChanged(CatalogChangedEvent event) {
+        responses.invalidateAll();
+    }
+
+    private SerializedResponse serialize(String version, Object body) {
+        try {
+            byte[] json = objectMapper.writeValueAsBytes(body);
+            return new SerializedResponse(version, json, gzip ? gzip(json) : null);
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Could not serialize response", e);
+        }
+    }
+
+    private static byte[] gzip(byte[] bytes) {
+        ByteArrayOutputStream out = new ByteArrayOutputStream(bytes.length / 4 + 64);
+        try (GZIPOutputStream gzipOut = new GZIPOutputStream(out)) {
+            gzipOut.write(bytes);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return out.toByteArray();
+    }
+}
@@ -0,0 +1,110 @@
+package com.ecommerce.service;
+
+import com.couchbase.client.java.json.JsonArray;
+import com.couchbase.client.java.json.JsonObject;
+import com.fasterxml.jackson.annotation.JsonIgnore;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Units of one product held for a user until {@link #getExpiresAt()}, taken from one or more
+ * stock stripes.
+ */
+public class StockReservation {
+
+    static final String TYPE = "stock-reservation";
+
+    private final String id;
+    private final String productId;
+    private final String userId;
+    private final long quantity;
+    private final Instant createdAt;
+    private final Instant expiresAt;
+    private final List<Allocation> allocations;
+
+    StockReservation(String id, String productId, String userId, long quantity, Instant createdAt,
+                     Instant expiresAt, List<Allocation> allocations) {
+        this.id = id;
+        this.productId = productId;
+        this.userId = userId;
+        this.quantity = quantity;
+        this.createdAt = createdAt;
+        this.expiresAt = expiresAt;
+        this.allocations = List.copyOf(allocations);
+    }
+
+    static StockReservation fromJson(String id, JsonObject json) {
+        List<Allocation> allocations = new ArrayList<>();
+        for (Object allocation : json.getArray("allocations")) {
+            JsonObject stripe = (JsonObject) allocation;
+            // Reservations made before stripes had generations hold units of the seeded one
+            Long generation = stripe.getLong("generation");
+            allocations.add(new Allocation(generation != null ? generation : 0, stripe.getInt("stripe"),
+                    stripe.getLong("quantity")));
+        }
+        return new StockReservation(id, json.getString("productId"), json.getString("userId"),
+                json.getLong("quantity"), Instant.ofEpochMilli(json.getLong("createdAt")),
+                Instant.ofEpochMilli(json.getLong("expiresAt")), allocations);
+    }
+
+    JsonObject toJson() {
+        JsonArray stripes = JsonArray.create();
+        for (Allocation allocation : allocations) {
+            stripes.add(JsonObject.create()
+                    .put("generation", allocation.generation)
+                    .put("stripe", allocation.stripe)
+                    .put("quantity", allocation.quantity));
+        }
+        return JsonObject.create()
+                .put("type", TYPE)
+                .put("productId", productId)
+                .put("userId", userId)
+                .put("quantity", quantity)
+                .put("createdAt", createdAt.toEpochMilli())
+                .put("expiresAt", expiresAt.toEpochMilli())
+                .put("allocations", stripes);
+    }
+
+    public String getId() {
+        return id;
+    }
+
+    public String getProductId() {
+        return productId;
+    }
+
+    @JsonIgnore
+    public String getUserId() {
+        return userId;
+    }
+
+    public long getQuantity() {
+        return quantity;
+    }
+
+    public Instant getCreatedAt() {
+        return createdAt;
+    }
+
+    public Instant getExpiresAt() {
+        return expiresAt;
+    }
+
+    List<Allocation> getAllocations() {
+        return allocations;
+    }
+
+    static final class Allocation {
+        final long generation;
+        final int stripe;
+        final long quantity;
+
+        Allocation(long generation, int stripe, long quantity) {
+            this.generation = generation;
+            this.stripe = stripe;
+            this.quantity = quantity;
+        }
+    }
+}
@@ -0,0 +1,163 @@
+package com.ecommerce.config;
+
+import com.couchbase.client.java.Cluster;
+import com.couchbase.client.java.json.JsonObject;
+import com.couchbase.client.java.query.QueryOptions;
+import com.couchbase.client.java.query.QueryResult;
+import com.ecommerce.repository.TemplateQueries;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.context.ApplicationContext;
+import org.springframework.data.couchbase.CouchbaseClientFactory;
+import org.springframework.data.couchbase.core.CouchbaseTemplate;
+import org.springframework.data.couchbase.core.convert.MappingCouchbaseConverter;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.function.Predicate;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyBoolean;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * Runs plan verification against a stubbed cluster that records each {@code EXPLAIN} and answers
+ * with an index scan, or a primary scan for the statements under test.
+ */
+class QueryIndexProvisionerTest {
+
+    private static final String BUCKET = "shop";
+
+    // A field or function of a field on the left of a comparison; META().id is not indexed
+    private static final Pattern PREDICATE = Pattern.compile(
+            "((?:TONUMBER|LOWER)\\(\\w+\\)|(?<![.\\w])`?\\w+`?)\\s*(?:[=<>]|like |is )");
+
+    private final MappingCouchbaseConverter converter = new MappingCouchbaseConverter();
+    private final Cluster cluster = mock(Cluster.class);
+    private final List<String> explained = new ArrayList<>();
+    private final List<QueryOptions> explainOptions = new ArrayList<>();
+
+    private QueryIndexProvisioner provisioner;
+
+    @BeforeEach
+    void setUp() {
+        converter.afterPropertiesSet();
+
+        CouchbaseClientFactory clientFactory = mock(CouchbaseClientFactory.class);
+        when(clientFactory.getCluster()).thenReturn(cluster);
+        CouchbaseTemplate template = mock(CouchbaseTemplate.class);
+        when(template.getConverter()).thenReturn(converter);
+        when(template.getBucketName()).thenReturn(BUCKET);
+        when(template.getCouchbaseClientFactory()).thenReturn(clientFactory);
+
+        ApplicationContext applicationContext = mock(ApplicationContext.class);
+        when(applicationContext.getBeanNamesForType(any(Class.class), anyBoolean(), anyBoolean()))
+                .thenReturn(new String[0]);
+
+        provisioner = new QueryIndexProvisioner();
+        ReflectionTestUtils.setField(provisioner, "couchbaseTemplate", template);
+        ReflectionTestUtils.setField(provisioner, "applicationContext", applicationContext);
+        ReflectionTestUtils.setField(provisioner, "createMissing", false);
+        ReflectionTestUtils.setField(provisioner, "onPrimaryScan", "warn");
+    }
+
+    @Test
+    void explainsTheStatementsTheTemplateRenders() {
+        planPrimaryScanFor(statement -> false);
+
+        provisioner.run(null);
+
+        List<String> rendered = TemplateQueries.render(converter, BUCKET).stream()
+                .map(query -> "EXPLAIN " + query.getStatement())
+                .toList();
+        assertThat(rendered).isNotEmpty();
+        assertThat(explained).containsAll(rendered);
+        assertThat(explained).hasSize(rendered.size() + 1);
+        assertThat(explained).allMatch(statement -> statement.contains("FROM `" + BUCKET + "`"));
+        assertThat(explained).anyMatch(statement -> statement.contains("is not valued"));
+        assertThat(explainOptions).doesNotContainNull();
+    }
+
+    @Test
+    void failsOnPrimaryScanWhenConfiguredTo() {
+        planPrimaryScanFor(statement -> statement.contains("LOWER(name)"));
+        ReflectionTestUtils.setField(provisioner, "onPrimaryScan", "fail");
+
+        assertThatThrownBy(() -> provisioner.run(null))
+                .isInstanceOf(IllegalStateException.class)
+                .hasMessageContaining("product name page (full)")
+                .hasMessageNotContaining("product active page");
+    }
+
+    @Test
+    void onlyWarnsOnPrimaryScanByDefault() {
+        planPrimaryScanFor(statement -> statement.contains("LOWER(name)"));
+
+        provisioner.run(null);
+
+        assertThat(explained).isNotEmpty();
+    }
+
+    @Test
+    void everyTemplateStatementHasAnIndexCoveringItsPredicates() {
+        for (TemplateQueries.TemplateQuery query : TemplateQueries.render(converter, BUCKET)) {
+            Set<String> predicates = predicateTerms(query.getStatement());
+
+            assertThat(QueryIndexProvisioner.INDEXES)
+                    .as("index for '%s' on %s", query.getName(), predicates)
+                    .anyMatch(index -> covers(index, predicates));
+        }
+    }
+
+    /**
+     * An index can serve a statement when it leads with one of the statement's predicate terms
+     * and its keys include all of them; the type key is implied for indexes without it.
+     */
+    private static boolean covers(QueryIndexProvisioner.IndexDefinition index, Set<String> predicates) {
+        List<String> keys = Arrays.stream(index.keys.split(","))
+                .map(key -> key.trim().replaceFirst("(?i)\\s+(ASC|DESC)$", ""))
+                .toList();
+        Set<String> required = new HashSet<>(predicates);
+        if (!keys.contains("_class")) {
+            required.remove("_class");
+        }
+        return required.contains(keys.get(0)) && keys.containsAll(required);
+    }
+
+    /**
+     * The fields, or indexed expressions of a field, compared in the statement's WHERE clause.
+     */
+    private static Set<String> predicateTerms(String statement) {
+        String where = statement.substring(statement.indexOf(" WHERE ") + " WHERE ".length())
+                .split(" ORDER BY | LIMIT ")[0];
+        Set<String> terms = new HashSet<>();
+        Matcher matcher = PREDICATE.matcher(where);
+        while (matcher.find()) {
+            terms.add(matcher.group(1).replace("`", ""));
+        }
+        return terms;
+    }
+
+    private void planPrimaryScanFor(Predicate<String> primaryScan) {
+        when(cluster.query(anyString(), any(QueryOptions.class))).thenAnswer(invocation -> {
+            String statement = invocation.getArgument(0);
+            explained.add(statement);
+            explainOptions.add(invocation.getArgument(1));
+            JsonObject plan = JsonObject.create().put("plan", JsonObject.create()
+                    .put("#operator", primaryScan.test(statement) ? "PrimaryScan3" : "IndexScan3"));
+            QueryResult result = mock(QueryResult.class);
+            when(result.rowsAsObject()).thenReturn(List.of(plan));
+            return result;
+        });
+    }
+}
@@ -0,0 +1,111 @@
+package com.ecommerce.controller;
+
+import com.ecommerce.model.Product;
+import com.ecommerce.repository.ProductRepository;
+import com.ecommerce.service.InMemoryCollection;
+import com.ecommerce.service.InventoryService;
+import com.ecommerce.service.ProductCache;
+import com.ecommerce.service.ProductChangePublisher;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.couchbase.CouchbaseClientFactory;
+import org.springframework.data.couchbase.core.CouchbaseTemplate;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.util.Optional;
+import java.util.Set;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * Product writes against a stubbed repository, with the stock counters kept by an inventory
+ * service over an in-memory collection.
+ */
+class ProductControllerTest {
+
+    private static final String PRODUCT_ID = "product-1";
+    private static final int STOCK = 100;
+
+    private final InMemoryCollection store = new InMemoryCollection();
+    private final ProductRepository productRepository = mock(ProductRepository.class);
+
+    private InventoryService inventoryService;
+    private ProductController controller;
+
+    @BeforeEach
+    void setUp() {
+        Product stored = product(STOCK, BigDecimal.TEN);
+        when(productRepository.findById(PRODUCT_ID)).thenReturn(Optional.of(stored));
+        when(productRepository.save(any(Product.class))).thenAnswer(invocation -> invocation.getArgument(0));
+        when(productRepository.patch(eq(PRODUCT_ID), any(Product.class), eq(Set.of("stockQuantity")), eq(0L)))
+                .thenAnswer(invocation -> {
+                    stored.setStockQuantity(invocation.<Product>getArgument(1).getStockQuantity());
+                    return 1L;
+                });
+
+        CouchbaseClientFactory clientFactory = mock(CouchbaseClientFactory.class);
+        when(clientFactory.getDefaultCollection()).thenReturn(store.getCollection());
+        CouchbaseTemplate template = mock(CouchbaseTemplate.class);
+        when(template.getCouchbaseClientFactory()).thenReturn(clientFactory);
+        ProductCache productCache = mock(ProductCache.class);
+        when(productCache.findById(PRODUCT_ID)).thenReturn(Optional.of(stored));
+
+        inventoryService = new InventoryService();
+        ReflectionTestUtils.setField(inventoryService, "couchbaseTemplate", template);
+        ReflectionTestUtils.setField(inventoryService, "productCache", productCache);
+        ReflectionTestUtils.setField(inventoryService, "productRepository", productRepository);
+        ReflectionTestUtils.setField(inventoryService, "productChangePublisher", mock(ProductChangePublisher.class));
+        ReflectionTestUtils.setField(inventoryService, "defaultStripes", 4);
+        ReflectionTestUtils.setField(inventoryService, "stripeCacheTtl", Duration.ofSeconds(30));
+        ReflectionTestUtils.setField(inventoryService, "reservationTtl", Duration.ofMinutes(15));
+        ReflectionTestUtils.setField(inventoryService, "reservationRetention", Duration.ofDays(1));
+        ReflectionTestUtils.invokeMethod(inventoryService, "init");
+
+        controller = new ProductController();
+        ReflectionTestUtils.setField(controller, "productRepository", productRepository);
+        ReflectionTestUtils.setField(controller, "inventoryService", inventoryService);
+    }
+
+    @Test
+    void fullUpdateWithTheStockItReadDoesNotReturnReservedUnits() {
+        inventoryService.reserve(PRODUCT_ID, "user", 5);
+        inventoryService.syncStockQuantities();
+
+        // The admin read the product before the reservation and resends its stock with a new price
+        ResponseEntity<Product> response = controller.updateProduct(PRODUCT_ID, product(STOCK, BigDecimal.ONE), null);
+
+        assertThat(response.getStatusCode()).isEqualTo(HttpStatus.OK);
+        assertThat(response.getBody().getPrice()).isEqualByComparingTo(BigDecimal.ONE);
+        assertThat(available()).isEqualTo(STOCK - 5);
+    }
+
+    @Test
+    void fullUpdateKeepsTheStoredStockQuantity() {
+        ResponseEntity<Product> response = controller.updateProduct(PRODUCT_ID, product(7, BigDecimal.ONE), null);
+
+        assertThat(response.getBody().getStockQuantity()).isEqualTo(STOCK);
+        assertThat(available()).isEqualTo(STOCK);
+    }
+
+    private long available() {
+        return inventoryService.getLevel(PRODUCT_ID).orElseThrow().getAvailable();
+    }
+
+    private static Product product(int stock, BigDecimal price) {
+        Product product = new Product();
+        product.setId(PRODUCT_ID);
+        product.setName("Desk lamp");
+        product.setPrice(price);
+        product.setActive(true);
+        product.setStockQuantity(stock);
+        return product;
+    }
+}
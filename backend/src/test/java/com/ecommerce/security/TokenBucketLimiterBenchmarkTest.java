@@ -0,0 +1,110 @@
+package com.ecommerce.security;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Measures what the rate limit filter adds to a throttled request: building the client key as
+ * {@link RateLimitFilter} does for an authenticated user, then {@link TokenBucketLimiter#tryAcquire},
+ * from {@link #THREADS} threads at once. Runs with the search route's limits and the default
+ * stripes, once with keys spread over many users and once with every thread on one user's bucket,
+ * where the CAS is most contended.
+ * <p>
+ * Cost is the threads' CPU time per call, so it holds on machines with fewer cores than threads.
+ * The spread run is the slower one: with {@link #USERS} live buckets most lookups miss the CPU
+ * caches, which a single contended bucket never does.
+ * Not part of the regular build:
+ * {@code mvn test -Dtest=TokenBucketLimiterBenchmarkTest -Dload-tests=true}.
+ */
+@EnabledIfSystemProperty(named = "load-tests", matches = "true")
+class TokenBucketLimiterBenchmarkTest {
+
+    private static final int THREADS = Math.max(8, Runtime.getRuntime().availableProcessors() * 2);
+    private static final int CALLS_PER_THREAD = 2_000_000;
+    private static final int USERS = 1 << 16;
+    private static final long MAX_NANOS_PER_CALL = 1_000;
+
+    private final String[] userIds = userIds(USERS);
+
+    @Test
+    void acquiringStaysWellUnderAMicrosecondUnderContention() throws Exception {
+        run("spread", USERS - 1);
+        run("hot key", 0);
+
+        Result spread = run("spread", USERS - 1);
+        Result hotKey = run("hot key", 0);
+
+        System.out.println(spread);
+        System.out.println(hotKey);
+        assertThat(spread.nanosPerCall()).isLessThan(MAX_NANOS_PER_CALL);
+        assertThat(hotKey.nanosPerCall()).isLessThan(MAX_NANOS_PER_CALL);
+    }
+
+    /**
+     * @param userMask selects the users a thread cycles through: all of them, or only the first
+     */
+    private Result run(String name, int userMask) throws Exception {
+        TokenBucketLimiter limiter = new TokenBucketLimiter(30, 5, 64, 4096);
+        ThreadMXBean threadBean = ManagementFactory.getThreadMXBean();
+        ExecutorService threads = Executors.newFixedThreadPool(THREADS);
+        CountDownLatch start = new CountDownLatch(1);
+        try {
+            List<Future<long[]>> results = new ArrayList<>(THREADS);
+            for (int t = 0; t < THREADS; t++) {
+                int offset = t * (USERS / THREADS);
+                results.add(threads.submit(() -> {
+                    start.await();
+                    long cpuBefore = threadBean.getCurrentThreadCpuTime();
+                    long admitted = 0;
+                    for (int i = 0; i < CALLS_PER_THREAD; i++) {
+                        String key = "u:" + userIds[(offset + i) & userMask];
+                        if (limiter.tryAcquire(key, System.nanoTime()) == 0) {
+                            admitted++;
+                        }
+                    }
+                    return new long[] {threadBean.getCurrentThreadCpuTime() - cpuBefore, admitted};
+                }));
+            }
+            start.countDown();
+
+            long cpuNanos = 0;
+            long admitted = 0;
+            for (Future<long[]> result : results) {
+                long[] thread = result.get();
+                cpuNanos += thread[0];
+                admitted += thread[1];
+            }
+            long calls = (long) THREADS * CALLS_PER_THREAD;
+            return new Result(name, (double) cpuNanos / calls, (double) admitted / calls);
+        } finally {
+            threads.shutdownNow();
+        }
+    }
+
+    private static String[] userIds(int count) {
+        String[] ids = new String[count];
+        for (int i = 0; i < count; i++) {
+            ids[i] = Long.toHexString(0x64a0_0000_0000_0000L + i * 0x9e37_79b9L);
+        }
+        return ids;
+    }
+
+    private record Result(String name, double nanosPerCall, double admittedShare) {
+        @Override
+        public String toString() {
+            return String.format("%-8s %6.1f ns/call  %5.1f%% admitted  (%d threads)", name, nanosPerCall,
+                    admittedShare * 100, THREADS);
+        }
+    }
+}
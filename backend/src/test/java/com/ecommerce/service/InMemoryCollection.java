@@ -0,0 +1,179 @@
+package com.ecommerce.service;
+
+import com.couchbase.client.core.error.CasMismatchException;
+import com.couchbase.client.core.error.DocumentExistsException;
+import com.couchbase.client.core.error.DocumentNotFoundException;
+import com.couchbase.client.core.msg.kv.SubdocCommandType;
+import com.couchbase.client.java.BinaryCollection;
+import com.couchbase.client.java.Collection;
+import com.couchbase.client.java.codec.DefaultJsonSerializer;
+import com.couchbase.client.java.codec.JsonSerializer;
+import com.couchbase.client.java.json.JsonObject;
+import com.couchbase.client.java.kv.CounterResult;
+import com.couchbase.client.java.kv.GetResult;
+import com.couchbase.client.java.kv.IncrementOptions;
+import com.couchbase.client.java.kv.InsertOptions;
+import com.couchbase.client.java.kv.MutateInResult;
+import com.couchbase.client.java.kv.MutateInSpec;
+import com.couchbase.client.java.kv.MutationResult;
+import com.couchbase.client.java.kv.RemoveOptions;
+import com.couchbase.client.java.kv.ReplaceOptions;
+
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * The key-value and sub-document counter operations the inventory service uses, with CAS
+ * checks, over a concurrent map. Results are shared mocks answering from the calling
+ * thread's last operation, since creating a mock per operation would dominate the run.
+ */
+public final class InMemoryCollection {
+    private final JsonSerializer serializer = DefaultJsonSerializer.create();
+    private final Map<String, Stored> documents = new ConcurrentHashMap<>();
+    private final AtomicLong casSequence = new AtomicLong();
+    private final ThreadLocal<Stored> lastRead = new ThreadLocal<>();
+    private final ThreadLocal<Long> lastValue = new ThreadLocal<>();
+    private final GetResult getResult = mock(GetResult.class);
+    private final MutateInResult mutateInResult = mock(MutateInResult.class);
+    private final CounterResult counterResult = mock(CounterResult.class);
+    private final MutationResult mutationResult = mock(MutationResult.class);
+    private final Collection collection = mock(Collection.class);
+
+    public InMemoryCollection() {
+        when(getResult.contentAsObject()).thenAnswer(invocation -> copy(lastRead.get().content));
+        when(getResult.cas()).thenAnswer(invocation -> lastRead.get().cas);
+        when(mutateInResult.contentAs(0, Long.class)).thenAnswer(invocation -> lastValue.get());
+        when(counterResult.content()).thenAnswer(invocation -> lastValue.get());
+
+        when(collection.get(anyString())).thenAnswer(invocation -> get(invocation.getArgument(0)));
+        when(collection.insert(anyString(), any())).thenAnswer(invocation ->
+                insert(invocation.getArgument(0), invocation.getArgument(1)));
+        when(collection.insert(anyString(), any(), any(InsertOptions.class))).thenAnswer(invocation ->
+                insert(invocation.getArgument(0), invocation.getArgument(1)));
+        when(collection.replace(anyString(), any(), any(ReplaceOptions.class))).thenAnswer(invocation -> {
+            ReplaceOptions options = invocation.getArgument(2);
+            return replace(invocation.getArgument(0), invocation.getArgument(1), options.build().cas());
+        });
+        when(collection.remove(anyString())).thenAnswer(invocation -> remove(invocation.getArgument(0), 0));
+        when(collection.remove(anyString(), any(RemoveOptions.class))).thenAnswer(invocation -> {
+            RemoveOptions options = invocation.getArgument(1);
+            return remove(invocation.getArgument(0), options.build().cas());
+        });
+        when(collection.mutateIn(anyString(), anyList())).thenAnswer(invocation ->
+                count(invocation.getArgument(0), invocation.getArgument(1)));
+
+        BinaryCollection binary = mock(BinaryCollection.class);
+        when(collection.binary()).thenReturn(binary);
+        when(binary.increment(anyString(), any(IncrementOptions.class))).thenAnswer(invocation ->
+                increment(invocation.getArgument(0)));
+    }
+
+    public Collection getCollection() {
+        return collection;
+    }
+
+    public List<String> keysStartingWith(String prefix) {
+        return documents.keySet().stream().filter(key -> key.startsWith(prefix)).toList();
+    }
+
+    private GetResult get(String key) {
+        Stored stored = documents.get(key);
+        if (stored == null) {
+            throw new DocumentNotFoundException(null);
+        }
+        lastRead.set(stored);
+        return getResult;
+    }
+
+    private MutationResult insert(String key, Object content) {
+        Stored stored = new Stored(copy(content), casSequence.incrementAndGet());
+        if (documents.putIfAbsent(key, stored) != null) {
+            throw new DocumentExistsException(null);
+        }
+        return mutationResult;
+    }
+
+    private MutationResult replace(String key, Object content, long cas) {
+        documents.compute(key, (k, stored) -> {
+            if (stored == null) {
+                throw new DocumentNotFoundException(null);
+            }
+            if (cas != 0 && stored.cas != cas) {
+                throw new CasMismatchException(null);
+            }
+            return new Stored(copy(content), casSequence.incrementAndGet());
+        });
+        return mutationResult;
+    }
+
+    private MutationResult remove(String key, long cas) {
+        documents.compute(key, (k, stored) -> {
+            if (stored == null) {
+                throw new DocumentNotFoundException(null);
+            }
+            if (cas != 0 && stored.cas != cas) {
+                throw new CasMismatchException(null);
+            }
+            return null;
+        });
+        return mutationResult;
+    }
+
+    /**
+     * Applies sub-document increments and decrements atomically, returning the last value.
+     */
+    private MutateInResult count(String key, List<MutateInSpec> specs) {
+        long[] value = new long[1];
+        documents.compute(key, (k, stored) -> {
+            if (stored == null) {
+                throw new DocumentNotFoundException(null);
+            }
+            JsonObject content = JsonObject.fromJson(stored.content.toString());
+            for (MutateInSpec spec : specs) {
+                var command = spec.toCore(serializer);
+                assertThat(command.type()).isEqualTo(SubdocCommandType.COUNTER);
+                long delta = Long.parseLong(new String(command.fragment(), StandardCharsets.UTF_8));
+                value[0] = content.getLong(command.path()) + delta;
+                content.put(command.path(), value[0]);
+            }
+            return new Stored(content, casSequence.incrementAndGet());
+        });
+
+        lastValue.set(value[0]);
+        return mutateInResult;
+    }
+
+    private CounterResult increment(String key) {
+        long[] value = new long[1];
+        documents.compute(key, (k, stored) -> {
+            value[0] = stored == null ? 1 : stored.content.getLong("value") + 1;
+            return new Stored(JsonObject.create().put("value", value[0]), casSequence.incrementAndGet());
+        });
+        lastValue.set(value[0]);
+        return counterResult;
+    }
+
+    private static JsonObject copy(Object content) {
+        return JsonObject.fromJson(content.toString());
+    }
+
+    private static final class Stored {
+        final JsonObject content;
+        final long cas;
+
+        Stored(JsonObject content, long cas) {
+            this.content = content;
+            this.cas = cas;
+        }
+    }
+}
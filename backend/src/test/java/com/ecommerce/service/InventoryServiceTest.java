@@ -0,0 +1,238 @@
+package com.ecommerce.service;
+
+import com.ecommerce.dto.InventoryLevel;
+import com.ecommerce.model.Product;
+import com.ecommerce.repository.ProductRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.data.couchbase.CouchbaseClientFactory;
+import org.springframework.data.couchbase.core.CouchbaseTemplate;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * Runs the inventory service against an in-memory stand-in for the Couchbase collection whose
+ * sub-document counters are atomic per document, as they are on the server.
+ */
+class InventoryServiceTest {
+
+    private static final String PRODUCT_ID = "product-1";
+    private static final int STOCK = 1_000;
+    private static final int STRIPES = 4;
+    private static final int THREADS = 16;
+
+    private final InMemoryCollection store = new InMemoryCollection();
+    private final ProductRepository productRepository = mock(ProductRepository.class);
+    private final ProductChangePublisher productChangePublisher = mock(ProductChangePublisher.class);
+
+    private InventoryService inventoryService;
+
+    @BeforeEach
+    void setUp() {
+        CouchbaseClientFactory clientFactory = mock(CouchbaseClientFactory.class);
+        when(clientFactory.getDefaultCollection()).thenReturn(store.getCollection());
+        CouchbaseTemplate template = mock(CouchbaseTemplate.class);
+        when(template.getCouchbaseClientFactory()).thenReturn(clientFactory);
+
+        Product product = new Product();
+        product.setId(PRODUCT_ID);
+        product.setActive(true);
+        product.setStockQuantity(STOCK);
+        ProductCache productCache = mock(ProductCache.class);
+        when(productCache.findById(PRODUCT_ID)).thenReturn(Optional.of(product));
+
+        inventoryService = new InventoryService();
+        ReflectionTestUtils.setField(inventoryService, "couchbaseTemplate", template);
+        ReflectionTestUtils.setField(inventoryService, "productCache", productCache);
+        ReflectionTestUtils.setField(inventoryService, "productRepository", productRepository);
+        ReflectionTestUtils.setField(inventoryService, "productChangePublisher", productChangePublisher);
+        ReflectionTestUtils.setField(inventoryService, "defaultStripes", STRIPES);
+        ReflectionTestUtils.setField(inventoryService, "stripeCacheTtl", Duration.ofSeconds(30));
+        ReflectionTestUtils.setField(inventoryService, "reservationTtl", Duration.ofMinutes(15));
+        ReflectionTestUtils.setField(inventoryService, "reservationRetention", Duration.ofDays(1));
+        inventoryService.init();
+    }
+
+    @Test
+    void concurrentReservationsNeverHoldMoreThanTheStock() throws Exception {
+        List<StockReservation> held = runConcurrently(() -> {
+            List<StockReservation> reservations = new ArrayList<>();
+            int refused = 0;
+            while (refused < 20) {
+                try {
+                    reservations.add(inventoryService.reserve(PRODUCT_ID, "user", randomQuantity()).orElseThrow());
+                } catch (InsufficientStockException e) {
+                    refused++;
+                }
+            }
+            return reservations;
+        });
+
+        long reserved = held.stream().mapToLong(StockReservation::getQuantity).sum();
+        assertThat(reserved).isLessThanOrEqualTo(STOCK);
+        assertThat(reserved + available()).isEqualTo(STOCK);
+    }
+
+    @Test
+    void concurrentReservationsAndReleasesKeepEveryUnit() throws Exception {
+        List<StockReservation> held = runConcurrently(() -> {
+            List<StockReservation> reservations = new ArrayList<>();
+            for (int i = 0; i < 200; i++) {
+                try {
+                    reservations.add(inventoryService.reserve(PRODUCT_ID, "user", randomQuantity()).orElseThrow());
+                } catch (InsufficientStockException e) {
+                    // contended; released units are reserved again later
+                }
+                if (!reservations.isEmpty() && ThreadLocalRandom.current().nextBoolean()) {
+                    StockReservation released = reservations.remove(reservations.size() - 1);
+                    assertThat(inventoryService.release(released.getId(), "user", false)).isTrue();
+                }
+            }
+            return reservations;
+        });
+
+        long reserved = held.stream().mapToLong(StockReservation::getQuantity).sum();
+        assertThat(reserved + available()).isEqualTo(STOCK);
+    }
+
+    @Test
+    void releaseAfterResetDoesNotAddToTheNewStock() {
+        StockReservation reservation = inventoryService.reserve(PRODUCT_ID, "user", 5).orElseThrow();
+        inventoryService.reset(PRODUCT_ID, 10, null);
+
+        assertThat(inventoryService.release(reservation.getId(), "user", false)).isTrue();
+        assertThat(available()).isEqualTo(10);
+    }
+
+    @Test
+    void releasesRacingResetsDoNotInflateStock() throws Exception {
+        AtomicBoolean resetting = new AtomicBoolean(true);
+        ExecutorService resetter = Executors.newSingleThreadExecutor();
+        Future<?> resets = resetter.submit(() -> {
+            while (resetting.get()) {
+                inventoryService.reset(PRODUCT_ID, STOCK, ThreadLocalRandom.current().nextInt(1, 8));
+            }
+        });
+
+        try {
+            runConcurrently(() -> {
+                for (int i = 0; i < 300; i++) {
+                    try {
+                        StockReservation reservation = inventoryService.reserve(PRODUCT_ID, "user", randomQuantity())
+                                .orElseThrow();
+                        inventoryService.release(reservation.getId(), "user", false);
+                    } catch (InsufficientStockException | OptimisticLockingFailureException e) {
+                        // a reset replaced the stripes under the reservation
+                    }
+                }
+                return List.of();
+            });
+        } finally {
+            resetting.set(false);
+            resets.get(10, TimeUnit.SECONDS);
+            resetter.shutdown();
+        }
+
+        // Every reservation was released, so the last reset's stock is all there is
+        assertThat(available()).isEqualTo(STOCK);
+        assertThat(store.keysStartingWith("inventory::" + PRODUCT_ID + "::"))
+                .hasSize(inventoryService.getLevel(PRODUCT_ID).orElseThrow().getStripes() + 1);
+    }
+
+    @Test
+    void writtenStockQuantityReplacesSeededCounters() {
+        inventoryService.reserve(PRODUCT_ID, "user", 5);
+
+        inventoryService.stockQuantityWritten(PRODUCT_ID, 40);
+
+        assertThat(available()).isEqualTo(40);
+    }
+
+    @Test
+    void writtenStockQuantityLeavesUnseededProductsToSeedOnFirstUse() {
+        inventoryService.stockQuantityWritten(PRODUCT_ID, 40);
+
+        assertThat(store.keysStartingWith("inventory::")).isEmpty();
+    }
+
+    @Test
+    void syncWritesTheAvailableStockToChangedProductsOnce() {
+        when(productRepository.patch(eq(PRODUCT_ID), any(), eq(Set.of("stockQuantity")), eq(0L))).thenReturn(1L);
+        inventoryService.reserve(PRODUCT_ID, "user", 3);
+        inventoryService.reserve(PRODUCT_ID, "user", 4);
+
+        inventoryService.syncStockQuantities();
+        inventoryService.syncStockQuantities();
+
+        ArgumentCaptor<Product> written = ArgumentCaptor.forClass(Product.class);
+        verify(productRepository).patch(eq(PRODUCT_ID), written.capture(), eq(Set.of("stockQuantity")), eq(0L));
+        assertThat(written.getValue().getStockQuantity()).isEqualTo(STOCK - 7);
+        verify(productChangePublisher).productChanged(PRODUCT_ID);
+    }
+
+    @Test
+    void syncSkipsProductsWhoseCountersDidNotChange() {
+        inventoryService.getLevel(PRODUCT_ID);
+        assertThatThrownBy(() -> inventoryService.reserve(PRODUCT_ID, "user", STOCK + 1))
+                .isInstanceOf(InsufficientStockException.class);
+
+        inventoryService.syncStockQuantities();
+
+        verify(productRepository, never()).patch(any(), any(), any(), anyLong());
+    }
+
+    private long available() {
+        return inventoryService.getLevel(PRODUCT_ID).map(InventoryLevel::getAvailable).orElseThrow();
+    }
+
+    private static long randomQuantity() {
+        return ThreadLocalRandom.current().nextLong(1, 6);
+    }
+
+    private static <T> List<T> runConcurrently(java.util.concurrent.Callable<List<T>> task) throws Exception {
+        ExecutorService threads = Executors.newFixedThreadPool(THREADS);
+        CountDownLatch start = new CountDownLatch(1);
+        try {
+            List<Future<List<T>>> results = new ArrayList<>();
+            for (int i = 0; i < THREADS; i++) {
+                results.add(threads.submit(() -> {
+                    start.await();
+                    return task.call();
+                }));
+            }
+            start.countDown();
+
+            List<T> all = new ArrayList<>();
+            for (Future<List<T>> result : results) {
+                all.addAll(result.get(30, TimeUnit.SECONDS));
+            }
+            return all;
+        } finally {
+            threads.shutdownNow();
+        }
+    }
+}
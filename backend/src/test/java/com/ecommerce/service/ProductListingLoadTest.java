@@ -0,0 +1,146 @@
+package com.ecommerce.service;
+
+import com.ecommerce.model.Product;
+import com.ecommerce.repository.ProductFields;
+import com.ecommerce.repository.ProductFilter;
+import com.ecommerce.repository.ProductRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.test.util.ReflectionTestUtils;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * Compares the blocking and the reactive listing path under a slow query service: every page
+ * query takes {@link #QUERY_LATENCY}, and {@link #CLIENTS} clients keep one listing request each
+ * in flight against a pool of {@link #REQUEST_THREADS}, the size of Tomcat's default pool. The
+ * blocking path holds a request thread for the whole query; the reactive path only to start it.
+ * <p>
+ * Not part of the regular build; run with a fixed heap, e.g.
+ * {@code mvn test -Dtest=ProductListingLoadTest -Dload-tests=true -DargLine=-Xmx512m}.
+ */
+@EnabledIfSystemProperty(named = "load-tests", matches = "true")
+class ProductListingLoadTest {
+
+    private static final Duration QUERY_LATENCY = Duration.ofMillis(20);
+    private static final Duration RUN_TIME = Duration.ofSeconds(5);
+    private static final int REQUEST_THREADS = 200;
+    private static final int CLIENTS = 1000;
+
+    private final Pageable pageable = PageRequest.of(0, 12);
+    private final List<Product> page = products(12);
+
+    @Test
+    void reactiveListingsOutlastTheRequestThreadPool() throws InterruptedException {
+        ProductListingService service = service();
+
+        Result blocking = run("blocking", done -> {
+            service.findPage(ProductFilter.active(), pageable, false, ProductFields.FULL);
+            done.run();
+        });
+        Result reactive = run("reactive", done -> service.findPageAsync(ProductFilter.active(), pageable, false,
+                ProductFields.FULL).subscribe(result -> done.run()));
+
+        System.out.println(blocking);
+        System.out.println(reactive);
+        assertThat(reactive.throughput()).isGreaterThan(blocking.throughput());
+        assertThat(reactive.p99Millis()).isLessThan(blocking.p99Millis());
+    }
+
+    /**
+     * Runs closed-loop clients for {@link #RUN_TIME}; each request is started on a request thread
+     * and reports its completion through the runnable it is given.
+     */
+    private Result run(String name, Consumer<Runnable> request) throws InterruptedException {
+        ExecutorService requestThreads = Executors.newFixedThreadPool(REQUEST_THREADS);
+        ConcurrentLinkedQueue<Long> latencies = new ConcurrentLinkedQueue<>();
+        long deadline = System.nanoTime() + RUN_TIME.toNanos();
+        CountDownLatch clientsDone = new CountDownLatch(CLIENTS);
+
+        Runnable[] client = new Runnable[1];
+        client[0] = () -> {
+            long started = System.nanoTime();
+            requestThreads.execute(() -> request.accept(() -> {
+                long now = System.nanoTime();
+                latencies.add(now - started);
+                if (now < deadline) {
+                    client[0].run();
+                } else {
+                    clientsDone.countDown();
+                }
+            }));
+        };
+
+        long startedAt = System.nanoTime();
+        for (int i = 0; i < CLIENTS; i++) {
+            client[0].run();
+        }
+        assertThat(clientsDone.await(RUN_TIME.toSeconds() * 4, TimeUnit.SECONDS)).isTrue();
+        long elapsed = System.nanoTime() - startedAt;
+        requestThreads.shutdown();
+
+        List<Long> sorted = new ArrayList<>(latencies);
+        sorted.sort(null);
+        return new Result(name, sorted.size() * 1e9 / elapsed, percentile(sorted, 0.50), percentile(sorted, 0.99));
+    }
+
+    private ProductListingService service() {
+        ProductRepository repository = mock(ProductRepository.class);
+        when(repository.findPage(any(), any(), any())).thenAnswer(invocation -> {
+            Thread.sleep(QUERY_LATENCY.toMillis());
+            return page;
+        });
+        when(repository.count(any())).thenReturn(1000L);
+        when(repository.findPageAsync(any(), any(), any()))
+                .thenAnswer(invocation -> Mono.delay(QUERY_LATENCY).thenReturn(page));
+        when(repository.countAsync(any())).thenReturn(Mono.just(1000L));
+
+        ProductListingService service = new ProductListingService();
+        ReflectionTestUtils.setField(service, "productRepository", repository);
+        ReflectionTestUtils.setField(service, "meterRegistry", new SimpleMeterRegistry());
+        ReflectionTestUtils.setField(service, "maxSize", 100L);
+        ReflectionTestUtils.setField(service, "ttl", Duration.ofMinutes(1));
+        ReflectionTestUtils.setField(service, "estimateTtl", Duration.ofMinutes(1));
+        service.init();
+        return service;
+    }
+
+    private static double percentile(List<Long> sorted, double fraction) {
+        return sorted.get((int) Math.min(sorted.size() - 1, Math.round(fraction * (sorted.size() - 1)))) / 1e6;
+    }
+
+    private static List<Product> products(int count) {
+        List<Product> products = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            Product product = new Product();
+            product.setId("product-" + i);
+            products.add(product);
+        }
+        return products;
+    }
+
+    private record Result(String name, double throughput, double p50Millis, double p99Millis) {
+        @Override
+        public String toString() {
+            return String.format("%-8s %8.0f requests/s  p50 %6.1f ms  p99 %6.1f ms", name, throughput, p50Millis,
+                    p99Millis);
+        }
+    }
+}
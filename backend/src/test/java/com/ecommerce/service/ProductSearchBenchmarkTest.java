@@ -0,0 +1,204 @@
+package com.ecommerce.service;
+
+import com.ecommerce.model.Product;
+import com.ecommerce.repository.ProductFilter;
+import com.ecommerce.repository.ProductRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.springframework.data.couchbase.core.CouchbaseTemplate;
+import org.springframework.data.couchbase.core.query.Query;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Random;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.RETURNS_DEEP_STUBS;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * Compares the latency of {@link ProductSearchIndex#search} once the index is built with the
+ * {@link ProductFilter#nameContains} fallback it uses until then, over a generated catalog of
+ * {@link #CATALOG_SIZE} products. The fallback's repository evaluates {@code LOWER(name) LIKE} over
+ * the whole catalog in memory, as the query service does without a usable index, but without the
+ * network and document fetches, so its latency is a lower bound on the N1QL path.
+ * <p>
+ * The queries include a two-letter term, which the index answers by scanning its vocabulary
+ * rather than through the trigrams. Not part of the regular build:
+ * {@code mvn test -Dtest=ProductSearchBenchmarkTest -Dload-tests=true -DargLine=-Xmx512m}.
+ */
+@EnabledIfSystemProperty(named = "load-tests", matches = "true")
+class ProductSearchBenchmarkTest {
+
+    private static final int CATALOG_SIZE = 50_000;
+    private static final int WARMUP_QUERIES = 500;
+    private static final int MEASURED_QUERIES = 2_000;
+    private static final int RARE_WORDS = 20_000;
+    private static final double MAX_INDEX_P99_MILLIS = 10;
+
+    private static final String[] QUERIES = {
+            "lamp", "desk lamp", "oak", "stee", "ergonomic chair", "wireless", "pro", "co", "nordway", "linen"};
+
+    private static final String[] BRANDS = {
+            "Nordway", "Aurelio", "Kestrel", "Lumen", "Brightfield", "Oakhurst", "Vantor", "Solace", "Tidewell",
+            "Corvana", "Helix", "Marlowe", "Pinecrest", "Quanta", "Redwood", "Silvano", "Truvo", "Umbra"};
+    private static final String[] ADJECTIVES = {
+            "wireless", "ergonomic", "compact", "portable", "classic", "modern", "rustic", "premium", "steel",
+            "oak", "linen", "cotton", "leather", "glass", "ceramic", "bamboo", "foldable", "adjustable"};
+    private static final String[] NOUNS = {
+            "lamp", "desk", "chair", "table", "speaker", "headphones", "backpack", "kettle", "blender", "rug",
+            "shelf", "mirror", "pillow", "blanket", "monitor", "keyboard", "mouse", "charger", "sofa", "vase"};
+    private static final String[] TAGS = {
+            "home", "office", "kitchen", "outdoor", "travel", "audio", "lighting", "decor", "bedroom", "gift",
+            "sale", "new", "eco", "bestseller", "pro"};
+
+    private final Pageable pageable = PageRequest.of(0, 12);
+    private final String[] rareWords = rareWords(RARE_WORDS);
+    private final List<Product> catalog = catalog(CATALOG_SIZE);
+
+    @Test
+    void indexedSearchStaysInSingleDigitMilliseconds() {
+        Result fallback = run("fallback", searchIndex(false));
+        Result index = run("index", searchIndex(true));
+
+        System.out.println(fallback);
+        System.out.println(index);
+        assertThat(index.p99Millis()).isLessThan(MAX_INDEX_P99_MILLIS);
+        assertThat(index.p50Millis()).isLessThan(fallback.p50Millis());
+    }
+
+    private Result run(String name, ProductSearchIndex searchIndex) {
+        for (int i = 0; i < WARMUP_QUERIES; i++) {
+            searchIndex.search(QUERIES[i % QUERIES.length], pageable);
+        }
+
+        List<Long> latencies = new ArrayList<>(MEASURED_QUERIES);
+        long hits = 0;
+        for (int i = 0; i < MEASURED_QUERIES; i++) {
+            long started = System.nanoTime();
+            hits += searchIndex.search(QUERIES[i % QUERIES.length], pageable).getTotalElements();
+            latencies.add(System.nanoTime() - started);
+        }
+
+        latencies.sort(null);
+        return new Result(name, percentile(latencies, 0.50), percentile(latencies, 0.99),
+                hits / MEASURED_QUERIES);
+    }
+
+    private ProductSearchIndex searchIndex(boolean built) {
+        ProductRepository repository = mock(ProductRepository.class);
+        when(repository.findPage(any(), any(), any())).thenAnswer(invocation -> {
+            Pageable page = invocation.getArgument(1);
+            List<Product> matches = nameMatches(invocation.getArgument(0));
+            int from = (int) Math.min(page.getOffset(), matches.size());
+            return matches.subList(from, Math.min(from + page.getPageSize(), matches.size()));
+        });
+        when(repository.count(any())).thenAnswer(invocation -> (long) nameMatches(invocation.getArgument(0)).size());
+
+        ProductListingService listingService = new ProductListingService();
+        ReflectionTestUtils.setField(listingService, "productRepository", repository);
+        ReflectionTestUtils.setField(listingService, "meterRegistry", new SimpleMeterRegistry());
+        ReflectionTestUtils.setField(listingService, "maxSize", 10_000L);
+        ReflectionTestUtils.setField(listingService, "ttl", Duration.ofSeconds(30));
+        ReflectionTestUtils.setField(listingService, "estimateTtl", Duration.ofMinutes(10));
+        listingService.init();
+
+        CouchbaseTemplate template = mock(CouchbaseTemplate.class, RETURNS_DEEP_STUBS);
+        when(template.findByQuery(Product.class).matching(any(Query.class)).stream())
+                .thenAnswer(invocation -> catalog.stream());
+
+        ProductSearchIndex searchIndex = new ProductSearchIndex();
+        ReflectionTestUtils.setField(searchIndex, "productRepository", repository);
+        ReflectionTestUtils.setField(searchIndex, "productListingService", listingService);
+        ReflectionTestUtils.setField(searchIndex, "couchbaseTemplate", template);
+        if (built) {
+            searchIndex.build();
+            assertThat(ReflectionTestUtils.getField(searchIndex, "ready")).isEqualTo(true);
+        }
+        return searchIndex;
+    }
+
+    /**
+     * Evaluates the filter's {@code LOWER(name) LIKE '%term%'} over every product.
+     */
+    private List<Product> nameMatches(ProductFilter filter) {
+        String term = filter.getKey().substring("name:".length());
+        List<Product> matches = new ArrayList<>();
+        for (Product product : catalog) {
+            if (product.isActive() && product.getName().toLowerCase(Locale.ROOT).contains(term)) {
+                matches.add(product);
+            }
+        }
+        return matches;
+    }
+
+    private List<Product> catalog(int size) {
+        Random random = new Random(42);
+        List<Product> products = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            String brand = pick(random, BRANDS);
+            String noun = pick(random, NOUNS);
+            Product product = new Product();
+            product.setId("product-" + i);
+            product.setName(brand + " " + pick(random, ADJECTIVES) + " " + noun + " " + (char) ('A' + random.nextInt(26))
+                    + (100 + random.nextInt(900)));
+            product.setBrand(brand);
+            product.setTags(List.of(pick(random, TAGS), pick(random, TAGS)));
+            product.setDescription(description(random, noun));
+            product.setRating(random.nextInt(50) / 10.0);
+            product.setActive(random.nextInt(20) != 0);
+            products.add(product);
+        }
+        return products;
+    }
+
+    /**
+     * About thirty words, a quarter of them drawn from {@link #RARE_WORDS} made-up ones, which stand
+     * in for the long tail of a real catalog's vocabulary.
+     */
+    private String description(Random random, String noun) {
+        StringBuilder description = new StringBuilder("A ").append(noun).append(" that is");
+        for (int i = 0; i < 30; i++) {
+            description.append(' ').append(random.nextInt(4) == 0 ? pick(random, rareWords)
+                    : pick(random, random.nextBoolean() ? ADJECTIVES : TAGS));
+        }
+        return description.toString();
+    }
+
+    private static String[] rareWords(int count) {
+        Random random = new Random(7);
+        String[] words = new String[count];
+        for (int i = 0; i < count; i++) {
+            StringBuilder word = new StringBuilder();
+            for (int c = 0, length = 4 + random.nextInt(6); c < length; c++) {
+                word.append((char) ('a' + random.nextInt(26)));
+            }
+            words[i] = word.toString();
+        }
+        return words;
+    }
+
+    private static String pick(Random random, String[] words) {
+        return words[random.nextInt(words.length)];
+    }
+
+    private static double percentile(List<Long> sorted, double fraction) {
+        return sorted.get((int) Math.min(sorted.size() - 1, Math.round(fraction * (sorted.size() - 1)))) / 1e6;
+    }
+
+    private record Result(String name, double p50Millis, double p99Millis, long meanHits) {
+        @Override
+        public String toString() {
+            return String.format("%-8s p50 %6.2f ms  p99 %6.2f ms  %6d hits/query  (%d products)", name, p50Millis,
+                    p99Millis, meanHits, CATALOG_SIZE);
+        }
+    }
+}
@@ -0,0 +1,136 @@
+package com.ecommerce.service;
+
+import com.ecommerce.model.Product;
+import com.ecommerce.repository.ProductFields;
+import com.ecommerce.repository.ProductFilter;
+import com.ecommerce.repository.ProductRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledForJreRange;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.junit.jupiter.api.condition.JRE;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * Compares platform and virtual request threads on the blocking listing path with
+ * {@link #COUCHBASE_LATENCY} injected into every repository call. Each request lists a category
+ * whose count is not cached yet, so it makes two repository calls, the count one through the
+ * coalescing cache loader that keeps virtual threads from pinning their carrier.
+ * <p>
+ * The platform run uses a pool the size of Tomcat's default; the virtual run a thread per
+ * request, as {@code spring.threads.virtual.enabled} does. Needs a Java 21 runtime and is not part
+ * of the regular build:
+ * {@code mvn -Pjava21 test -Dtest=VirtualThreadBenchmarkTest -Dload-tests=true -DargLine=-Xmx512m}.
+ */
+@EnabledForJreRange(min = JRE.JAVA_21)
+@EnabledIfSystemProperty(named = "load-tests", matches = "true")
+class VirtualThreadBenchmarkTest {
+
+    private static final Duration COUCHBASE_LATENCY = Duration.ofMillis(20);
+    private static final int REQUEST_THREADS = 200;
+    private static final int REQUESTS = 20_000;
+    private static final int CATEGORIES = 1_000;
+
+    private final Pageable pageable = PageRequest.of(0, 12);
+    private final List<Product> page = products(12);
+
+    @Test
+    void virtualThreadsOutlastThePlatformThreadPool() throws Exception {
+        Result platform = run("platform", Executors.newFixedThreadPool(REQUEST_THREADS));
+        Result virtual = run("virtual", newVirtualThreadPerTaskExecutor());
+
+        System.out.println(platform);
+        System.out.println(virtual);
+        assertThat(virtual.throughput()).isGreaterThan(platform.throughput());
+        assertThat(virtual.p99Millis()).isLessThan(platform.p99Millis());
+    }
+
+    private Result run(String name, ExecutorService requestThreads) throws Exception {
+        ProductListingService service = service();
+        List<Future<Long>> requests = new ArrayList<>(REQUESTS);
+        long startedAt = System.nanoTime();
+        for (int i = 0; i < REQUESTS; i++) {
+            ProductFilter filter = ProductFilter.category("category-" + i % CATEGORIES);
+            long submitted = System.nanoTime();
+            requests.add(requestThreads.submit(() -> {
+                service.findPage(filter, pageable, false, ProductFields.FULL);
+                return System.nanoTime() - submitted;
+            }));
+        }
+
+        List<Long> latencies = new ArrayList<>(REQUESTS);
+        for (Future<Long> request : requests) {
+            latencies.add(request.get());
+        }
+        long elapsed = System.nanoTime() - startedAt;
+        requestThreads.shutdown();
+
+        latencies.sort(null);
+        return new Result(name, REQUESTS * 1e9 / elapsed, percentile(latencies, 0.50),
+                percentile(latencies, 0.99));
+    }
+
+    private ProductListingService service() {
+        ProductRepository repository = mock(ProductRepository.class);
+        when(repository.findPage(any(), any(), any())).thenAnswer(invocation -> {
+            Thread.sleep(COUCHBASE_LATENCY.toMillis());
+            return page;
+        });
+        when(repository.count(any())).thenAnswer(invocation -> {
+            Thread.sleep(COUCHBASE_LATENCY.toMillis());
+            return 1000L;
+        });
+
+        ProductListingService service = new ProductListingService();
+        ReflectionTestUtils.setField(service, "productRepository", repository);
+        ReflectionTestUtils.setField(service, "meterRegistry", new SimpleMeterRegistry());
+        ReflectionTestUtils.setField(service, "maxSize", (long) CATEGORIES);
+        ReflectionTestUtils.setField(service, "ttl", Duration.ofMinutes(1));
+        ReflectionTestUtils.setField(service, "estimateTtl", Duration.ofMinutes(1));
+        service.init();
+        return service;
+    }
+
+    /**
+     * Looked up reflectively, so that the test sources still compile for Java 17.
+     */
+    private static ExecutorService newVirtualThreadPerTaskExecutor() throws ReflectiveOperationException {
+        return (ExecutorService) Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+    }
+
+    private static double percentile(List<Long> sorted, double fraction) {
+        return sorted.get((int) Math.min(sorted.size() - 1, Math.round(fraction * (sorted.size() - 1)))) / 1e6;
+    }
+
+    private static List<Product> products(int count) {
+        List<Product> products = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            Product product = new Product();
+            product.setId("product-" + i);
+            products.add(product);
+        }
+        return products;
+    }
+
+    private record Result(String name, double throughput, double p50Millis, double p99Millis) {
+        @Override
+        public String toString() {
+            return String.format("%-8s %8.0f requests/s  p50 %6.1f ms  p99 %6.1f ms", name, throughput, p50Millis,
+                    p99Millis);
+        }
+    }
+}
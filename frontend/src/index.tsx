@@ -6,6 +6,7 @@ import { ThemeProvider, createTheme } from '@mui/material/styles';
 import CssBaseline from '@mui/material/CssBaseline';
 import App from './App';
 import { store } from './store/store';
+import { setupAuthInterceptor } from './services/authInterceptor';
 
 const theme = createTheme({
   palette: {
@@ -21,6 +22,8 @@ const theme = createTheme({
   },
 });
 
+setupAuthInterceptor(store.dispatch);
+
 const root = ReactDOM.createRoot(
   document.getElementById('root') as HTMLElement
 );
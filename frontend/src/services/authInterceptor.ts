@@ -0,0 +1,60 @@
+import axios, { AxiosError, InternalAxiosRequestConfig } from 'axios';
+import authService from './authService';
+import { sessionExpired, tokenRefreshed } from '../store/slices/authSlice';
+import type { AppDispatch } from '../store/store';
+
+interface RetriableRequest extends InternalAxiosRequestConfig {
+  authRetried?: boolean;
+}
+
+// One refresh at a time: requests failing together all wait for the same rotation
+let pendingRefresh: Promise<string> | null = null;
+
+const refreshAccessToken = (dispatch: AppDispatch): Promise<string> => {
+  if (!pendingRefresh) {
+    const refreshToken = localStorage.getItem('refreshToken');
+    pendingRefresh = (refreshToken
+      ? authService.refresh(refreshToken)
+      : Promise.reject(new Error('No refresh token')))
+      .then((response) => {
+        localStorage.setItem('token', response.accessToken);
+        localStorage.setItem('refreshToken', response.refreshToken);
+        dispatch(tokenRefreshed(response.accessToken));
+        return response.accessToken;
+      })
+      .catch((error) => {
+        localStorage.removeItem('token');
+        localStorage.removeItem('refreshToken');
+        dispatch(sessionExpired());
+        throw error;
+      })
+      .finally(() => {
+        pendingRefresh = null;
+      });
+  }
+  return pendingRefresh;
+};
+
+/**
+ * Access tokens are short-lived. When an authenticated request comes back 401, rotate the token
+ * pair once and replay the request with the new access token.
+ */
+export const setupAuthInterceptor = (dispatch: AppDispatch) => {
+  axios.interceptors.response.use(undefined, async (error: AxiosError) => {
+    const request = error.config as RetriableRequest | undefined;
+    if (
+      error.response?.status !== 401 ||
+      !request ||
+      request.authRetried ||
+      !request.headers?.Authorization ||
+      request.url?.startsWith('/api/auth/')
+    ) {
+      throw error;
+    }
+
+    request.authRetried = true;
+    const accessToken = await refreshAccessToken(dispatch);
+    request.headers.Authorization = `Bearer ${accessToken}`;
+    return axios(request);
+  });
+};
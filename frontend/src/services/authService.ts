@@ -17,6 +17,7 @@ interface RegisterData {
 
 interface LoginResponse {
   accessToken: string;
+  refreshToken: string;
   id: string;
   username: string;
   email: string;
@@ -33,9 +34,23 @@ const register = async (userData: RegisterData) => {
   return response.data;
 };
 
+const refresh = async (refreshToken: string): Promise<LoginResponse> => {
+  const response = await axios.post(`${API_URL}/refresh`, { refreshToken });
+  return response.data;
+};
+
+// Revokes the refresh token and, through the Authorization header, the access token's jti
+const logout = async (refreshToken: string | null, accessToken: string | null) => {
+  await axios.post(`${API_URL}/signout`, { refreshToken }, {
+    headers: accessToken ? { Authorization: `Bearer ${accessToken}` } : {},
+  });
+};
+
 const authService = {
   login,
   register,
+  refresh,
+  logout,
 };
 
 export default authService;
\ No newline at end of file
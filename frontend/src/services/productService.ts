@@ -7,12 +7,25 @@ interface ProductParams {
   size?: number;
   sortBy?: string;
   sortDir?: string;
+  // Accept a cached total; the response then has totalEstimated set
+  approximateCount?: boolean;
+  // 'summary' returns only what a product grid renders
+  fields?: 'full' | 'summary';
+}
+
+interface ScrollParams {
+  cursor?: string;
+  size?: number;
+  sortBy?: string;
+  sortDir?: string;
+  fields?: 'full' | 'summary';
 }
 
 interface SearchParams {
   name: string;
   page?: number;
   size?: number;
+  fields?: 'full' | 'summary';
 }
 
 const getProducts = async (params: ProductParams = {}) => {
@@ -20,6 +33,48 @@ const getProducts = async (params: ProductParams = {}) => {
   return response.data;
 };
 
+// Cursor pagination: pass the previous response's `next` as `cursor` to load the following page
+const scrollProducts = async (params: ScrollParams = {}) => {
+  const response = await axios.get(`${API_URL}/scroll`, { params });
+  return response.data;
+};
+
+const scrollProductsByCategory = async (category: string, params: ScrollParams = {}) => {
+  const response = await axios.get(`${API_URL}/category/${category}/scroll`, { params });
+  return response.data;
+};
+
+const scrollProductsByPriceRange = async (minPrice: number, maxPrice: number, params: ScrollParams = {}) => {
+  const response = await axios.get(`${API_URL}/price-range/scroll`, {
+    params: { minPrice, maxPrice, ...params }
+  });
+  return response.data;
+};
+
+interface ProductQueryParams {
+  category?: string[];
+  brand?: string[];
+  tag?: string[];
+  minPrice?: number;
+  maxPrice?: number;
+  inStock?: boolean;
+  minRating?: number;
+  sortBy?: string;
+  sortDir?: string;
+  page?: number;
+  size?: number;
+  fields?: 'full' | 'summary';
+}
+
+// Combined filters; the response carries facet counts alongside the page
+const queryProducts = async (params: ProductQueryParams = {}) => {
+  const response = await axios.get(`${API_URL}/query`, {
+    params,
+    paramsSerializer: { indexes: null }
+  });
+  return response.data;
+};
+
 const getFeaturedProducts = async () => {
   const response = await axios.get(`${API_URL}/featured`);
   return response.data;
@@ -81,6 +136,10 @@ const deleteProduct = async (id: string, token: string) => {
 
 const productService = {
   getProducts,
+  scrollProducts,
+  scrollProductsByCategory,
+  scrollProductsByPriceRange,
+  queryProducts,
   getFeaturedProducts,
   getProductById,
   searchProducts,
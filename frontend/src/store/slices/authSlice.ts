@@ -30,6 +30,7 @@ export const login = createAsyncThunk(
     try {
       const response = await authService.login(credentials);
       localStorage.setItem('token', response.accessToken);
+      localStorage.setItem('refreshToken', response.refreshToken);
       return response;
     } catch (error: any) {
       return rejectWithValue(error.response?.data?.message || 'Login failed');
@@ -55,17 +56,32 @@ export const register = createAsyncThunk(
   }
 );
 
+export const logout = createAsyncThunk('auth/logout', async () => {
+  try {
+    await authService.logout(localStorage.getItem('refreshToken'), localStorage.getItem('token'));
+  } catch {
+    // Signed out locally either way; the tokens expire on their own
+  } finally {
+    localStorage.removeItem('token');
+    localStorage.removeItem('refreshToken');
+  }
+});
+
+const signedOut = (state: AuthState) => {
+  state.user = null;
+  state.token = null;
+  state.isAuthenticated = false;
+  state.error = null;
+};
+
 const authSlice = createSlice({
   name: 'auth',
   initialState,
   reducers: {
-    logout: (state) => {
-      localStorage.removeItem('token');
-      state.user = null;
-      state.token = null;
-      state.isAuthenticated = false;
-      state.error = null;
+    tokenRefreshed: (state, action: PayloadAction<string>) => {
+      state.token = action.payload;
     },
+    sessionExpired: signedOut,
     clearError: (state) => {
       state.error = null;
     },
@@ -101,9 +117,10 @@ const authSlice = createSlice({
       .addCase(register.rejected, (state, action) => {
         state.isLoading = false;
         state.error = action.payload as string;
-      });
+      })
+      .addCase(logout.fulfilled, signedOut);
   },
 });
 
-export const { logout, clearError } = authSlice.actions;
+export const { tokenRefreshed, sessionExpired, clearError } = authSlice.actions;
 export default authSlice.reducer;
\ No newline at end of file